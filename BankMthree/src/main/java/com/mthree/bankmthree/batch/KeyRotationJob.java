@@ -0,0 +1,187 @@
+package com.mthree.bankmthree.batch;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.util.AttributeEncryptor;
+import com.mthree.bankmthree.util.AttributeKeyRing;
+import com.mthree.bankmthree.util.BlindIndexer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-encrypts the encrypted user profile columns under the active key of the {@link AttributeKeyRing}.
+ * Rows are read in id order with keyset pagination, one chunk at a time, and rewritten with a JDBC
+ * batch update in one transaction per chunk, so memory use does not grow with the table size.
+ * Rows already under the active key are skipped, which makes a restart after {@code lastId} cheap.
+ * Missing blind indexes are filled in on the way, so a full run also backfills profiles written
+ * before the index columns existed. Rows that cannot be decrypted, or that still hold values the
+ * {@link ProfileEncryptionBackfill} has not encrypted, are logged and skipped instead of stopping the run.
+ */
+@Component
+@Slf4j
+public class KeyRotationJob {
+    private static final String SELECT_CHUNK =
+            "SELECT id, email, phone, ssn, email_index, phone_index, ssn_index FROM user_profiles WHERE id > ? ORDER BY id LIMIT ?";
+    // Matches the values that were read, so a row changed by the application meanwhile is left as written
+    private static final String UPDATE_ROW =
+            "UPDATE user_profiles SET email = ?, phone = ?, ssn = ?, email_index = ?, phone_index = ?, ssn_index = ? " +
+                    "WHERE id = ? AND email = ? AND phone <=> ? AND ssn = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AttributeKeyRing keyRing;
+    private final AttributeEncryptor attributeEncryptor;
+    private final BlindIndexer blindIndexer;
+    private final int chunkSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<KeyRotationProgress> progress = new AtomicReference<>(KeyRotationProgress.idle());
+
+    public KeyRotationJob(JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          AttributeKeyRing keyRing,
+                          BlindIndexer blindIndexer,
+                          @Value("${encryption.rotation.chunkSize:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.keyRing = keyRing;
+        this.attributeEncryptor = new AttributeEncryptor(keyRing);
+        this.blindIndexer = blindIndexer;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Starts a rotation run in the background.
+     *
+     * @param afterId the profile id to resume after, 0 for a full run
+     * @return false if a run is already in progress
+     */
+    public boolean start(long afterId) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress.set(new KeyRotationProgress(true, 0, 0, 0, afterId, 0, 0, null));
+        Thread.ofVirtual().name("key-rotation").start(() -> {
+            try {
+                run(afterId);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public KeyRotationProgress getProgress() {
+        return progress.get();
+    }
+
+    KeyRotationProgress run(long afterId) {
+        log.info(MessageConstants.Logs.KEY_ROTATION_STARTED, keyRing.activeKeyId(), afterId);
+        long startedAt = System.nanoTime();
+        long scanned = 0;
+        long rewritten = 0;
+        long skipped = 0;
+        long lastId = afterId;
+        try {
+            while (true) {
+                List<ProfileRow> rows = jdbcTemplate.query(SELECT_CHUNK, KeyRotationJob::mapRow, lastId, chunkSize);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                ChunkResult chunk = rewriteChunk(rows);
+                rewritten += chunk.rewritten();
+                skipped += chunk.skipped();
+                scanned += rows.size();
+                lastId = rows.get(rows.size() - 1).id();
+                KeyRotationProgress current = progress(true, scanned, rewritten, skipped, lastId, startedAt, null);
+                progress.set(current);
+                log.info(MessageConstants.Logs.KEY_ROTATION_PROGRESS, scanned, rewritten, skipped, lastId,
+                        Math.round(current.rowsPerSecond()));
+            }
+        } catch (RuntimeException e) {
+            log.error(MessageConstants.Logs.KEY_ROTATION_FAILED, lastId, e.getMessage(), e);
+            KeyRotationProgress failed = progress(false, scanned, rewritten, skipped, lastId, startedAt, e.getMessage());
+            progress.set(failed);
+            return failed;
+        }
+        KeyRotationProgress completed = progress(false, scanned, rewritten, skipped, lastId, startedAt, null);
+        progress.set(completed);
+        log.info(MessageConstants.Logs.KEY_ROTATION_COMPLETED, scanned, rewritten, skipped, completed.elapsedMs());
+        return completed;
+    }
+
+    private ChunkResult rewriteChunk(List<ProfileRow> rows) {
+        List<Object[]> updates = new ArrayList<>();
+        int skipped = 0;
+        for (ProfileRow row : rows) {
+            if (row.indexed() && attributeEncryptor.isCurrent(row.email())
+                    && attributeEncryptor.isCurrent(row.phone()) && attributeEncryptor.isCurrent(row.ssn())) {
+                continue;
+            }
+            // Plaintext and legacy values are encrypted by the startup backfill, which also owns their first index
+            if (!attributeEncryptor.isVersioned(row.email()) || !attributeEncryptor.isVersioned(row.phone())
+                    || !attributeEncryptor.isVersioned(row.ssn())) {
+                log.warn(MessageConstants.Logs.KEY_ROTATION_ROW_UNENCRYPTED, row.id());
+                skipped++;
+                continue;
+            }
+            try {
+                String email = attributeEncryptor.convertToEntityAttribute(row.email());
+                String phone = attributeEncryptor.convertToEntityAttribute(row.phone());
+                String ssn = attributeEncryptor.convertToEntityAttribute(row.ssn());
+                updates.add(new Object[]{reencrypt(row.email(), email), reencrypt(row.phone(), phone), reencrypt(row.ssn(), ssn),
+                        blindIndexer.emailIndex(email), blindIndexer.phoneIndex(phone), blindIndexer.ssnIndex(ssn),
+                        row.id(), row.email(), row.phone(), row.ssn()});
+            } catch (RuntimeException e) {
+                // A key missing from the ring or a tampered value; one bad row does not stop the run
+                log.warn(MessageConstants.Logs.KEY_ROTATION_ROW_UNDECRYPTABLE, row.id(), e.getMessage());
+                skipped++;
+            }
+        }
+        if (updates.isEmpty()) {
+            return new ChunkResult(0, skipped);
+        }
+        int[] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_ROW, updates));
+        int rewritten = 0;
+        for (int count : counts) {
+            // Drivers that rewrite batches may report SUCCESS_NO_INFO (-2) instead of a row count;
+            // EXECUTE_FAILED (-3) and 0 (the row changed since it was read) are not rewrites
+            rewritten += count > 0 || count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+        }
+        return new ChunkResult(rewritten, skipped);
+    }
+
+    private static ProfileRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        String phone = rs.getString("phone");
+        boolean indexed = rs.getString("email_index") != null && rs.getString("ssn_index") != null
+                && (phone == null || rs.getString("phone_index") != null);
+        return new ProfileRow(rs.getLong("id"), rs.getString("email"), phone, rs.getString("ssn"), indexed);
+    }
+
+    private String reencrypt(String dbData, String plaintext) {
+        return attributeEncryptor.isCurrent(dbData) ? dbData : attributeEncryptor.convertToDatabaseColumn(plaintext);
+    }
+
+    private KeyRotationProgress progress(boolean running, long scanned, long rewritten, long skipped, long lastId,
+                                         long startedAt, String error) {
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        double rowsPerSecond = elapsedMs > 0 ? scanned * 1000.0 / elapsedMs : 0;
+        return new KeyRotationProgress(running, scanned, rewritten, skipped, lastId, elapsedMs, rowsPerSecond, error);
+    }
+
+    private record ChunkResult(int rewritten, int skipped) {
+    }
+
+    private record ProfileRow(long id, String email, String phone, String ssn, boolean indexed) {
+    }
+}
@@ -0,0 +1,14 @@
+package com.mthree.bankmthree.batch;
+
+/**
+ * Snapshot of a key rotation run. {@code lastId} is the last profile id committed, so a failed
+ * or interrupted run can be restarted after it. {@code skipped} counts rows left as they were
+ * because a value could not be decrypted or was not yet encrypted.
+ */
+public record KeyRotationProgress(boolean running, long scanned, long rewritten, long skipped, long lastId,
+                                  long elapsedMs, double rowsPerSecond, String error) {
+
+    static KeyRotationProgress idle() {
+        return new KeyRotationProgress(false, 0, 0, 0, 0, 0, 0, null);
+    }
+}
@@ -0,0 +1,243 @@
+package com.mthree.bankmthree.batch;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.dto.transaction.StatementLine;
+import com.mthree.bankmthree.repository.TransactionRepository;
+import com.mthree.bankmthree.util.PdfGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes a PDF statement per account for one month into {@code statement.outputDir/<month>/}.
+ * Accounts are read in id order with keyset pagination, one chunk at a time, and each account's
+ * transactions are read the same way, so memory use does not grow with the number of accounts or
+ * transactions. Statements are rendered on virtual threads; a semaphore bounds how many are in
+ * flight, which also holds back reading the next accounts while rendering is behind.
+ * Each file is written through a {@link FileChannel} to a temporary name and moved into place when
+ * complete, so a restarted run skips every statement that exists and redoes only the missing ones.
+ */
+@Component
+@Slf4j
+public class MonthlyStatementJob {
+    private static final String SELECT_ACCOUNTS = "SELECT id, card_number, currency FROM accounts WHERE id > ? ORDER BY id LIMIT ?";
+    private static final long SKIPPED = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRepository transactionRepository;
+    private final PdfGenerator pdfGenerator;
+    private final Path outputDir;
+    private final int chunkSize;
+    private final int pageSize;
+    private final int maxConcurrentRenders;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicReference<StatementRunProgress> progress = new AtomicReference<>(StatementRunProgress.idle());
+
+    public MonthlyStatementJob(JdbcTemplate jdbcTemplate,
+                               TransactionRepository transactionRepository,
+                               PdfGenerator pdfGenerator,
+                               @Value("${statement.outputDir:statements}") String outputDir,
+                               @Value("${statement.accountChunkSize:500}") int chunkSize,
+                               @Value("${statement.transactionPageSize:1000}") int pageSize,
+                               @Value("${statement.maxConcurrentRenders:8}") int maxConcurrentRenders) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionRepository = transactionRepository;
+        this.pdfGenerator = pdfGenerator;
+        this.outputDir = Path.of(outputDir);
+        this.chunkSize = chunkSize;
+        this.pageSize = pageSize;
+        this.maxConcurrentRenders = maxConcurrentRenders;
+    }
+
+    /**
+     * Generates last month's statements, by default at 02:00 on the first day of each month.
+     */
+    @Scheduled(cron = "${statement.cron:0 0 2 1 * *}")
+    public void generatePreviousMonth() {
+        YearMonth month = YearMonth.now().minusMonths(1);
+        if (!start(month, 0)) {
+            log.warn(MessageConstants.Logs.STATEMENTS_ALREADY_RUNNING, month);
+        }
+    }
+
+    /**
+     * Starts a statement run in the background.
+     *
+     * @param month          the statement month
+     * @param afterAccountId the account id to resume after, 0 for all accounts
+     * @return false if a run is already in progress
+     */
+    public boolean start(YearMonth month, long afterAccountId) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        progress.set(new StatementRunProgress(true, month.toString(), 0, 0, 0, 0, 0, afterAccountId, 0, 0, null));
+        Thread.ofVirtual().name("monthly-statements").start(() -> {
+            try {
+                run(month, afterAccountId);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public StatementRunProgress getProgress() {
+        return progress.get();
+    }
+
+    StatementRunProgress run(YearMonth month, long afterAccountId) {
+        log.info(MessageConstants.Logs.STATEMENTS_STARTED, month, afterAccountId);
+        long startedAt = System.nanoTime();
+        Counts counts = new Counts();
+        long lastId = afterAccountId;
+        Semaphore permits = new Semaphore(maxConcurrentRenders);
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("statement-", 0).factory())) {
+            Path directory = Files.createDirectories(outputDir.resolve(month.toString()));
+            while (true) {
+                List<StatementAccount> accounts = jdbcTemplate.query(SELECT_ACCOUNTS, MonthlyStatementJob::mapAccount, lastId, chunkSize);
+                if (accounts.isEmpty()) {
+                    break;
+                }
+                List<Future<Long>> results = new ArrayList<>(accounts.size());
+                for (StatementAccount account : accounts) {
+                    // Blocks while the maximum number of statements is being rendered
+                    permits.acquireUninterruptibly();
+                    results.add(executor.submit(() -> {
+                        try {
+                            return writeStatement(directory, month, account);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (int i = 0; i < results.size(); i++) {
+                    counts.record(accounts.get(i).id(), results.get(i));
+                }
+                lastId = accounts.get(accounts.size() - 1).id();
+                StatementRunProgress current = progress(true, month, counts, lastId, startedAt, null);
+                progress.set(current);
+                log.info(MessageConstants.Logs.STATEMENTS_PROGRESS, current.accounts(), current.written(), current.skipped(),
+                        current.failed(), lastId, Math.round(current.accountsPerSecond()));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error(MessageConstants.Logs.STATEMENTS_FAILED, lastId, e.getMessage(), e);
+            StatementRunProgress failed = progress(false, month, counts, lastId, startedAt, e.getMessage());
+            progress.set(failed);
+            return failed;
+        }
+        StatementRunProgress completed = progress(false, month, counts, lastId, startedAt, null);
+        progress.set(completed);
+        log.info(MessageConstants.Logs.STATEMENTS_COMPLETED, month, completed.written(), completed.skipped(),
+                completed.failed(), completed.transactions(), completed.elapsedMs());
+        return completed;
+    }
+
+    /**
+     * Writes one account's statement unless it already exists.
+     *
+     * @return the number of transactions written, or {@link #SKIPPED}
+     */
+    private long writeStatement(Path directory, YearMonth month, StatementAccount account) throws IOException {
+        Path target = directory.resolve("statement-" + month + "-" + account.id() + ".pdf");
+        if (Files.exists(target)) {
+            return SKIPPED;
+        }
+        Path partial = directory.resolve(target.getFileName() + ".part");
+        LocalDateTime from = month.atDay(1).atStartOfDay();
+        LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+        long lines;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             PdfGenerator.StatementDocument statement = pdfGenerator.openStatement(
+                     new BufferedOutputStream(Channels.newOutputStream(channel), 64 * 1024),
+                     account.id(), account.cardNumber(), account.currency(), month)) {
+            LocalDateTime timestamp = from;
+            long id = 0;
+            while (true) {
+                List<StatementLine> page = transactionRepository.findStatementPageAfter(account.id(), from, to,
+                        timestamp, id, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                statement.addLines(page);
+                StatementLine last = page.get(page.size() - 1);
+                timestamp = last.timestamp();
+                id = last.id();
+                if (page.size() < pageSize) {
+                    break;
+                }
+            }
+            lines = statement.getLineCount();
+        }
+        Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return lines;
+    }
+
+    private static StatementAccount mapAccount(ResultSet rs, int rowNum) throws SQLException {
+        return new StatementAccount(rs.getLong("id"), rs.getString("card_number"), rs.getString("currency"));
+    }
+
+    private StatementRunProgress progress(boolean running, YearMonth month, Counts counts, long lastId, long startedAt, String error) {
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        long accounts = counts.written + counts.skipped + counts.failed;
+        double accountsPerSecond = elapsedMs > 0 ? accounts * 1000.0 / elapsedMs : 0;
+        return new StatementRunProgress(running, month.toString(), accounts, counts.written, counts.skipped,
+                counts.failed, counts.transactions, lastId, elapsedMs, accountsPerSecond, error);
+    }
+
+    private record StatementAccount(long id, String cardNumber, String currency) {
+    }
+
+    // Only updated by the thread running the job
+    private static final class Counts {
+        private long written;
+        private long skipped;
+        private long failed;
+        private long transactions;
+
+        private void record(long accountId, Future<Long> result) {
+            try {
+                long lines = result.get();
+                if (lines == SKIPPED) {
+                    skipped++;
+                } else {
+                    written++;
+                    transactions += lines;
+                }
+            } catch (ExecutionException e) {
+                // One broken statement does not stop the run; the next run retries it
+                failed++;
+                log.error(MessageConstants.Logs.STATEMENT_FAILED, accountId, e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.mthree.bankmthree.batch;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.util.AttributeEncryptor;
+import com.mthree.bankmthree.util.AttributeKeyRing;
+import com.mthree.bankmthree.util.BlindIndexer;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encrypts the user profile columns that were stored before they were encrypted, and fills in their
+ * blind indexes. It runs while the context starts, before requests are served, so every profile has
+ * the indexes that the unique constraints on email, phone and SSN rely on. Only rows with an
+ * unversioned value or a missing index are selected, so once a database is backfilled a start costs
+ * one empty range scan. Rows are processed in id order, one chunk per transaction.
+ * Before that, the encrypted columns are widened to hold the versioned ciphertext, since
+ * {@code ddl-auto=update} does not change the length of existing columns.
+ */
+@Component
+@Slf4j
+@DependsOn("entityManagerFactory")
+public class ProfileEncryptionBackfill {
+    // Column -> definition; the versioned ciphertext of a 255-character value no longer fits VARCHAR(255)
+    private static final Map<String, String> ENCRYPTED_COLUMNS = Map.of(
+            "email", "VARCHAR(512) NOT NULL",
+            "phone", "VARCHAR(512)",
+            "ssn", "VARCHAR(512) NOT NULL");
+    private static final String SELECT_NARROW_COLUMNS =
+            "SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_SCHEMA = DATABASE() " +
+                    "AND TABLE_NAME = 'user_profiles' AND COLUMN_NAME IN ('email', 'phone', 'ssn') " +
+                    "AND CHARACTER_MAXIMUM_LENGTH < 512";
+    private static final String SELECT_CHUNK =
+            "SELECT id, email, phone, ssn FROM user_profiles WHERE id > ? AND (" +
+                    "email NOT LIKE 'v1:%' OR ssn NOT LIKE 'v1:%' OR phone NOT LIKE 'v1:%' " +
+                    "OR email_index IS NULL OR ssn_index IS NULL OR (phone IS NOT NULL AND phone_index IS NULL)) " +
+                    "ORDER BY id LIMIT ?";
+    // Matches the values that were read, so a row changed by the application meanwhile is left as written
+    private static final String UPDATE_ROW =
+            "UPDATE user_profiles SET email = ?, phone = ?, ssn = ?, email_index = ?, phone_index = ?, ssn_index = ? " +
+                    "WHERE id = ? AND email = ? AND phone <=> ? AND ssn = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AttributeEncryptor attributeEncryptor;
+    private final BlindIndexer blindIndexer;
+    private final boolean enabled;
+    private final int chunkSize;
+
+    public ProfileEncryptionBackfill(JdbcTemplate jdbcTemplate,
+                                     PlatformTransactionManager transactionManager,
+                                     AttributeKeyRing keyRing,
+                                     BlindIndexer blindIndexer,
+                                     @Value("${encryption.backfill.enabled:true}") boolean enabled,
+                                     @Value("${encryption.backfill.chunkSize:1000}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.attributeEncryptor = new AttributeEncryptor(keyRing);
+        this.blindIndexer = blindIndexer;
+        this.enabled = enabled;
+        this.chunkSize = chunkSize;
+    }
+
+    @PostConstruct
+    void backfill() {
+        widenEncryptedColumns();
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        long rewritten = 0;
+        long lastId = 0;
+        while (true) {
+            List<Object[]> rows = jdbcTemplate.query(SELECT_CHUNK, (rs, rowNum) -> new Object[]{
+                    rs.getLong("id"), rs.getString("email"), rs.getString("phone"), rs.getString("ssn")}, lastId, chunkSize);
+            if (rows.isEmpty()) {
+                break;
+            }
+            List<Object[]> updates = new ArrayList<>(rows.size());
+            for (Object[] row : rows) {
+                try {
+                    String email = attributeEncryptor.convertToEntityAttribute((String) row[1]);
+                    String phone = attributeEncryptor.convertToEntityAttribute((String) row[2]);
+                    String ssn = attributeEncryptor.convertToEntityAttribute((String) row[3]);
+                    updates.add(new Object[]{encrypt((String) row[1], email), encrypt((String) row[2], phone), encrypt((String) row[3], ssn),
+                            blindIndexer.emailIndex(email), blindIndexer.phoneIndex(phone), blindIndexer.ssnIndex(ssn),
+                            row[0], row[1], row[2], row[3]});
+                } catch (RuntimeException e) {
+                    // A versioned value under a key that is no longer configured; the row is left as it is
+                    log.warn(MessageConstants.Logs.PROFILE_BACKFILL_SKIPPED, row[0], e.getMessage());
+                }
+            }
+            if (!updates.isEmpty()) {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPDATE_ROW, updates));
+            }
+            rewritten += updates.size();
+            lastId = (Long) rows.get(rows.size() - 1)[0];
+        }
+        if (rewritten > 0) {
+            log.info(MessageConstants.Logs.PROFILE_BACKFILL_COMPLETED, rewritten, (System.nanoTime() - startedAt) / 1_000_000);
+        }
+    }
+
+    private void widenEncryptedColumns() {
+        List<String> narrowColumns;
+        try {
+            narrowColumns = jdbcTemplate.queryForList(SELECT_NARROW_COLUMNS, String.class);
+        } catch (BadSqlGrammarException e) {
+            // Only MySQL needs widening; other databases get the columns as mapped
+            log.debug(MessageConstants.Logs.ENCRYPTED_COLUMNS_NOT_WIDENED, e.getMessage());
+            return;
+        }
+        for (String column : narrowColumns) {
+            jdbcTemplate.execute("ALTER TABLE user_profiles MODIFY " + column + " " + ENCRYPTED_COLUMNS.get(column.toLowerCase()));
+            log.info(MessageConstants.Logs.ENCRYPTED_COLUMN_WIDENED, column);
+        }
+    }
+
+    // Versioned values are left to KeyRotationJob; only plaintext and legacy ciphertext are encrypted here
+    private String encrypt(String dbData, String plaintext) {
+        return attributeEncryptor.isVersioned(dbData) ? dbData : attributeEncryptor.convertToDatabaseColumn(plaintext);
+    }
+}
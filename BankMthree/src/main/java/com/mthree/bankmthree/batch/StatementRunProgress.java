@@ -0,0 +1,15 @@
+package com.mthree.bankmthree.batch;
+
+/**
+ * Snapshot of a monthly statement run. {@code lastAccountId} is the last account id whose whole
+ * chunk has finished, so an interrupted run can be restarted after it; statements already written
+ * are skipped in any case.
+ */
+public record StatementRunProgress(boolean running, String month, long accounts, long written, long skipped,
+                                   long failed, long transactions, long lastAccountId, long elapsedMs,
+                                   double accountsPerSecond, String error) {
+
+    static StatementRunProgress idle() {
+        return new StatementRunProgress(false, null, 0, 0, 0, 0, 0, 0, 0, 0, null);
+    }
+}
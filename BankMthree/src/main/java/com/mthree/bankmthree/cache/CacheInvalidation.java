@@ -0,0 +1,9 @@
+package com.mthree.bankmthree.cache;
+
+import java.io.Serializable;
+
+/**
+ * Tells other nodes to drop a key from their local cache, or the whole cache when {@code key} is null.
+ */
+public record CacheInvalidation(String nodeId, String cacheName, Object key) implements Serializable {
+}
@@ -0,0 +1,14 @@
+package com.mthree.bankmthree.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts cache invalidations to every application node, for example over Redis pub/sub.
+ * Publishers also receive their own messages; listeners filter them by node id.
+ */
+public interface CacheInvalidationBus {
+
+    void publish(CacheInvalidation invalidation);
+
+    void subscribe(Consumer<CacheInvalidation> listener);
+}
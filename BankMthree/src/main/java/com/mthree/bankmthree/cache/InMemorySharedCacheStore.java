@@ -0,0 +1,35 @@
+package com.mthree.bankmthree.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-local {@link SharedCacheStore} for tests and single-node runs.
+ */
+public class InMemorySharedCacheStore implements SharedCacheStore {
+    private final Map<String, Map<Object, Object>> caches = new ConcurrentHashMap<>();
+
+    @Override
+    public Object get(String cacheName, Object key) {
+        return entries(cacheName).get(key);
+    }
+
+    @Override
+    public void put(String cacheName, Object key, Object value) {
+        entries(cacheName).put(key, value);
+    }
+
+    @Override
+    public void evict(String cacheName, Object key) {
+        entries(cacheName).remove(key);
+    }
+
+    @Override
+    public void clear(String cacheName) {
+        entries(cacheName).clear();
+    }
+
+    private Map<Object, Object> entries(String cacheName) {
+        return caches.computeIfAbsent(cacheName, name -> new ConcurrentHashMap<>());
+    }
+}
@@ -0,0 +1,19 @@
+package com.mthree.bankmthree.cache;
+
+/**
+ * Second-level cache shared by all application nodes, for example Redis or Hazelcast.
+ * Values are the caches' store values: Spring's {@code NullValue} stands for a cached null.
+ */
+public interface SharedCacheStore {
+
+    /**
+     * @return the stored value, or null when the key is absent
+     */
+    Object get(String cacheName, Object key);
+
+    void put(String cacheName, Object key, Object value);
+
+    void evict(String cacheName, Object key);
+
+    void clear(String cacheName);
+}
@@ -0,0 +1,115 @@
+package com.mthree.bankmthree.cache;
+
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Cache with an in-process Caffeine L1 in front of a {@link SharedCacheStore} L2.
+ * Reads try L1, then L2, then the value loader. Writes and evictions go to both tiers and are
+ * broadcast so that other nodes drop their L1 copy and read the new value from L2 on next access.
+ */
+public class TwoTierCache extends AbstractValueAdaptingCache {
+    private final String name;
+    private final com.github.benmanes.caffeine.cache.Cache<Object, Object> local;
+    private final SharedCacheStore shared;
+    private final CacheInvalidationBus invalidationBus;
+    private final String nodeId;
+
+    public TwoTierCache(String name,
+                        com.github.benmanes.caffeine.cache.Cache<Object, Object> local,
+                        SharedCacheStore shared,
+                        CacheInvalidationBus invalidationBus,
+                        String nodeId) {
+        super(true);
+        this.name = name;
+        this.local = local;
+        this.shared = shared;
+        this.invalidationBus = invalidationBus;
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    // Deliberately not the Caffeine map: in-place updates would bypass L2 and the other nodes
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        Object value = local.getIfPresent(key);
+        if (value == null) {
+            value = shared.get(name, key);
+            if (value != null) {
+                local.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        Object value = local.get(key, missingKey -> {
+            Object sharedValue = shared.get(name, missingKey);
+            if (sharedValue != null) {
+                return sharedValue;
+            }
+            Object loaded = toStoreValue(load(missingKey, valueLoader));
+            shared.put(name, missingKey, loaded);
+            return loaded;
+        });
+        return (T) fromStoreValue(value);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        shared.put(name, key, storeValue);
+        local.put(key, storeValue);
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, key));
+    }
+
+    @Override
+    public void evict(Object key) {
+        shared.evict(name, key);
+        local.invalidate(key);
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, key));
+    }
+
+    @Override
+    public void clear() {
+        shared.clear(name);
+        local.invalidateAll();
+        invalidationBus.publish(new CacheInvalidation(nodeId, name, null));
+    }
+
+    /**
+     * Drops the local copy named by an invalidation published by another node.
+     *
+     * @param invalidation the received invalidation message
+     */
+    void onInvalidation(CacheInvalidation invalidation) {
+        if (nodeId.equals(invalidation.nodeId()) || !name.equals(invalidation.cacheName())) {
+            return;
+        }
+        if (invalidation.key() == null) {
+            local.invalidateAll();
+        } else {
+            local.invalidate(invalidation.key());
+        }
+    }
+
+    private static <T> T load(Object key, Callable<T> valueLoader) {
+        try {
+            return valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+}
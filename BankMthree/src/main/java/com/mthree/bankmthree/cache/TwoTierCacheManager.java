@@ -0,0 +1,63 @@
+package com.mthree.bankmthree.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves the configured caches as {@link TwoTierCache}s whose L1 is the Caffeine cache of the
+ * wrapped manager, so size, expiry and statistics settings still apply to the local tier.
+ * Other caches are served by the wrapped manager unchanged.
+ */
+public class TwoTierCacheManager implements CacheManager {
+    private final CaffeineCacheManager localCacheManager;
+    private final SharedCacheStore sharedStore;
+    private final CacheInvalidationBus invalidationBus;
+    private final Set<String> twoTierCacheNames;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, TwoTierCache> twoTierCaches = new ConcurrentHashMap<>();
+
+    public TwoTierCacheManager(CaffeineCacheManager localCacheManager,
+                               SharedCacheStore sharedStore,
+                               CacheInvalidationBus invalidationBus,
+                               Collection<String> twoTierCacheNames) {
+        this.localCacheManager = localCacheManager;
+        this.sharedStore = sharedStore;
+        this.invalidationBus = invalidationBus;
+        this.twoTierCacheNames = new LinkedHashSet<>(twoTierCacheNames);
+        // Created up front so that invalidations reach every local tier, even one this node has not used yet
+        this.twoTierCacheNames.forEach(this::getCache);
+        invalidationBus.subscribe(invalidation -> {
+            TwoTierCache cache = twoTierCaches.get(invalidation.cacheName());
+            if (cache != null) {
+                cache.onInvalidation(invalidation);
+            }
+        });
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        if (!twoTierCacheNames.contains(name)) {
+            return localCacheManager.getCache(name);
+        }
+        return twoTierCaches.computeIfAbsent(name, cacheName -> {
+            CaffeineCache local = (CaffeineCache) localCacheManager.getCache(cacheName);
+            return new TwoTierCache(cacheName, local.getNativeCache(), sharedStore, invalidationBus, nodeId);
+        });
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        Set<String> names = new LinkedHashSet<>(localCacheManager.getCacheNames());
+        names.addAll(twoTierCacheNames);
+        return names;
+    }
+}
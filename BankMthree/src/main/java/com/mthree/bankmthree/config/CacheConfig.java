@@ -1,9 +1,97 @@
 package com.mthree.bankmthree.config;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import com.mthree.bankmthree.cache.CacheInvalidationBus;
+import com.mthree.bankmthree.cache.InMemoryCacheInvalidationBus;
+import com.mthree.bankmthree.cache.InMemorySharedCacheStore;
+import com.mthree.bankmthree.cache.SharedCacheStore;
+import com.mthree.bankmthree.cache.TwoTierCacheManager;
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bounded Caffeine caches with one policy per cache, each given as a Caffeine spec string
+ * ({@code cache.<name>.spec}) so size and expiry can be tuned without a rebuild.
+ * Statistics are recorded and published to Micrometer as {@code cache.gets}, {@code cache.evictions}, etc.
+ * With {@code cache.twoTier.enabled} the caches listed in {@code cache.twoTier.names} become the
+ * local tier of a {@link TwoTierCacheManager} shared between nodes.
+ */
+@Slf4j
 @Configuration
 @EnableCaching
 public class CacheConfig {
-}
\ No newline at end of file
+
+    @Bean
+    public CacheManager cacheManager(UserRepository userRepository,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${cache.default.spec:maximumSize=1000,expireAfterWrite=10m,recordStats}") String defaultSpec,
+                                     @Value("${cache.users.spec:maximumSize=10000,expireAfterWrite=15m,refreshAfterWrite=5m,recordStats}") String usersSpec,
+                                     @Value("${cache.accounts.spec:maximumSize=10000,expireAfterWrite=30m,recordStats}") String accountsSpec,
+                                     @Value("${cache.userAccounts.spec:maximumSize=10000,expireAfterAccess=10m,recordStats}") String userAccountsSpec,
+                                     @Value("${cache.transactionHistory.spec:maximumWeight=200000,expireAfterAccess=10m,recordStats}") String transactionHistorySpec,
+                                     @Value("${cache.userStatus.spec:maximumSize=100000,expireAfterWrite=30s,recordStats}") String userStatusSpec,
+                                     @Value("${cache.twoTier.enabled:false}") boolean twoTierEnabled,
+                                     @Value("${cache.twoTier.names:users,userAccounts,transactionHistory}") List<String> twoTierCacheNames,
+                                     ObjectProvider<SharedCacheStore> sharedCacheStore,
+                                     ObjectProvider<CacheInvalidationBus> cacheInvalidationBus) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeineSpec(CaffeineSpec.parse(defaultSpec));
+
+        // Refresh-ahead: a hot user is reloaded in the background once refreshAfterWrite passes,
+        // so readers keep getting the cached value instead of waiting on the database
+        Cache<Object, Object> users = Caffeine.from(usersSpec)
+                .build(username -> userRepository.findSnapshotByUsername((String) username).orElse(null));
+        register(cacheManager, meterRegistry, "users", users);
+        register(cacheManager, meterRegistry, "accounts", Caffeine.from(accountsSpec).build());
+        register(cacheManager, meterRegistry, "userAccounts", Caffeine.from(userAccountsSpec).build());
+        register(cacheManager, meterRegistry, "transactionHistory", withListWeigher(transactionHistorySpec).build());
+        // Bounds how long a suspended user's still-valid token keeps working
+        register(cacheManager, meterRegistry, "userStatus", Caffeine.from(userStatusSpec).build());
+
+        if (!twoTierEnabled) {
+            return cacheManager;
+        }
+        // Multi-node deployments provide SharedCacheStore and CacheInvalidationBus beans backed by the shared infrastructure;
+        // the in-process fallbacks only suit a single node, so falling back is logged loudly
+        return new TwoTierCacheManager(cacheManager,
+                sharedCacheStore.getIfAvailable(() -> {
+                    log.warn(MessageConstants.Logs.TWO_TIER_CACHE_IN_MEMORY, SharedCacheStore.class.getSimpleName());
+                    return new InMemorySharedCacheStore();
+                }),
+                cacheInvalidationBus.getIfAvailable(() -> {
+                    log.warn(MessageConstants.Logs.TWO_TIER_CACHE_IN_MEMORY, CacheInvalidationBus.class.getSimpleName());
+                    return new InMemoryCacheInvalidationBus();
+                }),
+                twoTierCacheNames);
+    }
+
+    private void register(CaffeineCacheManager cacheManager, MeterRegistry meterRegistry, String name,
+                          Cache<Object, Object> cache) {
+        cacheManager.registerCustomCache(name, cache);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+    }
+
+    // Histories vary from a few rows to thousands, so they are bounded by row count when the spec sets maximumWeight
+    private Caffeine<Object, Object> withListWeigher(String spec) {
+        Caffeine<Object, Object> builder = Caffeine.from(spec);
+        if (!spec.contains("maximumWeight")) {
+            return builder;
+        }
+        return builder.weigher((key, value) -> value instanceof Collection<?> rows ? rows.size() + 1 : 1);
+    }
+}
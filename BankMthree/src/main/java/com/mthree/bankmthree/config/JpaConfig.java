@@ -1,9 +1,32 @@
 package com.mthree.bankmthree.config;
 
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 
 @Configuration
 @EnableJpaAuditing
 public class JpaConfig {
+
+    /**
+     * Bounds InnoDB row lock waits to {@code transaction.lock.waitTimeoutSeconds} on every pooled connection.
+     * Hibernate's MySQL dialect ignores the JPA lock timeout hint, and setting the session variable per
+     * transaction would leak into whatever borrows the connection next, so it is set once when the pool
+     * opens the connection. An explicit {@code spring.datasource.hikari.connection-init-sql} is kept as configured.
+     */
+    @Bean
+    static BeanPostProcessor lockWaitTimeoutInitializer(@Value("${transaction.lock.waitTimeoutSeconds:3}") int lockWaitTimeoutSeconds) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource && dataSource.getConnectionInitSql() == null) {
+                    dataSource.setConnectionInitSql("SET SESSION innodb_lock_wait_timeout = " + lockWaitTimeoutSeconds);
+                }
+                return bean;
+            }
+        };
+    }
 }
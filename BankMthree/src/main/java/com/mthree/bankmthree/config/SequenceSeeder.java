@@ -0,0 +1,54 @@
+package com.mthree.bankmthree.config;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Moves the entity id sequences past the ids already stored. On MySQL Hibernate emulates each
+ * sequence with a {@code *_seq} table that starts at 1, while tables filled before the switch from
+ * IDENTITY hold auto-increment ids. Each stored value is raised to at least MAX(id) + the allocation
+ * size. Hibernate's pooled optimizer, used on every profile, reads the stored value as the end of the
+ * next id block, so the block starts above MAX(id). Values are only ever raised, so running on every
+ * start and on several nodes at once is safe.
+ */
+@Slf4j
+@Component
+@DependsOn("entityManagerFactory")
+public class SequenceSeeder {
+    // Sequence table -> entity table; allocationSize of every @SequenceGenerator on these tables
+    static final Map<String, String> SEQUENCES = Map.of(
+            "users_seq", "users",
+            "user_profiles_seq", "user_profiles",
+            "accounts_seq", "accounts",
+            "transactions_seq", "transactions",
+            "email_outbox_seq", "email_outbox");
+    static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SequenceSeeder(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Runs while the context starts, before the web server accepts requests that insert rows
+    @PostConstruct
+    void seed() {
+        SEQUENCES.forEach((sequence, table) -> {
+            try {
+                int updated = jdbcTemplate.update("UPDATE " + sequence + " SET next_val = GREATEST(next_val, " +
+                        "(SELECT COALESCE(MAX(id), 0) + " + ALLOCATION_SIZE + " FROM " + table + "))");
+                log.debug(MessageConstants.Logs.SEQUENCE_SEEDED, sequence, table, updated);
+            } catch (BadSqlGrammarException e) {
+                // Databases with native sequences have no sequence table, and nothing to seed
+                log.debug(MessageConstants.Logs.SEQUENCE_NOT_SEEDED, sequence, e.getMessage());
+            }
+        });
+    }
+}
@@ -37,6 +37,18 @@ public final class MessageConstants {
         public static final String INVALID_TRANSFER_AMOUNT = "Transfer amount must be positive";
         public static final String INSUFFICIENT_BALANCE = "Insufficient balance in sender's account";
         public static final String INVALID_CARD_NUMBER_FORMAT = "Invalid card number format";
+        public static final String INVALID_HISTORY_CURSOR = "Invalid transaction history cursor";
+
+        // **EmailService Specific Exception Messages**
+        public static final String EMAIL_PREPARATION_FAILED = "Failed to prepare transaction email for transaction %s";
+        public static final String OUTBOX_TRANSACTION_NOT_FOUND = "Transaction %s referenced by email outbox message %s not found";
+        public static final String OUTBOX_DIGEST_TRANSACTIONS_NOT_FOUND = "Transactions referenced by email outbox messages %s not found";
+        public static final String EMAIL_DIGEST_PREPARATION_FAILED = "Failed to prepare transaction digest email for transactions %s";
+        public static final String SMTP_SEND_FAILED = "Failed to send email through the SMTP server";
+
+        // **Attribute Encryption Exception Messages**
+        public static final String INVALID_ENCRYPTION_KEY = "Invalid attribute encryption key entry: %s";
+        public static final String UNKNOWN_ENCRYPTION_KEY = "Unknown attribute encryption key id: %s";
 
         // **Validation Exception Messages**
         public static final String VALIDATION_FAILED = "Validation failed for one or more fields.";
@@ -60,6 +72,8 @@ public final class MessageConstants {
         public static final String FETCHING_FAMILY_MEMBERS = "Fetching family members for user ID {}";
         public static final String FINDING_USER_BY_USERNAME = "Finding user by username: {}";
         public static final String CONVERTING_USERS_TO_DTO = "Converting users to DTOs.";
+        public static final String USER_FIELD_FILTERS_REBUILT = "Rebuilt user field Bloom filters from {} profiles in {} ms, estimated false positive rates {}";
+        public static final String USER_FIELD_FILTERS_REBUILD_FAILED = "Rebuilding user field Bloom filters failed, uniqueness checks will query the database: {}";
 
         // **AccountService Log Messages**
         public static final String CREATING_NEW_ACCOUNT = "Creating a new account for user {} with currency {}";
@@ -70,6 +84,9 @@ public final class MessageConstants {
         public static final String ACCOUNT_CLOSED_SUCCESSFULLY = "Account {} closed successfully";
         public static final String CLEAR_ALL_CACHES = "All caches for accounts have been cleared.";
         public static final String ACCOUNT_ALREADY_EXISTS = "Account with currency {} already exists.";
+        public static final String CARD_NUMBER_POOL_REFILLED = "Card number pool refilled with {} numbers in {} ms, {} available";
+        public static final String CARD_NUMBER_POOL_EXHAUSTED = "Card number pool is empty, generating {} card numbers inline";
+        public static final String CARD_NUMBER_POOL_REFILL_FAILED = "Refilling the card number pool failed: {}";
         // **TransactionService Log Messages**
         public static final String TRANSFER_STARTED = "Starting transfer from {} to {}";
         public static final String TRANSFER_COMPLETED = "Transfer from {} to {} completed successfully";
@@ -82,6 +99,52 @@ public final class MessageConstants {
         public static final String INVALID_CARD_NUMBER_FORMAT_LOG = "Invalid card number format: {}";
         public static final String CLEARING_CACHE_FOR_USER = "Clearing cache for user ID {}";
         public static final String SAME_ACCOUNT_TRANSFER_LOG = "Cannot transfer money to the same account.";
+        public static final String TRANSFER_RETRY = "Concurrent update on transfer attempt {} of {} ({} mode), retrying";
+        public static final String TRANSFER_RETRIES_EXHAUSTED = "Transfer failed after {} attempts ({} mode)";
+        public static final String BATCH_TRANSFER_STARTED = "Starting batch of {} transfers for user {}";
+        public static final String BATCH_TRANSFER_COMPLETED = "Batch of {} transfers for user {} processed";
+        public static final String BATCH_CHUNK_FAILED = "Batch transfer chunk {} rolled back: {}";
+
+        // **Email Outbox Log Messages**
+        public static final String OUTBOX_ENQUEUED = "Queued transaction email {} for transaction {}";
+        public static final String OUTBOX_SENT = "Sent transaction email {} on attempt {}";
+        public static final String OUTBOX_RETRY_SCHEDULED = "Transaction email {} failed on attempt {}, retrying at {}: {}";
+        public static final String OUTBOX_DEAD_LETTERED = "Transaction email {} moved to dead letter after {} attempts: {}";
+        public static final String OUTBOX_LEASES_RELEASED = "Released {} transaction emails left in progress by a stopped dispatcher";
+        public static final String OUTBOX_DIGEST_SENT = "Sent digest of {} transaction emails for user {}";
+        public static final String SMTP_CONNECTION_OPENED = "Opened SMTP connection to {} ({} open)";
+        public static final String SMTP_CONNECTION_RETRY = "Pooled SMTP connection was dropped, resending on a new one: {}";
+        public static final String FILE_RELOADED = "Loaded {} ({} bytes, modified {})";
+
+        // **Cache Log Messages**
+        public static final String TWO_TIER_CACHE_IN_MEMORY = "Two-tier caching is enabled but no {} bean is defined; " +
+                "using an in-process one, so caches are not shared or invalidated across nodes";
+
+        // **Id Sequence Log Messages**
+        public static final String SEQUENCE_SEEDED = "Seeded id sequence {} above MAX(id) of {} ({} rows)";
+        public static final String SEQUENCE_NOT_SEEDED = "Id sequence {} not seeded: {}";
+
+        // **Profile Encryption Backfill Log Messages**
+        public static final String PROFILE_BACKFILL_COMPLETED = "Encrypted and indexed {} user profiles stored before encryption in {} ms";
+        public static final String ENCRYPTED_COLUMN_WIDENED = "Widened user_profiles.{} to VARCHAR(512) for encrypted values";
+        public static final String ENCRYPTED_COLUMNS_NOT_WIDENED = "Encrypted user_profiles columns not checked for widening: {}";
+        public static final String PROFILE_BACKFILL_SKIPPED = "User profile {} not backfilled, its values cannot be decrypted: {}";
+
+        // **Key Rotation Log Messages**
+        public static final String KEY_ROTATION_STARTED = "Re-encrypting user profiles under key {} after id {}";
+        public static final String KEY_ROTATION_PROGRESS = "Key rotation: {} rows scanned, {} rewritten, {} skipped, last id {}, {} rows/s";
+        public static final String KEY_ROTATION_COMPLETED = "Key rotation finished: {} rows scanned, {} rewritten, {} skipped in {} ms";
+        public static final String KEY_ROTATION_ROW_UNENCRYPTED = "Key rotation skipped user profile {}: it holds values the startup backfill has not encrypted yet";
+        public static final String KEY_ROTATION_ROW_UNDECRYPTABLE = "Key rotation skipped user profile {}: {}";
+        public static final String KEY_ROTATION_FAILED = "Key rotation stopped after id {}, restart from there: {}";
+
+        // **Monthly Statement Log Messages**
+        public static final String STATEMENTS_STARTED = "Generating {} statements after account id {}";
+        public static final String STATEMENTS_PROGRESS = "Statements: {} accounts, {} written, {} skipped, {} failed, last id {}, {} accounts/s";
+        public static final String STATEMENTS_COMPLETED = "Statements for {} finished: {} written, {} skipped, {} failed, {} transactions in {} ms";
+        public static final String STATEMENTS_FAILED = "Statement run stopped after account id {}, restart from there: {}";
+        public static final String STATEMENTS_ALREADY_RUNNING = "Statement run for {} not started, another run is in progress";
+        public static final String STATEMENT_FAILED = "Statement for account {} failed: {}";
 
         // **General Log Messages**
         public static final String GENERAL_OPERATION_SUCCESS = "Operation {} completed successfully.";
@@ -50,7 +50,7 @@ public class AccountController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse> createAccount(@Valid @RequestBody AccountDTO accountDTO, @AuthenticationPrincipal UserDetails userDetails) {
         String username = userDetails.getUsername();
-        var user = userService.findByUsername(username);
+        var user = userService.findSnapshotByUsername(username);
         Account account = accountService.createAccount(user, accountDTO.getCurrency());
         AccountDTO createdAccountDTO = userMapper.toAccountDTO(account);
 
@@ -68,7 +68,7 @@ public class AccountController {
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse> getUserAccounts(@AuthenticationPrincipal UserDetails userDetails) {
         String username = userDetails.getUsername();
-        var user = userService.findByUsername(username);
+        var user = userService.findSnapshotByUsername(username);
         Set<AccountDTO> accountDTOs = accountService.getUserAccounts(user);
         return ResponseEntity.ok(new ApiResponse("Retrieved accounts successfully", accountDTOs));
     }
@@ -1,5 +1,7 @@
 package com.mthree.bankmthree.controller;
 
+import com.mthree.bankmthree.batch.KeyRotationJob;
+import com.mthree.bankmthree.batch.MonthlyStatementJob;
 import com.mthree.bankmthree.dto.transaction.TransactionResponse;
 import com.mthree.bankmthree.dto.transaction.TransferRequestByUserId;
 import com.mthree.bankmthree.entity.Transaction;
@@ -9,15 +11,20 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.time.YearMonth;
+
 /**
  * Controller class for handling administrative operations.
  * This includes transferring money between users with admin privileges.
@@ -29,11 +36,16 @@ public class AdminController {
 
     private final TransactionService transactionService;
     private final TransactionMapper transactionMapper;
+    private final KeyRotationJob keyRotationJob;
+    private final MonthlyStatementJob monthlyStatementJob;
 
     @Autowired
-    public AdminController(TransactionService transactionService, TransactionMapper transactionMapper) {
+    public AdminController(TransactionService transactionService, TransactionMapper transactionMapper, KeyRotationJob keyRotationJob,
+                           MonthlyStatementJob monthlyStatementJob) {
         this.transactionService = transactionService;
         this.transactionMapper = transactionMapper;
+        this.keyRotationJob = keyRotationJob;
+        this.monthlyStatementJob = monthlyStatementJob;
     }
 
     /**
@@ -59,6 +71,67 @@ public class AdminController {
         return ResponseEntity.ok(new ApiResponse("Administrator Transaction Successfully Completed", response));
     }
 
+    /**
+     * Starts re-encrypting user profiles under the active encryption key.
+     * Only accessible to users with the 'ADMIN' role.
+     *
+     * @param afterId the profile id to resume after; 0 re-encrypts every profile
+     * @return ResponseEntity with the initial progress, or 409 if a rotation is already running
+     */
+    @Operation(summary = "Re-encrypt user profiles under the active key")
+    @PostMapping("/keyRotation")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> startKeyRotation(@RequestParam(defaultValue = "0") long afterId) {
+        if (!keyRotationJob.start(afterId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse("Key rotation already running", keyRotationJob.getProgress()));
+        }
+        return ResponseEntity.accepted().body(new ApiResponse("Key rotation started", keyRotationJob.getProgress()));
+    }
+
+    /**
+     * Reports the progress of the current or last key rotation.
+     *
+     * @return ResponseEntity with rows scanned and rewritten, the last id and the throughput
+     */
+    @Operation(summary = "Get key rotation progress")
+    @GetMapping("/keyRotation")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> getKeyRotationProgress() {
+        return ResponseEntity.ok(new ApiResponse("Key rotation progress", keyRotationJob.getProgress()));
+    }
+
+    /**
+     * Starts generating monthly statement PDFs for every account.
+     * Only accessible to users with the 'ADMIN' role.
+     *
+     * @param month          the statement month, e.g. 2024-05; defaults to the previous month
+     * @param afterAccountId the account id to resume after; 0 covers every account
+     * @return ResponseEntity with the initial progress, or 409 if a run is already in progress
+     */
+    @Operation(summary = "Generate monthly statements")
+    @PostMapping("/statements")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> startStatements(@RequestParam(required = false) YearMonth month,
+                                                       @RequestParam(defaultValue = "0") long afterAccountId) {
+        YearMonth statementMonth = month != null ? month : YearMonth.now().minusMonths(1);
+        if (!monthlyStatementJob.start(statementMonth, afterAccountId)) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new ApiResponse("Statement run already running", monthlyStatementJob.getProgress()));
+        }
+        return ResponseEntity.accepted().body(new ApiResponse("Statement run started", monthlyStatementJob.getProgress()));
+    }
+
+    /**
+     * Reports the progress of the current or last statement run.
+     *
+     * @return ResponseEntity with accounts written, skipped and failed, the last account id and the throughput
+     */
+    @Operation(summary = "Get monthly statement progress")
+    @GetMapping("/statements")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> getStatementProgress() {
+        return ResponseEntity.ok(new ApiResponse("Statement run progress", monthlyStatementJob.getProgress()));
+    }
+
     private Transaction getTransaction(TransferRequestByUserId transferRequest, UserDetails userDetails) {
         return transactionService.transferMoneyBetweenUsers(
                 transferRequest.getSenderAccountId(),
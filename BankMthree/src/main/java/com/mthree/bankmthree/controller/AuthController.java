@@ -4,6 +4,7 @@ import com.mthree.bankmthree.dto.auth.LoginRequest;
 import com.mthree.bankmthree.dto.auth.LoginResponse;
 import com.mthree.bankmthree.dto.auth.RegisterRequest;
 import com.mthree.bankmthree.dto.user.UserDTO;
+import com.mthree.bankmthree.security.AuthenticatedUser;
 import com.mthree.bankmthree.security.JwtUtils;
 import com.mthree.bankmthree.service.UserService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -78,7 +79,7 @@ public class AuthController {
             Authentication authentication = authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
 
             // Generate JWT token for the authenticated user
-            String jwt = jwtUtils.generateJwtToken(loginRequest.getUsername());
+            String jwt = jwtUtils.generateJwtToken((AuthenticatedUser) authentication.getPrincipal());
 
             // Return a response indicating successful login and include the JWT token
             return ResponseEntity.ok(new ApiResponse("Login successful", new LoginResponse(jwt)));
@@ -1,5 +1,10 @@
 package com.mthree.bankmthree.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mthree.bankmthree.dto.transaction.BatchTransferRequest;
+import com.mthree.bankmthree.dto.transaction.BatchTransferResult;
+import com.mthree.bankmthree.dto.transaction.TransactionHistoryPage;
 import com.mthree.bankmthree.dto.transaction.TransactionResponse;
 import com.mthree.bankmthree.dto.transaction.TransferRequest;
 import com.mthree.bankmthree.dto.transaction.TransferRequestByUserId;
@@ -11,12 +16,16 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 /**
@@ -31,12 +40,15 @@ public class TransactionController {
     private final UserService userService;
     private final TransactionService transactionService;
     private final TransactionMapper transactionMapper;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public TransactionController(UserService userService, TransactionService transactionService, TransactionMapper transactionMapper) {
+    public TransactionController(UserService userService, TransactionService transactionService, TransactionMapper transactionMapper,
+                                 ObjectMapper objectMapper) {
         this.userService = userService;
         this.transactionService = transactionService;
         this.transactionMapper = transactionMapper;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -83,6 +95,27 @@ public class TransactionController {
         return ResponseEntity.ok(new ApiResponse("Transfer by card successful", response));
     }
 
+    /**
+     * Endpoint to apply many card transfers in one call, for payroll and settlement jobs.
+     * Only accessible to users with 'USER' or 'ADMIN' roles.
+     *
+     * @param batchRequest the list of transfers to apply, in order
+     * @param userDetails  the details of the authenticated user
+     * @return ResponseEntity containing one result per transfer, in request order
+     */
+    @Operation(summary = "Apply a batch of transfers between accounts using account numbers")
+    @PostMapping("/batch")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> transferBatch(
+            @Valid @RequestBody BatchTransferRequest batchRequest,
+            @AuthenticationPrincipal UserDetails userDetails) {
+
+        List<BatchTransferResult> results = transactionService.transferBatch(batchRequest.getTransfers(), userDetails.getUsername());
+
+        // Return the per-transfer results in a success response encapsulated in ApiResponse
+        return ResponseEntity.ok(new ApiResponse("Batch transfer processed", results));
+    }
+
     /**
      * Endpoint to get the transaction history for the authenticated user.
      * Only accessible to users with 'USER' or 'ADMIN' roles.
@@ -94,7 +127,7 @@ public class TransactionController {
     @GetMapping("/history")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse> getTransactionHistory(@AuthenticationPrincipal UserDetails userDetails) {
-        Long userId = userService.findByUsername(userDetails.getUsername()).getId();
+        Long userId = userService.findSnapshotByUsername(userDetails.getUsername()).id();
         List<TransactionResponse> history = transactionService.getTransactionHistory(userId);
         if (history.isEmpty()) {
             return ResponseEntity.ok(new ApiResponse("Transaction history retrieved successfully", "No transactions found"));
@@ -103,6 +136,57 @@ public class TransactionController {
         return ResponseEntity.ok(new ApiResponse("Transaction history retrieved successfully", history));
     }
 
+    /**
+     * Endpoint to get one page of the transaction history for the authenticated user, newest first.
+     * Pass the returned {@code nextCursor} to fetch the following page.
+     * Only accessible to users with 'USER' or 'ADMIN' roles.
+     *
+     * @param cursor      the cursor of the previous page, absent for the first page
+     * @param size        the page size, absent for the configured default
+     * @param userDetails the details of the authenticated user
+     * @return ResponseEntity containing the page of transactions and the next cursor
+     */
+    @Operation(summary = "Get a page of transaction history for the authenticated user")
+    @GetMapping("/history/page")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse> getTransactionHistoryPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Long userId = userService.findSnapshotByUsername(userDetails.getUsername()).id();
+        TransactionHistoryPage page = transactionService.getTransactionHistoryPage(userId, cursor, size);
+        return ResponseEntity.ok(new ApiResponse("Transaction history retrieved successfully", page));
+    }
+
+    /**
+     * Endpoint to stream the full transaction history for the authenticated user as a JSON array.
+     * Rows are written to the response as they are read, so the history is never held in memory.
+     * Only accessible to users with 'USER' or 'ADMIN' roles.
+     *
+     * @param userDetails the details of the authenticated user
+     * @return ResponseEntity whose body writes the transactions as they are read
+     */
+    @Operation(summary = "Stream the full transaction history for the authenticated user")
+    @GetMapping(value = "/history/stream", produces = MediaType.APPLICATION_JSON_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamTransactionHistory(@AuthenticationPrincipal UserDetails userDetails) {
+        Long userId = userService.findSnapshotByUsername(userDetails.getUsername()).id();
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                transactionService.streamTransactionHistory(userId, response -> {
+                    try {
+                        generator.writeObject(response);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
     // Private helper methods for transaction response handling
     private TransactionResponse getTransactionResponse(TransferRequestByUserId transferRequest, UserDetails userDetails) {
         Transaction transaction = transactionService.transferMoneyBetweenUsers(
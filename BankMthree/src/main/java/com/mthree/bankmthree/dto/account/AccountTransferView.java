@@ -0,0 +1,10 @@
+package com.mthree.bankmthree.dto.account;
+
+import com.mthree.bankmthree.entity.enums.CurrencyType;
+
+/**
+ * Read-only projection of the account columns a transfer needs for validation,
+ * loaded without hydrating the Account and User entities.
+ */
+public record AccountTransferView(Long id, String cardNumber, CurrencyType currency, Long userId, String username) {
+}
@@ -0,0 +1,31 @@
+package com.mthree.bankmthree.dto.transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Outcome of one item of a batch transfer, reported at the item's position in the request.
+ */
+@Setter
+@Getter
+@AllArgsConstructor
+public class BatchTransferResult {
+    private int index;
+    private Status status;
+    private Long transactionId;
+    private String error;
+
+    public enum Status {
+        SUCCESS,
+        FAILED
+    }
+
+    public static BatchTransferResult success(int index, Long transactionId) {
+        return new BatchTransferResult(index, Status.SUCCESS, transactionId, null);
+    }
+
+    public static BatchTransferResult failed(int index, String error) {
+        return new BatchTransferResult(index, Status.FAILED, null, error);
+    }
+}
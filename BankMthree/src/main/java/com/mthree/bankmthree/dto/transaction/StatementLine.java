@@ -0,0 +1,12 @@
+package com.mthree.bankmthree.dto.transaction;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One transaction on an account statement. {@code senderAccountId} tells whether the money left
+ * the account or came in.
+ */
+public record StatementLine(Long id, LocalDateTime timestamp, Long senderAccountId, String senderCardNumber,
+                            String receiverCardNumber, BigDecimal amount) {
+}
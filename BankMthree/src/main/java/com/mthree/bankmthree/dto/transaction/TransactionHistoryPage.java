@@ -0,0 +1,17 @@
+package com.mthree.bankmthree.dto.transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a transaction history, newest first. {@code nextCursor} is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionHistoryPage {
+    private List<TransactionResponse> items;
+    private String nextCursor;
+    private boolean hasMore;
+}
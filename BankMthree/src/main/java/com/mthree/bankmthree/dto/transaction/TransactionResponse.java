@@ -1,5 +1,6 @@
 package com.mthree.bankmthree.dto.transaction;
 
+import com.mthree.bankmthree.entity.enums.CurrencyType;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -20,4 +21,12 @@ public class TransactionResponse {
     private String currency;
     private BigDecimal balanceAfter;
     private LocalDateTime timestamp;
+
+    // Used by JPQL constructor expressions, which select the currency enum rather than its name
+    public TransactionResponse(Long transactionId, Long senderAccountId, String senderCardNumber, Long receiverAccountId,
+                               String receiverCardNumber, BigDecimal amount, CurrencyType currency, BigDecimal balanceAfter,
+                               LocalDateTime timestamp) {
+        this(transactionId, senderAccountId, senderCardNumber, receiverAccountId, receiverCardNumber, amount,
+                currency != null ? currency.toString() : null, balanceAfter, timestamp);
+    }
 }
\ No newline at end of file
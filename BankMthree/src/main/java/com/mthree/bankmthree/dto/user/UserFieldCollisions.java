@@ -0,0 +1,25 @@
+package com.mthree.bankmthree.dto.user;
+
+import java.util.List;
+
+/**
+ * Which registration fields are already taken. Each row returned by the collision query describes
+ * one existing profile; {@link #merge} combines them.
+ */
+public record UserFieldCollisions(boolean username, boolean email, boolean ssn, boolean phone) {
+
+    public static UserFieldCollisions merge(List<UserFieldCollisions> rows) {
+        boolean username = false, email = false, ssn = false, phone = false;
+        for (UserFieldCollisions row : rows) {
+            username |= row.username();
+            email |= row.email();
+            ssn |= row.ssn();
+            phone |= row.phone();
+        }
+        return new UserFieldCollisions(username, email, ssn, phone);
+    }
+
+    public boolean none() {
+        return !(username || email || ssn || phone);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mthree.bankmthree.dto.user;
+
+import com.mthree.bankmthree.entity.enums.Role;
+import com.mthree.bankmthree.entity.enums.Status;
+import com.mthree.bankmthree.entity.enums.UserType;
+
+import java.io.Serializable;
+
+/**
+ * Immutable view of the user fields needed on hot paths (authorization checks and id lookups).
+ * Cached in place of the {@code User} entity, so a cache hit never touches the persistence
+ * context or its lazy collections and can be shared safely between threads and nodes.
+ */
+public record UserSnapshot(Long id, String username, Role role, Status status, UserType type) implements Serializable {
+
+    public boolean isAdmin() {
+        return role == Role.ROLE_ADMIN;
+    }
+}
@@ -4,6 +4,7 @@ import com.mthree.bankmthree.entity.enums.CurrencyType;
 import com.mthree.bankmthree.listener.AccountEntityListener;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -20,7 +21,8 @@ import java.util.Set;
 @Builder
 public class Account {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = 50)
     Long id;
     @Column(nullable = false)
     private LocalDate creationDate;
@@ -31,6 +33,10 @@ public class Account {
     private CurrencyType currency;
     @Column(nullable = false)
     private BigDecimal balance;
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version; // Optimistic concurrency check for balance updates
     @ToString.Exclude
     @Column(name = "card_number", nullable = false, unique = true, length = 16)
     private String cardNumber;
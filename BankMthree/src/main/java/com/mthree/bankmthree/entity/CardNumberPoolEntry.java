@@ -0,0 +1,27 @@
+package com.mthree.bankmthree.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Pre-generated, Luhn-valid card number that no account uses yet. Rows are inserted in batches by
+ * the pool refiller and deleted when an account claims them.
+ */
+@Entity
+@Table(name = "card_number_pool")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardNumberPoolEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY) // Rows are only written by JDBC batch inserts
+    private Long id;
+    @ToString.Exclude
+    @Column(name = "card_number", nullable = false, unique = true, length = 16)
+    private String cardNumber;
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package com.mthree.bankmthree.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Cluster-wide counter behind permuted card numbers. Nodes lease blocks of values by advancing
+ * {@code nextValue}, so they allocate from memory and only touch this row once per block.
+ */
+@Entity
+@Table(name = "card_number_sequence")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class CardNumberSequence {
+    @Id
+    @Column(length = 32)
+    private String name;
+    @Column(name = "next_value", nullable = false)
+    private long nextValue;
+}
@@ -0,0 +1,42 @@
+package com.mthree.bankmthree.entity;
+
+import com.mthree.bankmthree.entity.enums.OutboxStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Transaction email waiting to be sent. Rows are written in the same database transaction as the
+ * transfer and delivered after commit, so mail failures never roll back a money movement.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at"),
+        @Index(name = "idx_email_outbox_user_status", columnList = "user_id, status")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutbox {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_seq")
+    @SequenceGenerator(name = "email_outbox_seq", sequenceName = "email_outbox_seq", allocationSize = 50)
+    private Long id;
+    @Column(name = "transaction_id", nullable = false)
+    private Long transactionId;
+    @Column(name = "user_id")
+    private Long userId; // User the email is about; digests group pending messages on it
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private OutboxStatus status;
+    @Column(nullable = false)
+    private int attempts;
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt; // Earliest retry time, or the lease expiry while PROCESSING
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+}
@@ -9,12 +9,19 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_sender_timestamp", columnList = "sender_id, timestamp, id"),
+        @Index(name = "idx_transactions_receiver_timestamp", columnList = "receiver_id, timestamp, id"),
+        @Index(name = "idx_transactions_sender_account_timestamp", columnList = "sender_account_id, timestamp, id"),
+        @Index(name = "idx_transactions_receiver_account_timestamp", columnList = "receiver_account_id, timestamp, id")
+})
 @EntityListeners(TransactionListener.class)
 @Data
 public class Transaction {
+    // A sequence (a table on MySQL) lets Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_seq")
+    @SequenceGenerator(name = "transactions_seq", sequenceName = "transactions_seq", allocationSize = 50)
     private Long id;
 
     private BigDecimal amount;
@@ -1,5 +1,7 @@
 package com.mthree.bankmthree.entity;
 
+import com.mthree.bankmthree.listener.UserProfileBlindIndexListener;
+import com.mthree.bankmthree.util.AttributeEncryptor;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -10,7 +12,13 @@ import java.io.Serializable;
 
 
 @Entity
-@Table(name = "user_profiles")
+@Table(name = "user_profiles", uniqueConstraints = {
+        @UniqueConstraint(name = "unique_username", columnNames = "username"),
+        @UniqueConstraint(name = "unique_email", columnNames = "email_index"),
+        @UniqueConstraint(name = "unique_phone", columnNames = "phone_index"),
+        @UniqueConstraint(name = "unique_ssn", columnNames = "ssn_index")
+})
+@EntityListeners(UserProfileBlindIndexListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -18,10 +26,11 @@ import java.io.Serializable;
 public class UserProfile implements Serializable {
     /**
      * Primary key for the User entity.
-     * Automatically generated using the IDENTITY strategy.
+     * Generated from a pooled sequence so that inserts can be batched.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_profiles_seq")
+    @SequenceGenerator(name = "user_profiles_seq", sequenceName = "user_profiles_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -29,7 +38,7 @@ public class UserProfile implements Serializable {
      * Must be unique and cannot be null or blank.
      */
     @NotBlank(message = "Username is required")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
 
     /**
@@ -58,17 +67,21 @@ public class UserProfile implements Serializable {
     /**
      * User's unique email address.
      * Must be a valid email format, unique, and cannot be null or blank.
+     * Encrypted at rest; uniqueness is enforced on {@link #emailIndex}.
      */
     @Email(message = "Invalid email format")
     @NotBlank(message = "Email is required")
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false, length = 512)
+    @Convert(converter = AttributeEncryptor.class)
     private String email;
     /**
      * User's phone number.
      * Must consist of 10 to 15 digits.
      * Must be unique if provided.
+     * Encrypted at rest; uniqueness is enforced on {@link #phoneIndex}.
      */
-    @Column(unique = true)
+    @Column(length = 512)
+    @Convert(converter = AttributeEncryptor.class)
     @NotBlank(message = "Phone number is required")
     private String phone;
 
@@ -76,10 +89,31 @@ public class UserProfile implements Serializable {
      * User's Social Security Number (SSN).
      * Must be unique and cannot be null or blank.
      * Excluded from generated toString() and equals/hashCode() methods for security reasons.
+     * Encrypted at rest; uniqueness is enforced on {@link #ssnIndex}.
      */
     @NotBlank(message = "SSN is required")
-    @Column(name = "ssn", nullable = false, unique = true)
+    @Column(name = "ssn", nullable = false, length = 512)
+    @Convert(converter = AttributeEncryptor.class)
     @ToString.Exclude
     @EqualsAndHashCode.Exclude
     private String ssn;
-}
\ No newline at end of file
+
+    /**
+     * Blind indexes of the encrypted fields: keyed HMACs of the normalized values, maintained by
+     * {@link UserProfileBlindIndexListener}. Equality lookups and unique constraints use these columns.
+     */
+    @Column(name = "email_index", length = 64)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String emailIndex;
+
+    @Column(name = "phone_index", length = 64)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String phoneIndex;
+
+    @Column(name = "ssn_index", length = 64)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private String ssnIndex;
+}
@@ -0,0 +1,8 @@
+package com.mthree.bankmthree.entity.enums;
+
+public enum OutboxStatus {
+    PENDING,
+    PROCESSING,
+    SENT,
+    DEAD
+}
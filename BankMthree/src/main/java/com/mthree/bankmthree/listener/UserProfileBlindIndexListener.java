@@ -0,0 +1,28 @@
+package com.mthree.bankmthree.listener;
+
+import com.mthree.bankmthree.entity.UserProfile;
+import com.mthree.bankmthree.util.BlindIndexer;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Recomputes the blind indexes of a {@link UserProfile} from its plaintext fields before every
+ * insert and update, so they cannot drift from the encrypted values.
+ */
+@Component
+public class UserProfileBlindIndexListener {
+    private final BlindIndexer blindIndexer;
+
+    public UserProfileBlindIndexListener(BlindIndexer blindIndexer) {
+        this.blindIndexer = blindIndexer;
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void updateBlindIndexes(UserProfile profile) {
+        profile.setEmailIndex(blindIndexer.emailIndex(profile.getEmail()));
+        profile.setPhoneIndex(blindIndexer.phoneIndex(profile.getPhone()));
+        profile.setSsnIndex(blindIndexer.ssnIndex(profile.getSsn()));
+    }
+}
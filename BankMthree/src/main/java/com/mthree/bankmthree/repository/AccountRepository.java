@@ -1,21 +1,68 @@
 package com.mthree.bankmthree.repository;
 
+import com.mthree.bankmthree.dto.account.AccountTransferView;
 import com.mthree.bankmthree.entity.Account;
-import com.mthree.bankmthree.entity.User;
 import com.mthree.bankmthree.entity.enums.CurrencyType;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
     boolean existsByCardNumber(String cardNumber);
 
+    // Checks a whole batch of candidate card numbers in one round trip
+    @Query("SELECT a.cardNumber FROM Account a WHERE a.cardNumber IN :cardNumbers")
+    List<String> findCardNumbersIn(@Param("cardNumbers") Collection<String> cardNumbers);
+
     Optional<Account> findByCardNumber(String cardNumber);
 
     Optional<Account> findByCardNumberAndUser_Profile_Username(String cardNumber, String username);
 
-    boolean existsByUserAndCurrency(User user, CurrencyType currency);
+    boolean existsByUser_IdAndCurrency(Long userId, CurrencyType currency);
+
+    Set<Account> findByUser_Id(Long userId);
+
+    // Resolves the primary key only, so transfers can lock rows in id order before loading them
+    @Query("SELECT a.id FROM Account a WHERE a.cardNumber = :cardNumber")
+    Optional<Long> findIdByCardNumber(@Param("cardNumber") String cardNumber);
+
+    // SELECT ... FOR UPDATE; callers must lock accounts in ascending id order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+    // Locks a whole set of rows with one statement in ascending id order, without loading the entities
+    @Query(value = "SELECT id FROM accounts WHERE id IN (:ids) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockAllByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT new com.mthree.bankmthree.dto.account.AccountTransferView(a.id, a.cardNumber, a.currency, u.id, p.username) " +
+            "FROM Account a JOIN a.user u JOIN u.profile p WHERE a.cardNumber IN :cardNumbers")
+    List<AccountTransferView> findTransferViewsByCardNumberIn(@Param("cardNumbers") Collection<String> cardNumbers);
+
+    @Query("SELECT new com.mthree.bankmthree.dto.account.AccountTransferView(a.id, a.cardNumber, a.currency, u.id, p.username) " +
+            "FROM Account a JOIN a.user u JOIN u.profile p WHERE a.id IN :ids")
+    List<AccountTransferView> findTransferViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Debits only when the balance covers the amount; 0 updated rows means insufficient funds
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.version = a.version + 1 WHERE a.id = :id AND a.balance >= :amount")
+    int debitIfSufficientFunds(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    // Unchecked debit for administrator transfers, which may overdraw an account
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance - :amount, a.version = a.version + 1 WHERE a.id = :id")
+    int debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
 
-    Set<Account> findByUser(User user);
-}
\ No newline at end of file
+    @Modifying
+    @Query("UPDATE Account a SET a.balance = a.balance + :amount, a.version = a.version + 1 WHERE a.id = :id")
+    int credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+}
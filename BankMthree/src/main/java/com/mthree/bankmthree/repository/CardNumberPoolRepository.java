@@ -0,0 +1,21 @@
+package com.mthree.bankmthree.repository;
+
+import com.mthree.bankmthree.entity.CardNumberPoolEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface CardNumberPoolRepository extends JpaRepository<CardNumberPoolEntry, Long> {
+
+    // Concurrent claimers skip each other's locked rows instead of waiting, so each gets different numbers
+    @Query(value = "SELECT card_number FROM card_number_pool ORDER BY id LIMIT :count FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> lockAvailable(@Param("count") int count);
+
+    @Modifying
+    @Query("DELETE FROM CardNumberPoolEntry e WHERE e.cardNumber IN :cardNumbers")
+    int deleteByCardNumberIn(@Param("cardNumbers") Collection<String> cardNumbers);
+}
@@ -0,0 +1,54 @@
+package com.mthree.bankmthree.repository;
+
+import com.mthree.bankmthree.entity.EmailOutbox;
+import com.mthree.bankmthree.entity.enums.OutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    @Query("SELECT o.id FROM EmailOutbox o WHERE o.status = :status AND o.nextAttemptAt <= :now ORDER BY o.id")
+    List<Long> findDueIds(@Param("status") OutboxStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT o FROM EmailOutbox o WHERE o.status = :status AND o.nextAttemptAt <= :now ORDER BY o.id")
+    List<EmailOutbox> findDue(@Param("status") OutboxStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Everything still buffered for a user, due or not, so one digest covers the whole window; messages
+    // waiting out a retry backoff stay out until they are due. The rows stay locked until commit, and rows
+    // locked by another dispatcher are skipped
+    @Query(value = "SELECT id FROM email_outbox WHERE user_id = :userId AND status = 'PENDING' " +
+            "AND (attempts = 0 OR next_attempt_at <= :now) ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> lockPendingIdsByUser(@Param("userId") Long userId, @Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Claims a pending message for one dispatcher; 0 updated rows means another node or thread got it first
+    @Modifying
+    @Query("UPDATE EmailOutbox o SET o.status = :processing, o.attempts = o.attempts + 1, o.nextAttemptAt = :leaseUntil " +
+            "WHERE o.id = :id AND o.status = :pending")
+    int claim(@Param("id") Long id,
+              @Param("pending") OutboxStatus pending,
+              @Param("processing") OutboxStatus processing,
+              @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Claims several pending messages in one statement; callers hold their row locks, so all of them are claimed
+    @Modifying
+    @Query("UPDATE EmailOutbox o SET o.status = :processing, o.attempts = o.attempts + 1, o.nextAttemptAt = :leaseUntil " +
+            "WHERE o.id IN :ids AND o.status = :pending")
+    int claimAll(@Param("ids") Collection<Long> ids,
+                 @Param("pending") OutboxStatus pending,
+                 @Param("processing") OutboxStatus processing,
+                 @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Returns messages whose dispatcher died mid-send to the pending queue once their lease has expired
+    @Modifying
+    @Query("UPDATE EmailOutbox o SET o.status = :pending WHERE o.status = :processing AND o.nextAttemptAt < :now")
+    int releaseExpiredLeases(@Param("pending") OutboxStatus pending,
+                             @Param("processing") OutboxStatus processing,
+                             @Param("now") LocalDateTime now);
+}
@@ -1,17 +1,139 @@
 package com.mthree.bankmthree.repository;
 
+import com.mthree.bankmthree.dto.transaction.StatementLine;
+import com.mthree.bankmthree.dto.transaction.TransactionResponse;
 import com.mthree.bankmthree.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+    // Selects the history rows straight into the response DTO, so no entity or eager association is loaded
+    String HISTORY_SELECT = "SELECT new com.mthree.bankmthree.dto.transaction.TransactionResponse(" +
+            "t.id, sa.id, sa.cardNumber, ra.id, ra.cardNumber, t.amount, sa.currency, sa.balance, t.timestamp) " +
+            "FROM Transaction t LEFT JOIN t.senderAccount sa LEFT JOIN t.receiverAccount ra ";
+    // Each side of a paged query filters on a single column, so it reads its (party, timestamp, id) index in
+    // order and stops at the limit; an OR of both columns makes MySQL merge the indexes and sort every row
+    String HISTORY_SENT = HISTORY_SELECT + "WHERE t.sender.id = :userId ";
+    String HISTORY_RECEIVED = HISTORY_SELECT + "WHERE t.receiver.id = :userId ";
+    String HISTORY_AFTER = "AND (t.timestamp < :timestamp OR (t.timestamp = :timestamp AND t.id < :id)) ";
+    String HISTORY_ORDER = "ORDER BY t.timestamp DESC, t.id DESC";
+    Comparator<TransactionResponse> HISTORY_NEWEST_FIRST = Comparator
+            .comparing(TransactionResponse::getTimestamp, Comparator.reverseOrder())
+            .thenComparing(TransactionResponse::getTransactionId, Comparator.reverseOrder());
+    String STATEMENT_SELECT = "SELECT new com.mthree.bankmthree.dto.transaction.StatementLine(" +
+            "t.id, t.timestamp, sa.id, sa.cardNumber, ra.cardNumber, t.amount) " +
+            "FROM Transaction t LEFT JOIN t.senderAccount sa LEFT JOIN t.receiverAccount ra ";
+    String STATEMENT_AFTER = "AND t.timestamp >= :from AND t.timestamp < :to " +
+            "AND (t.timestamp > :timestamp OR (t.timestamp = :timestamp AND t.id > :id)) ORDER BY t.timestamp, t.id";
+    Comparator<StatementLine> STATEMENT_OLDEST_FIRST = Comparator
+            .comparing(StatementLine::timestamp)
+            .thenComparing(StatementLine::id);
+
     // Original method to find transactions by sender or receiver IDs
     List<Transaction> findBySenderIdOrReceiverIdOrderByTimestampDesc(Long senderId, Long receiverId);
 
     // New method to find transactions by user ID (sender or receiver)
     @Query("SELECT t FROM Transaction t WHERE t.sender.id = :userId OR t.receiver.id = :userId ORDER BY t.timestamp DESC")
     List<Transaction> findByUserIdOrderByTimestampDesc(@Param("userId") Long userId);
-}
\ No newline at end of file
+
+    // Loads everything a receipt shows in one query, so it can be rendered after the transaction has ended
+    @Query("SELECT t FROM Transaction t JOIN FETCH t.sender s JOIN FETCH s.profile JOIN FETCH t.receiver r JOIN FETCH r.profile " +
+            "JOIN FETCH t.senderAccount JOIN FETCH t.receiverAccount WHERE t.id IN :ids")
+    List<Transaction> findWithPartiesByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(HISTORY_SENT + HISTORY_ORDER)
+    List<TransactionResponse> findSentHistoryFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(HISTORY_RECEIVED + HISTORY_ORDER)
+    List<TransactionResponse> findReceivedHistoryFirstPage(@Param("userId") Long userId, Pageable pageable);
+
+    @Query(HISTORY_SENT + HISTORY_AFTER + HISTORY_ORDER)
+    List<TransactionResponse> findSentHistoryPageAfter(@Param("userId") Long userId,
+                                                       @Param("timestamp") LocalDateTime timestamp,
+                                                       @Param("id") Long id,
+                                                       Pageable pageable);
+
+    @Query(HISTORY_RECEIVED + HISTORY_AFTER + HISTORY_ORDER)
+    List<TransactionResponse> findReceivedHistoryPageAfter(@Param("userId") Long userId,
+                                                           @Param("timestamp") LocalDateTime timestamp,
+                                                           @Param("id") Long id,
+                                                           Pageable pageable);
+
+    @Query(STATEMENT_SELECT + "WHERE sa.id = :accountId " + STATEMENT_AFTER)
+    List<StatementLine> findSentStatementPageAfter(@Param("accountId") Long accountId,
+                                                   @Param("from") LocalDateTime from,
+                                                   @Param("to") LocalDateTime to,
+                                                   @Param("timestamp") LocalDateTime timestamp,
+                                                   @Param("id") Long id,
+                                                   Pageable pageable);
+
+    @Query(STATEMENT_SELECT + "WHERE ra.id = :accountId " + STATEMENT_AFTER)
+    List<StatementLine> findReceivedStatementPageAfter(@Param("accountId") Long accountId,
+                                                       @Param("from") LocalDateTime from,
+                                                       @Param("to") LocalDateTime to,
+                                                       @Param("timestamp") LocalDateTime timestamp,
+                                                       @Param("id") Long id,
+                                                       Pageable pageable);
+
+    // First page of a user's history in (timestamp DESC, id DESC) order
+    default List<TransactionResponse> findHistoryFirstPage(Long userId, Pageable pageable) {
+        return merge(findSentHistoryFirstPage(userId, pageable), findReceivedHistoryFirstPage(userId, pageable),
+                HISTORY_NEWEST_FIRST, TransactionResponse::getTransactionId, pageable.getPageSize());
+    }
+
+    // Keyset page: rows strictly after the cursor in (timestamp DESC, id DESC) order, independent of the page number
+    default List<TransactionResponse> findHistoryPageAfter(Long userId, LocalDateTime timestamp, Long id, Pageable pageable) {
+        return merge(findSentHistoryPageAfter(userId, timestamp, id, pageable),
+                findReceivedHistoryPageAfter(userId, timestamp, id, pageable),
+                HISTORY_NEWEST_FIRST, TransactionResponse::getTransactionId, pageable.getPageSize());
+    }
+
+    // Keyset page of an account's transactions in [from, to), after the cursor in (timestamp, id) order;
+    // start with the cursor (from, 0)
+    default List<StatementLine> findStatementPageAfter(Long accountId, LocalDateTime from, LocalDateTime to,
+                                                       LocalDateTime timestamp, Long id, Pageable pageable) {
+        return merge(findSentStatementPageAfter(accountId, from, to, timestamp, id, pageable),
+                findReceivedStatementPageAfter(accountId, from, to, timestamp, id, pageable),
+                STATEMENT_OLDEST_FIRST, StatementLine::id, pageable.getPageSize());
+    }
+
+    // Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time instead of buffering the result set
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(HISTORY_SELECT + "WHERE t.sender.id = :userId OR t.receiver.id = :userId " + HISTORY_ORDER)
+    Stream<TransactionResponse> streamHistory(@Param("userId") Long userId);
+
+    /**
+     * Merges two pages that are each sorted by {@code order} into one page of at most {@code limit} rows.
+     * A transaction between two accounts of the same party is on both sides and is kept once.
+     */
+    private static <T> List<T> merge(List<T> first, List<T> second, Comparator<T> order, Function<T, Long> id, int limit) {
+        List<T> merged = new ArrayList<>(Math.min(limit, first.size() + second.size()));
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < first.size() || j < second.size())) {
+            T next;
+            if (j >= second.size() || (i < first.size() && order.compare(first.get(i), second.get(j)) <= 0)) {
+                next = first.get(i++);
+            } else {
+                next = second.get(j++);
+            }
+            if (merged.isEmpty() || !id.apply(merged.get(merged.size() - 1)).equals(id.apply(next))) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+}
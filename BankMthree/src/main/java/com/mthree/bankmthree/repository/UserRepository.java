@@ -1,6 +1,9 @@
 package com.mthree.bankmthree.repository;
 
+import com.mthree.bankmthree.dto.user.UserFieldCollisions;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
 import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.entity.enums.Status;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -11,13 +14,35 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByProfile_Username(String username);
 
-    boolean existsByProfile_Username(String username);
+    // Reads only the snapshot columns, so no entity is attached to the persistence context
+    @Query("SELECT new com.mthree.bankmthree.dto.user.UserSnapshot(u.id, p.username, u.role, u.status, u.type) " +
+            "FROM User u JOIN u.profile p WHERE p.username = :username")
+    Optional<UserSnapshot> findSnapshotByUsername(@Param("username") String username);
 
-    boolean existsByProfile_Email(String email);
+    @Query("SELECT u.status FROM User u WHERE u.id = :id")
+    Optional<Status> findStatusById(@Param("id") Long id);
 
-    boolean existsByProfile_Ssn(String ssn);
+    boolean existsByProfile_Username(String username);
 
-    boolean existsByProfile_Phone(String phone);
+    // Encrypted fields are looked up by their blind index, see BlindIndexer
+    boolean existsByProfile_EmailIndex(String emailIndex);
+
+    boolean existsByProfile_SsnIndex(String ssnIndex);
+
+    boolean existsByProfile_PhoneIndex(String phoneIndex);
+
+    // One round trip for all registration uniqueness checks; each OR arm can use its unique index
+    @Query("SELECT new com.mthree.bankmthree.dto.user.UserFieldCollisions(" +
+            "CASE WHEN p.username = :username THEN true ELSE false END, " +
+            "CASE WHEN p.emailIndex = :emailIndex THEN true ELSE false END, " +
+            "CASE WHEN p.ssnIndex = :ssnIndex THEN true ELSE false END, " +
+            "CASE WHEN p.phoneIndex = :phoneIndex THEN true ELSE false END) " +
+            "FROM UserProfile p " +
+            "WHERE p.username = :username OR p.emailIndex = :emailIndex OR p.ssnIndex = :ssnIndex OR p.phoneIndex = :phoneIndex")
+    List<UserFieldCollisions> findFieldCollisions(@Param("username") String username,
+                                                  @Param("emailIndex") String emailIndex,
+                                                  @Param("ssnIndex") String ssnIndex,
+                                                  @Param("phoneIndex") String phoneIndex);
 
     @Query("SELECT u FROM User u JOIN u.family f WHERE f.id = :familyMemberId")
     List<User> findUsersByFamilyMemberId(@Param("familyMemberId") Long familyMemberId);
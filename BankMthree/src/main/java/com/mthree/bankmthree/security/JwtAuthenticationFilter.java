@@ -1,5 +1,6 @@
 package com.mthree.bankmthree.security;
 
+import com.mthree.bankmthree.entity.enums.Status;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -20,22 +21,22 @@ import java.io.IOException;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtUtils jwtUtils;
     private final UserDetailsService userDetailsService;
+    private final UserStatusProvider userStatusProvider;
 
     @Autowired
-    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtUtils jwtUtils, UserDetailsService userDetailsService, UserStatusProvider userStatusProvider) {
         this.jwtUtils = jwtUtils;
         this.userDetailsService = userDetailsService;
+        this.userStatusProvider = userStatusProvider;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUsernameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
+            VerifiedJwt token = jwt != null ? jwtUtils.verify(jwt) : null;
+            UserDetails userDetails = token != null ? resolveUser(token) : null;
+            if (userDetails != null) {
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
 
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -48,6 +49,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    /**
+     * Builds the principal from the token claims, checking only the cached user status.
+     * Tokens without the claims fall back to loading the user until they expire.
+     *
+     * @return the principal, or null if the user is no longer active
+     */
+    private UserDetails resolveUser(VerifiedJwt token) {
+        if (token.hasUserClaims()) {
+            return userStatusProvider.findStatus(token.userId()) == Status.ACTIVE ? token.toPrincipal() : null;
+        }
+        UserDetails userDetails = userDetailsService.loadUserByUsername(token.username());
+        return userDetails.isEnabled() ? userDetails : null;
+    }
+
     private String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
@@ -2,16 +2,32 @@ package com.mthree.bankmthree.security;
 
 import com.auth0.jwt.JWT;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.auth0.jwt.interfaces.JWTVerifier;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.mthree.bankmthree.entity.enums.Role;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
+import java.util.HexFormat;
 
+@Slf4j
 @Component
 public class JwtUtils {
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
 
     @Value("${jwt.secret}")
     private String jwtSecret;
@@ -19,36 +35,87 @@ public class JwtUtils {
     @Value("${jwt.expiration}")
     private long jwtExpirationMs;
 
+    @Value("${jwt.verifiedCache.maximumSize:10000}")
+    private long verifiedCacheMaximumSize;
+
     private Algorithm algorithm;
     private JWTVerifier verifier;
+    // Keyed by a SHA-256 digest so raw tokens are not kept on the heap; each entry expires with its token
+    private Cache<String, VerifiedJwt> verifiedTokens;
 
     @PostConstruct
     public void init() {
         algorithm = Algorithm.HMAC512(jwtSecret);
         verifier = JWT.require(algorithm)
                 .build();
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(verifiedCacheMaximumSize)
+                .expireAfter(new Expiry<String, VerifiedJwt>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedJwt value, long currentTime) {
+                        return Math.max(0, Duration.between(Instant.now(), value.expiresAt()).toNanos());
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedJwt value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedJwt value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
     }
 
-    public String generateJwtToken(String username) {
+    // The id and role travel in the token so that requests can be authenticated without loading the user
+    public String generateJwtToken(AuthenticatedUser user) {
         return JWT.create()
-                .withSubject(username)
+                .withSubject(user.getUsername())
+                .withClaim(USER_ID_CLAIM, user.getId())
+                .withClaim(ROLE_CLAIM, user.getRole().name())
                 .withIssuedAt(new Date())
                 .withExpiresAt(new Date(System.currentTimeMillis() + jwtExpirationMs))
                 .sign(algorithm);
     }
 
-    public String getUsernameFromJwtToken(String token) {
-        DecodedJWT decodedJWT = verifier.verify(token);
-        return decodedJWT.getSubject();
+    /**
+     * Verifies the token once and decodes its claims. Results are cached until the token expires,
+     * so repeat requests with the same token skip the signature check and the decoding.
+     *
+     * @param token the raw JWT
+     * @return the verified claims, or null if the token is invalid or expired
+     */
+    public VerifiedJwt verify(String token) {
+        return verifiedTokens.get(digest(token), key -> decode(token));
+    }
+
+    private VerifiedJwt decode(String token) {
+        try {
+            DecodedJWT decodedJWT = verifier.verify(token);
+            if (decodedJWT.getExpiresAt() == null) {
+                log.warn("Invalid JWT Token: no expiry");
+                return null;
+            }
+            Claim userId = decodedJWT.getClaim(USER_ID_CLAIM);
+            Claim role = decodedJWT.getClaim(ROLE_CLAIM);
+            return new VerifiedJwt(decodedJWT.getSubject(),
+                    userId.isMissing() ? null : userId.asLong(),
+                    role.isMissing() ? null : Role.valueOf(role.asString()),
+                    decodedJWT.getExpiresAt().toInstant());
+        } catch (JWTVerificationException | IllegalArgumentException e) {
+            log.warn("Invalid JWT Token: {}", e.getMessage());
+        }
+        return null;
     }
 
-    public boolean validateJwtToken(String token) {
+    private static String digest(String token) {
         try {
-            verifier.verify(token);
-            return true;
-        } catch (Exception e) {
-            System.err.println("Invalid JWT Token: " + e.getMessage());
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
         }
-        return false;
     }
-}
\ No newline at end of file
+}
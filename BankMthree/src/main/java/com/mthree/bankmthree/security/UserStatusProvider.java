@@ -0,0 +1,31 @@
+package com.mthree.bankmthree.security;
+
+import com.mthree.bankmthree.entity.enums.Status;
+import com.mthree.bankmthree.repository.UserRepository;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Component;
+
+/**
+ * Short-lived lookup of a user's status for requests authenticated from JWT claims.
+ * The {@code userStatus} cache expires quickly, so a suspended or deleted user is rejected
+ * within that window even though their token is still valid.
+ */
+@Component
+public class UserStatusProvider {
+    private final UserRepository userRepository;
+
+    public UserStatusProvider(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Returns the current status of the user, or null if the user no longer exists.
+     *
+     * @param userId the ID of the user
+     * @return the user's status, or null
+     */
+    @Cacheable(value = "userStatus", key = "#userId")
+    public Status findStatus(Long userId) {
+        return userRepository.findStatusById(userId).orElse(null);
+    }
+}
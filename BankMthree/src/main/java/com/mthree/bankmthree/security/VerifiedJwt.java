@@ -0,0 +1,20 @@
+package com.mthree.bankmthree.security;
+
+import com.mthree.bankmthree.entity.enums.Role;
+
+import java.time.Instant;
+
+/**
+ * Claims of a token whose signature and expiry have been checked.
+ * The user id and role are null for tokens issued before those claims were added.
+ */
+public record VerifiedJwt(String username, Long userId, Role role, Instant expiresAt) {
+
+    public boolean hasUserClaims() {
+        return userId != null && role != null;
+    }
+
+    public AuthenticatedUser toPrincipal() {
+        return new AuthenticatedUser(userId, username, null, role, true);
+    }
+}
@@ -1,11 +1,13 @@
 package com.mthree.bankmthree.service;
 
 import com.mthree.bankmthree.dto.account.AccountDTO;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
 import com.mthree.bankmthree.entity.Account;
 import com.mthree.bankmthree.entity.User;
 import com.mthree.bankmthree.entity.enums.CurrencyType;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -26,25 +28,37 @@ public interface AccountService {
     @Transactional
     Account createAndInitializeAccount(CurrencyType currency, User user);
 
+    /**
+     * Creates and initializes one Account per currency for the specified user.
+     * All card numbers are generated before any account is saved, so the inserts can be
+     * flushed together as one JDBC batch.
+     *
+     * @param user       The User entity for whom the accounts are being created.
+     * @param currencies The currency types of the new accounts.
+     * @return The created Account entities, in the order of the currencies.
+     */
+    @Transactional
+    List<Account> createAndInitializeAccounts(User user, CurrencyType... currencies);
+
     /**
      * Creates a new account for the specified user and currency, ensuring no duplicate
      * accounts exist.
      *
-     * @param user     The User entity for whom the account is being created.
+     * @param user     The snapshot of the user for whom the account is being created.
      * @param currency The currency type for the new account.
      * @return The created Account entity.
      */
     @Transactional
-    Account createAccount(User user, CurrencyType currency);
+    Account createAccount(UserSnapshot user, CurrencyType currency);
 
     /**
      * Retrieves all accounts associated with the specified user.
      *
-     * @param user The User entity whose accounts are to be retrieved.
+     * @param user The snapshot of the user whose accounts are to be retrieved.
      * @return A set of AccountDTOs representing the user's accounts.
      */
     @Transactional(readOnly = true)
-    Set<AccountDTO> getUserAccounts(User user);
+    Set<AccountDTO> getUserAccounts(UserSnapshot user);
 
     /**
      * Closes the specified account for the user, ensuring the balance is zero before closure.
@@ -2,6 +2,8 @@ package com.mthree.bankmthree.service;
 
 import com.mthree.bankmthree.entity.Transaction;
 
+import java.util.List;
+
 /**
  * EmailService interface defines the operations related to sending emails
  * within the banking application. It provides methods for sending notifications
@@ -24,4 +26,12 @@ public interface EmailService {
      * @param transaction the Transaction object containing details about the transaction
      */
     void sendTransactionEmail(Transaction transaction);
+
+    /**
+     * Sends one digest email covering several transactions of the same sender, with a combined
+     * PDF receipt attached.
+     *
+     * @param transactions the transactions to include, oldest first
+     */
+    void sendTransactionDigest(List<Transaction> transactions);
 }
\ No newline at end of file
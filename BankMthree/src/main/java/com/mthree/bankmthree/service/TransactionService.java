@@ -1,5 +1,7 @@
 package com.mthree.bankmthree.service;
 
+import com.mthree.bankmthree.dto.transaction.BatchTransferResult;
+import com.mthree.bankmthree.dto.transaction.TransactionHistoryPage;
 import com.mthree.bankmthree.dto.transaction.TransactionResponse;
 import com.mthree.bankmthree.dto.transaction.TransferRequest;
 import com.mthree.bankmthree.entity.Transaction;
@@ -11,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * TransactionService interface defines operations related to transaction management
@@ -21,18 +24,19 @@ public interface TransactionService {
 
     /**
      * Transfers money between accounts using the provided card numbers.
-     * This operation will create a new transaction record.
+     * This operation will create a new transaction record. The implementation manages its own
+     * database transaction so that lock timeouts can be retried with a fresh transaction.
      *
      * @param transferRequest the request containing sender and receiver card numbers and amount
      * @param username        the username of the authenticated user initiating the transfer
      * @return Transaction object representing the completed transaction
      */
-    @Transactional
     Transaction transferMoneyUsingCardNumbers(@Valid TransferRequest transferRequest, String username);
 
     /**
      * Transfers money between users identified by their user IDs.
-     * This operation will create a new transaction record.
+     * This operation will create a new transaction record. The implementation manages its own
+     * database transaction so that lock timeouts can be retried with a fresh transaction.
      *
      * @param senderUserId    the ID of the user sending the money
      * @param receiverUserId  the ID of the user receiving the money
@@ -40,10 +44,19 @@ public interface TransactionService {
      * @param username        the username of the authenticated user initiating the transfer
      * @return Transaction object representing the completed transaction
      */
-    @Transactional
     Transaction transferMoneyBetweenUsers(@Valid Long senderUserId, @Valid Long receiverUserId,
                                           @Valid @Positive BigDecimal amount, @NotBlank String username);
 
+    /**
+     * Applies a list of card transfers in chunks, each chunk in one database transaction.
+     * Items that break a transfer rule or lack funds are reported as failed without stopping the batch.
+     *
+     * @param transferRequests the transfers to apply, in order
+     * @param username         the username of the authenticated user initiating the transfers
+     * @return one result per request, in request order
+     */
+    List<BatchTransferResult> transferBatch(List<TransferRequest> transferRequests, String username);
+
     /**
      * Retrieves the transaction history for a specific user.
      * This method returns a list of TransactionResponse objects representing
@@ -54,4 +67,26 @@ public interface TransactionService {
      */
     @Transactional(readOnly = true)
     List<TransactionResponse> getTransactionHistory(Long userId);
-}
\ No newline at end of file
+
+    /**
+     * Retrieves one page of a user's transaction history, newest first, using keyset pagination
+     * on {@code (timestamp, id)} so that deep pages cost the same as the first one.
+     *
+     * @param userId the ID of the user whose transaction history is to be retrieved
+     * @param cursor the {@code nextCursor} of the previous page, or null for the first page
+     * @param size   the requested page size, or null for the configured default
+     * @return the page of transactions and the cursor of the next page
+     */
+    @Transactional(readOnly = true)
+    TransactionHistoryPage getTransactionHistoryPage(Long userId, String cursor, Integer size);
+
+    /**
+     * Streams a user's whole transaction history, newest first, to the given consumer
+     * without materializing it in memory. The consumer runs inside the read-only transaction.
+     *
+     * @param userId   the ID of the user whose transaction history is to be streamed
+     * @param consumer receives each transaction in order
+     */
+    @Transactional(readOnly = true)
+    void streamTransactionHistory(Long userId, Consumer<TransactionResponse> consumer);
+}
@@ -3,6 +3,7 @@ package com.mthree.bankmthree.service;
 import com.mthree.bankmthree.dto.auth.RegisterRequest;
 import com.mthree.bankmthree.dto.user.UpdateUserRequest;
 import com.mthree.bankmthree.dto.user.UserDTO;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
 import com.mthree.bankmthree.entity.User;
 import jakarta.validation.Valid;
 import org.springframework.cache.annotation.CacheEvict;
@@ -91,6 +92,18 @@ public interface UserService {
     @PreAuthorize("hasRole('ADMIN') or #username == authentication.name")
     User findByUsername(String username);
 
+    /**
+     * Finds the immutable snapshot of a user by username. Snapshots are what the "users" cache holds,
+     * so this is the lookup to use on hot paths that only need the id, role, status or type.
+     * Access is restricted to users with the 'ADMIN' role or the user themselves.
+     *
+     * @param username the username of the user to be found
+     * @return the UserSnapshot associated with the provided username
+     */
+    @Transactional(readOnly = true)
+    @PreAuthorize("hasRole('ADMIN') or #username == authentication.name")
+    UserSnapshot findSnapshotByUsername(String username);
+
     /**
      * Converts a set of User entities to a set of UserDTOs.
      *
@@ -2,6 +2,7 @@ package com.mthree.bankmthree.service.impl;
 
 import com.mthree.bankmthree.constants.MessageConstants;
 import com.mthree.bankmthree.dto.account.AccountDTO;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
 import com.mthree.bankmthree.entity.Account;
 import com.mthree.bankmthree.entity.User;
 import com.mthree.bankmthree.entity.enums.CurrencyType;
@@ -11,8 +12,8 @@ import com.mthree.bankmthree.exception.account.AccountsNotFoundException;
 import com.mthree.bankmthree.exception.account.UniqueCardNumberGenerationException;
 import com.mthree.bankmthree.mapper.UserMapper;
 import com.mthree.bankmthree.repository.AccountRepository;
+import com.mthree.bankmthree.repository.UserRepository;
 import com.mthree.bankmthree.service.AccountService;
-import com.mthree.bankmthree.util.CardNumberGenerator;
 import jakarta.validation.constraints.NotBlank;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,6 +23,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -34,23 +37,26 @@ import java.util.stream.Collectors;
 public class AccountServiceImpl implements AccountService {
 
     private final AccountRepository accountRepository;
-    private final CardNumberGenerator cardNumberGenerator;
+    private final UserRepository userRepository;
+    private final CardNumberPool cardNumberPool;
     private final UserMapper userMapper;
     private final int maxAttempts;
 
     public AccountServiceImpl(AccountRepository accountRepository,
-                              CardNumberGenerator cardNumberGenerator,
+                              UserRepository userRepository,
+                              CardNumberPool cardNumberPool,
                               UserMapper userMapper,
                               @Value("${card.number.maxAttempts}") int maxAttempts) {
         this.accountRepository = accountRepository;
-        this.cardNumberGenerator = cardNumberGenerator;
+        this.userRepository = userRepository;
+        this.cardNumberPool = cardNumberPool;
         this.userMapper = userMapper;
         this.maxAttempts = maxAttempts;
     }
 
     /**
      * Creates and initializes a new Account for the specified user and currency.
-     * Generates a unique card number and sets initial balance.
+     * Claims a unique card number from the pool and sets initial balance.
      *
      * @param currency The currency type for the new account.
      * @param user     The User entity for whom the account is being created.
@@ -60,7 +66,7 @@ public class AccountServiceImpl implements AccountService {
     @Override
     public Account createAndInitializeAccount(CurrencyType currency, User user) {
         log.info(MessageConstants.Logs.CREATING_NEW_ACCOUNT, user.getUsername(), currency);
-        String cardNumber = generateUniqueCardNumber();
+        String cardNumber = claimCardNumbers(1).get(0);
 
         // Initialize and save the new account
         Account account = Account.builder()
@@ -74,38 +80,75 @@ public class AccountServiceImpl implements AccountService {
         return account;
     }
 
+    /**
+     * Creates and initializes one Account per currency for the specified user.
+     * Card numbers are claimed first, in one statement: the claim issued after an account is pending
+     * would force Hibernate to flush that insert on its own.
+     *
+     * @param user       The User entity for whom the accounts are being created.
+     * @param currencies The currency types of the new accounts.
+     * @throws UniqueCardNumberGenerationException if a unique card number cannot be generated.
+     */
+    @Transactional
+    @Override
+    public List<Account> createAndInitializeAccounts(User user, CurrencyType... currencies) {
+        List<String> cardNumbers = claimCardNumbers(currencies.length);
+        List<Account> accounts = new ArrayList<>(currencies.length);
+        for (int i = 0; i < currencies.length; i++) {
+            CurrencyType currency = currencies[i];
+            log.info(MessageConstants.Logs.CREATING_NEW_ACCOUNT, user.getUsername(), currency);
+            accounts.add(Account.builder()
+                    .cardNumber(cardNumbers.get(i))
+                    .currency(currency)
+                    .balance(BigDecimal.ZERO)
+                    .user(user)
+                    .build());
+        }
+        return accountRepository.saveAll(accounts);
+    }
+
     /**
      * Creates a new account for the specified user and currency, ensuring no duplicate accounts.
+     * The account references the user by id only, so the User entity is never loaded.
      *
-     * @param user     The User entity for whom the account is being created.
+     * @param user     The snapshot of the user for whom the account is being created.
      * @param currency The currency type for the new account.
      * @throws AccountAlreadyExistsException if an account with the specified currency already exists.
      */
     @Transactional
-    @CachePut(value = "accounts", key = "#user.username + '-' + #currency")
+    @CachePut(value = "accounts", key = "#user.username() + '-' + #currency")
     @Override
-    public Account createAccount(User user, CurrencyType currency) {
+    public Account createAccount(UserSnapshot user, CurrencyType currency) {
         checkForExistingAccount(user, currency); // Check for an existing account
-        return createAndInitializeAccount(currency, user);
+        log.info(MessageConstants.Logs.CREATING_NEW_ACCOUNT, user.username(), currency);
+
+        Account account = Account.builder()
+                .cardNumber(claimCardNumbers(1).get(0))
+                .currency(currency)
+                .balance(BigDecimal.ZERO)
+                .user(userRepository.getReferenceById(user.id()))
+                .build();
+
+        return accountRepository.save(account);
     }
 
     /**
      * Retrieves all accounts associated with the specified user.
      *
-     * @param user The User entity whose accounts are to be retrieved.
+     * @param user The snapshot of the user whose accounts are to be retrieved.
      * @return A set of AccountDTOs representing the user's accounts.
      */
     @Transactional(readOnly = true)
-    @CacheEvict(value = "userAccounts", key = "#user.username")
+    @CacheEvict(value = "userAccounts", key = "#user.username()")
     @Override
-    public Set<AccountDTO> getUserAccounts(User user) {
-        log.info("Retrieving accounts for user: {}", user.getUsername());
+    public Set<AccountDTO> getUserAccounts(UserSnapshot user) {
+        log.info("Retrieving accounts for user: {}", user.username());
 
         // Fetch accounts directly from the account repository associated with the user
-        Set<Account> accounts = accountRepository.findByUser(user);
+        Set<Account> accounts = accountRepository.findByUser_Id(user.id());
 
         // Log the number of accounts retrieved for debugging purposes
-        log.info("Number of accounts retrieved for user {}: {}", user.getUsername(), accounts.size());
+        log.info("Number of accounts retrieved for user {}: {}", user.username(), accounts.size());
 
         // Convert the set of Account entities to a set of AccountDTOs
         return accounts.stream()
@@ -157,12 +200,12 @@ public class AccountServiceImpl implements AccountService {
      * Checks if the user already has an account with the specified currency.
      * Throws AccountAlreadyExistsException if an account with the same currency exists.
      *
-     * @param user     The User entity for which to check the existing account.
+     * @param user     The snapshot of the user for which to check the existing account.
      * @param currency The currency type to check for existing accounts.
      * @throws AccountAlreadyExistsException if an account with the specified currency exists.
      */
-    private void checkForExistingAccount(User user, CurrencyType currency) {
-        if (accountRepository.existsByUserAndCurrency(user, currency)) {
+    private void checkForExistingAccount(UserSnapshot user, CurrencyType currency) {
+        if (accountRepository.existsByUser_IdAndCurrency(user.id(), currency)) {
             String exceptionMsg = String.format(MessageConstants.Exceptions.ACCOUNT_ALREADY_EXISTS, currency);
             log.warn(exceptionMsg);
             throw new AccountAlreadyExistsException(exceptionMsg);
@@ -170,14 +213,15 @@ public class AccountServiceImpl implements AccountService {
     }
 
     /**
-     * Generates a unique card number, handling the potential for failure.
+     * Claims unique card numbers from the pool, handling the potential for failure.
      *
-     * @return The generated unique card number.
-     * @throws UniqueCardNumberGenerationException if a unique card number cannot be generated.
+     * @param count The number of card numbers needed.
+     * @return The claimed unique card numbers.
+     * @throws UniqueCardNumberGenerationException if the pool is empty and a unique card number cannot be generated.
      */
-    private String generateUniqueCardNumber() {
+    private List<String> claimCardNumbers(int count) {
         try {
-            return cardNumberGenerator.generateUniqueCardNumber();
+            return cardNumberPool.claim(count);
         } catch (UniqueCardNumberGenerationException ex) {
             log.error(MessageConstants.Logs.UNABLE_TO_GENERATE_CARD_NUMBER, maxAttempts);
             throw new UniqueCardNumberGenerationException(String.format(MessageConstants.Logs.UNABLE_TO_GENERATE_CARD_NUMBER, maxAttempts));
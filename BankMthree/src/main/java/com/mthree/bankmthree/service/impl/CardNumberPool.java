@@ -0,0 +1,151 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.repository.AccountRepository;
+import com.mthree.bankmthree.repository.CardNumberPoolRepository;
+import com.mthree.bankmthree.util.CardNumberGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reserve of unique, Luhn-valid card numbers kept in the {@code card_number_pool} table.
+ * A scheduled refiller generates numbers in batches and checks each batch against the existing
+ * accounts with one query, so account creation only claims rows and no longer pays a uniqueness
+ * round trip per attempt that gets slower as the number space fills.
+ * If the pool runs dry, numbers are generated inline as before. The unique constraint on
+ * {@code accounts.card_number} remains the final check. When the generator is collision-free
+ * (permutation mode) the pool is bypassed.
+ */
+@Component
+@Slf4j
+public class CardNumberPool {
+    private static final String INSERT_NUMBER = "INSERT IGNORE INTO card_number_pool (card_number, created_at) VALUES (?, ?)";
+
+    private final CardNumberPoolRepository poolRepository;
+    private final AccountRepository accountRepository;
+    private final CardNumberGenerator cardNumberGenerator;
+    private final JdbcTemplate jdbcTemplate;
+    private final int minSize;
+    private final int targetSize;
+    private final int batchSize;
+
+    public CardNumberPool(CardNumberPoolRepository poolRepository,
+                          AccountRepository accountRepository,
+                          CardNumberGenerator cardNumberGenerator,
+                          JdbcTemplate jdbcTemplate,
+                          @Value("${card.pool.minSize:1000}") int minSize,
+                          @Value("${card.pool.targetSize:5000}") int targetSize,
+                          @Value("${card.pool.batchSize:500}") int batchSize) {
+        this.poolRepository = poolRepository;
+        this.accountRepository = accountRepository;
+        this.cardNumberGenerator = cardNumberGenerator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.minSize = minSize;
+        this.targetSize = targetSize;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Takes card numbers out of the pool in the caller's transaction. The rows stay locked until it
+     * ends, and if it rolls back the numbers return to the pool.
+     *
+     * @param count the number of card numbers needed
+     * @return exactly {@code count} card numbers
+     * @throws com.mthree.bankmthree.exception.account.UniqueCardNumberGenerationException if the pool is
+     *                                                                                     empty and inline generation fails
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> claim(int count) {
+        if (cardNumberGenerator.isCollisionFree()) {
+            List<String> cardNumbers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                cardNumbers.add(cardNumberGenerator.generateCardNumber());
+            }
+            return cardNumbers;
+        }
+        List<String> cardNumbers = new ArrayList<>(poolRepository.lockAvailable(count));
+        if (!cardNumbers.isEmpty()) {
+            poolRepository.deleteByCardNumberIn(cardNumbers);
+        }
+        if (cardNumbers.size() < count) {
+            log.warn(MessageConstants.Logs.CARD_NUMBER_POOL_EXHAUSTED, count - cardNumbers.size());
+            while (cardNumbers.size() < count) {
+                cardNumbers.add(cardNumberGenerator.generateUniqueCardNumber());
+            }
+        }
+        return cardNumbers;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        refill();
+    }
+
+    /**
+     * Tops the pool up to the target size once it falls below the minimum size.
+     */
+    @Scheduled(fixedDelayString = "${card.pool.refillIntervalMs:10000}")
+    public synchronized void refill() {
+        if (cardNumberGenerator.isCollisionFree()) {
+            return;
+        }
+        try {
+            long available = poolRepository.count();
+            if (available >= minSize) {
+                return;
+            }
+            long startedAt = System.nanoTime();
+            int added = 0;
+            while (available < targetSize) {
+                int inserted = insertBatch((int) Math.min(batchSize, targetSize - available));
+                if (inserted == 0) {
+                    break;
+                }
+                added += inserted;
+                available += inserted;
+            }
+            log.info(MessageConstants.Logs.CARD_NUMBER_POOL_REFILLED, added, (System.nanoTime() - startedAt) / 1_000_000, available);
+        } catch (DataAccessException e) {
+            // Claims fall back to inline generation until the next run succeeds
+            log.warn(MessageConstants.Logs.CARD_NUMBER_POOL_REFILL_FAILED, e.getMessage());
+        }
+    }
+
+    private int insertBatch(int size) {
+        Set<String> candidates = new HashSet<>(size * 2);
+        while (candidates.size() < size) {
+            candidates.add(cardNumberGenerator.generateCardNumber());
+        }
+        accountRepository.findCardNumbersIn(candidates).forEach(candidates::remove);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(candidates.size());
+        for (String cardNumber : candidates) {
+            rows.add(new Object[]{cardNumber, now});
+        }
+        int inserted = 0;
+        // Numbers already in the pool are ignored by the unique key
+        for (int count : jdbcTemplate.batchUpdate(INSERT_NUMBER, rows)) {
+            // Drivers that rewrite batches may report SUCCESS_NO_INFO (-2) instead of a row count;
+            // EXECUTE_FAILED (-3) is not an insert
+            inserted += count > 0 || count == Statement.SUCCESS_NO_INFO ? 1 : 0;
+        }
+        return inserted;
+    }
+}
@@ -2,16 +2,13 @@ package com.mthree.bankmthree.service.impl;
 
 import com.mthree.bankmthree.entity.User;
 import com.mthree.bankmthree.repository.UserRepository;
+import com.mthree.bankmthree.security.AuthenticatedUser;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
-import java.util.Set;
-
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
@@ -25,7 +22,7 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByProfile_Username(username).orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
-        Set<GrantedAuthority> grantedAuthorities = Set.of(new SimpleGrantedAuthority(user.getRole().name()));
-        return new org.springframework.security.core.userdetails.User(user.getUsername(), user.getPassword(), grantedAuthorities);
+        // Always enabled, as User.isEnabled() is; status is only enforced on token-authenticated requests
+        return new AuthenticatedUser(user.getId(), user.getUsername(), user.getPassword(), user.getRole(), user.isEnabled());
     }
 }
\ No newline at end of file
@@ -0,0 +1,286 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.entity.EmailOutbox;
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.entity.enums.OutboxStatus;
+import com.mthree.bankmthree.repository.EmailOutboxRepository;
+import com.mthree.bankmthree.repository.TransactionRepository;
+import com.mthree.bankmthree.service.EmailService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers transaction emails through the {@code email_outbox} table.
+ * Transfers only insert an outbox row inside their own database transaction; rendering the
+ * receipt and talking to the SMTP server happen afterwards on virtual threads, outside any row lock
+ * and without holding a database connection.
+ * Failed sends are retried with exponential backoff and moved to {@link OutboxStatus#DEAD} once
+ * the attempts are used up. A scheduled poll picks up retries and anything missed after a restart.
+ * <p>
+ * With {@code email.mode=digest}, messages are not sent after commit but buffered per user for
+ * {@code email.digest.windowMs}. When the oldest buffered message of a user falls due, everything
+ * still pending for that user is claimed and sent as one email with a combined receipt.
+ */
+@Slf4j
+@Service
+public class EmailOutboxDispatcher {
+    private static final int MAX_ERROR_LENGTH = 1000;
+    private static final String DIGEST_MODE = "digest";
+
+    private final EmailOutboxRepository outboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final EmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long leaseMs;
+    private final int pollBatchSize;
+    private final boolean digestMode;
+    private final long digestWindowMs;
+    private final int digestMaxTransactions;
+    private final Semaphore sendPermits;
+    private final ExecutorService executor;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 TransactionRepository transactionRepository,
+                                 EmailService emailService,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${email.outbox.maxAttempts:5}") int maxAttempts,
+                                 @Value("${email.outbox.retryBackoffMs:30000}") long retryBackoffMs,
+                                 @Value("${email.outbox.leaseMs:300000}") long leaseMs,
+                                 @Value("${email.outbox.pollBatchSize:100}") int pollBatchSize,
+                                 @Value("${email.outbox.maxConcurrentSends:8}") int maxConcurrentSends,
+                                 @Value("${email.mode:immediate}") String mode,
+                                 @Value("${email.digest.windowMs:900000}") long digestWindowMs,
+                                 @Value("${email.digest.maxTransactions:200}") int digestMaxTransactions) {
+        this.outboxRepository = outboxRepository;
+        this.transactionRepository = transactionRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.leaseMs = leaseMs;
+        this.pollBatchSize = pollBatchSize;
+        this.digestMode = DIGEST_MODE.equalsIgnoreCase(mode);
+        this.digestWindowMs = digestWindowMs;
+        this.digestMaxTransactions = digestMaxTransactions;
+        // Virtual threads make blocking SMTP calls cheap; the semaphore keeps the mail server from being flooded
+        this.sendPermits = new Semaphore(maxConcurrentSends);
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("email-outbox-", 0).factory());
+    }
+
+    /**
+     * Records a transaction email in the caller's database transaction and schedules its delivery
+     * for after the commit, or for the end of the digest window in digest mode. Nothing is sent if
+     * the transfer rolls back.
+     *
+     * @param transaction the saved transaction to notify about
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(Transaction transaction) {
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox message = outboxRepository.save(EmailOutbox.builder()
+                .transactionId(transaction.getId())
+                .userId(transaction.getSender().getId())
+                .status(OutboxStatus.PENDING)
+                .attempts(0)
+                .nextAttemptAt(digestMode ? now.plus(digestWindowMs, ChronoUnit.MILLIS) : now)
+                .createdAt(now)
+                .build());
+        log.debug(MessageConstants.Logs.OUTBOX_ENQUEUED, message.getId(), transaction.getId());
+        if (digestMode) {
+            // Left for the poll, which sends it with the rest of the user's window
+            return;
+        }
+
+        Long messageId = message.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                submit(() -> dispatch(messageId));
+            }
+        });
+    }
+
+    /**
+     * Picks up messages that are due for a retry or were never dispatched, for example because the
+     * application stopped between commit and send, and returns expired leases to the queue.
+     * In digest mode, due messages start one digest per user instead.
+     */
+    @Scheduled(fixedDelayString = "${email.outbox.pollIntervalMs:5000}")
+    public void pollDueMessages() {
+        LocalDateTime now = LocalDateTime.now();
+        Integer released = transactionTemplate.execute(status ->
+                outboxRepository.releaseExpiredLeases(OutboxStatus.PENDING, OutboxStatus.PROCESSING, now));
+        if (released != null && released > 0) {
+            log.warn(MessageConstants.Logs.OUTBOX_LEASES_RELEASED, released);
+        }
+
+        if (!digestMode) {
+            List<Long> dueIds = outboxRepository.findDueIds(OutboxStatus.PENDING, now, PageRequest.of(0, pollBatchSize));
+            dueIds.forEach(messageId -> submit(() -> dispatch(messageId)));
+            return;
+        }
+        Set<Long> userIds = new HashSet<>();
+        for (EmailOutbox message : outboxRepository.findDue(OutboxStatus.PENDING, now, PageRequest.of(0, pollBatchSize))) {
+            if (message.getUserId() == null) {
+                // Queued before messages recorded their user
+                submit(() -> dispatch(message.getId()));
+            } else if (userIds.add(message.getUserId())) {
+                submit(() -> dispatchDigest(message.getUserId()));
+            }
+        }
+    }
+
+    /**
+     * Claims and sends one outbox message, then records the outcome.
+     * Safe to call concurrently for the same id: only the caller that wins the claim sends it.
+     *
+     * @param messageId the outbox message id
+     */
+    public void dispatch(Long messageId) {
+        Integer claimed = transactionTemplate.execute(status -> outboxRepository.claim(messageId,
+                OutboxStatus.PENDING, OutboxStatus.PROCESSING, LocalDateTime.now().plus(leaseMs, ChronoUnit.MILLIS)));
+        if (claimed == null || claimed == 0) {
+            return;
+        }
+
+        try {
+            // Only the reads run in the read-only transaction; the graph is fetched whole, so the
+            // receipt is rendered and sent after the connection has gone back to the pool
+            Transaction transaction = readOnlyTransactionTemplate.execute(status -> {
+                EmailOutbox message = outboxRepository.findById(messageId).orElseThrow();
+                return transactionRepository.findWithPartiesByIdIn(List.of(message.getTransactionId())).stream()
+                        .findFirst()
+                        .orElseThrow(() -> new IllegalStateException(String.format(
+                                MessageConstants.Exceptions.OUTBOX_TRANSACTION_NOT_FOUND, message.getTransactionId(), messageId)));
+            });
+            emailService.sendTransactionEmail(transaction);
+            recordOutcome(List.of(messageId), null);
+        } catch (RuntimeException e) {
+            recordOutcome(List.of(messageId), e);
+        }
+    }
+
+    /**
+     * Claims every message still pending for a user, up to {@code email.digest.maxTransactions},
+     * and sends them as one digest email, then records the outcome for all of them. Messages in a
+     * retry backoff wait until they are due. Messages claimed concurrently by another node or thread
+     * are left to that sender.
+     *
+     * @param userId the user whose buffered messages are sent
+     */
+    public void dispatchDigest(Long userId) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime leaseUntil = now.plus(leaseMs, ChronoUnit.MILLIS);
+        List<Long> claimedIds = transactionTemplate.execute(status -> {
+            List<Long> ids = outboxRepository.lockPendingIdsByUser(userId, now, digestMaxTransactions);
+            if (!ids.isEmpty()) {
+                outboxRepository.claimAll(ids, OutboxStatus.PENDING, OutboxStatus.PROCESSING, leaseUntil);
+            }
+            return ids;
+        });
+        if (claimedIds == null || claimedIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Transaction> transactions = readOnlyTransactionTemplate.execute(status -> {
+                List<Long> transactionIds = outboxRepository.findAllById(claimedIds).stream()
+                        .map(EmailOutbox::getTransactionId)
+                        .toList();
+                List<Transaction> found = new ArrayList<>(transactionRepository.findWithPartiesByIdIn(transactionIds));
+                if (found.size() < transactionIds.size()) {
+                    throw new IllegalStateException(String.format(
+                            MessageConstants.Exceptions.OUTBOX_DIGEST_TRANSACTIONS_NOT_FOUND, claimedIds));
+                }
+                return found;
+            });
+            // Rendering the combined PDF and sending it happen outside the transaction
+            transactions.sort(Comparator.comparing(Transaction::getTimestamp).thenComparing(Transaction::getId));
+            if (transactions.size() == 1) {
+                // Nothing to combine; the user gets the regular receipt
+                emailService.sendTransactionEmail(transactions.get(0));
+            } else {
+                emailService.sendTransactionDigest(transactions);
+            }
+            log.info(MessageConstants.Logs.OUTBOX_DIGEST_SENT, claimedIds.size(), userId);
+            recordOutcome(claimedIds, null);
+        } catch (RuntimeException e) {
+            recordOutcome(claimedIds, e);
+        }
+    }
+
+    private void submit(Runnable task) {
+        executor.execute(() -> {
+            sendPermits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                sendPermits.release();
+            }
+        });
+    }
+
+    private void recordOutcome(List<Long> messageIds, RuntimeException failure) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (Long messageId : messageIds) {
+                EmailOutbox message = outboxRepository.findById(messageId).orElseThrow();
+                if (failure == null) {
+                    message.setStatus(OutboxStatus.SENT);
+                    message.setLastError(null);
+                    log.info(MessageConstants.Logs.OUTBOX_SENT, messageId, message.getAttempts());
+                } else if (message.getAttempts() >= maxAttempts) {
+                    message.setStatus(OutboxStatus.DEAD);
+                    message.setLastError(truncate(failure.toString()));
+                    log.error(MessageConstants.Logs.OUTBOX_DEAD_LETTERED, messageId, message.getAttempts(), failure.getMessage(), failure);
+                } else {
+                    // Exponential backoff: base, 2 x base, 4 x base, ...
+                    long delayMs = retryBackoffMs * (1L << Math.min(message.getAttempts() - 1, 16));
+                    message.setStatus(OutboxStatus.PENDING);
+                    message.setNextAttemptAt(LocalDateTime.now().plus(delayMs, ChronoUnit.MILLIS));
+                    message.setLastError(truncate(failure.toString()));
+                    log.warn(MessageConstants.Logs.OUTBOX_RETRY_SCHEDULED, messageId, message.getAttempts(), message.getNextAttemptAt(), failure.getMessage());
+                }
+                outboxRepository.save(message);
+            }
+        });
+    }
+
+    private String truncate(String error) {
+        return error.length() <= MAX_ERROR_LENGTH ? error : error.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        // Messages still in flight keep their lease and are picked up again once it expires
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+}
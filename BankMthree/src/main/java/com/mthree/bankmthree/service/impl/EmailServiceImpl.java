@@ -1,37 +1,43 @@
 package com.mthree.bankmthree.service.impl;
 
+import com.mthree.bankmthree.constants.MessageConstants;
 import com.mthree.bankmthree.entity.Transaction;
 import com.mthree.bankmthree.service.EmailService;
 import com.mthree.bankmthree.util.PdfGenerator;
+import com.mthree.bankmthree.util.ReloadableFile;
 import jakarta.activation.DataSource;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
+import jakarta.mail.util.ByteArrayDataSource;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.mail.MailPreparationException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
-import org.thymeleaf.TemplateEngine;
-import org.thymeleaf.context.Context;
 
-import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
  * Service class responsible for managing email notifications related to transactions.
  * This class handles sending transactional emails, including transaction details and receipts,
- * utilizing Thymeleaf templates and email attachments for PDF documents.
+ * utilizing pre-processed Thymeleaf templates and email attachments for PDF documents.
  */
 @Service
 public class EmailServiceImpl implements EmailService {
 
     private final JavaMailSender mailSender; // Mail sender for sending emails
     private final PdfGenerator pdfGenerator; // Service for generating PDF receipts
-    private final TemplateEngine templateEngine; // Thymeleaf template engine for processing email templates
+    private final EmailTemplateRenderer emailTemplateRenderer; // Renders the pre-processed email templates
+    private final SmtpTransportPool smtpTransportPool; // Reuses open SMTP connections across emails
 
     @Value("${recipient.email}")
     private String recipientEmail; // Recipient's email address from application properties
@@ -39,10 +45,26 @@ public class EmailServiceImpl implements EmailService {
     @Value("${email.logo.path}")
     private String logoPath; // Path to the logo image used in the email
 
-    public EmailServiceImpl(JavaMailSender mailSender, PdfGenerator pdfGenerator, TemplateEngine templateEngine) {
+    @Value("${image.reloadCheckMs:5000}")
+    private long imageReloadCheckMs;
+
+    private ReloadableFile<DataSource> logo; // Logo bytes kept in memory, re-read only when the file changes
+
+    public EmailServiceImpl(JavaMailSender mailSender, PdfGenerator pdfGenerator, EmailTemplateRenderer emailTemplateRenderer,
+                            SmtpTransportPool smtpTransportPool) {
         this.mailSender = mailSender;
         this.pdfGenerator = pdfGenerator;
-        this.templateEngine = templateEngine;
+        this.emailTemplateRenderer = emailTemplateRenderer;
+        this.smtpTransportPool = smtpTransportPool;
+    }
+
+    @PostConstruct
+    void loadLogo() throws IOException {
+        String contentType = MediaTypeFactory.getMediaType(logoPath)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM)
+                .toString();
+        logo = new ReloadableFile<>(Path.of(logoPath), content -> new ByteArrayDataSource(content, contentType), imageReloadCheckMs);
+        logo.get();
     }
 
     /**
@@ -92,8 +114,10 @@ public class EmailServiceImpl implements EmailService {
 
     /**
      * Sends an email with a transaction receipt using a Thymeleaf template and attaches a PDF receipt.
+     * Failures are rethrown so the email outbox can retry the message.
      *
      * @param transaction The transaction details to include in the email and PDF.
+     * @throws MailPreparationException if the message or its PDF receipt cannot be built.
      */
     @Override
     public void sendTransactionEmail(Transaction transaction) {
@@ -104,37 +128,59 @@ public class EmailServiceImpl implements EmailService {
             helper.setTo(recipientEmail); // Set recipient email address
             helper.setSubject("Transaction Notification"); // Set email subject
 
-            // Load and process the Thymeleaf template with transaction data
-            String emailContent = buildEmailContent(transaction);
+            // Fill the pre-processed template with transaction data
+            String emailContent = emailTemplateRenderer.renderTransactionReceipt(transaction);
             helper.setText(emailContent, true); // Set email body content
 
             // Attach logo for email inline image
-            FileSystemResource logo = new FileSystemResource(new File(logoPath));
-            helper.addInline("logoImage", logo); // Add logo image to email
+            DataSource logoImage = logo.get();
+            if (logoImage != null) {
+                helper.addInline("logoImage", logoImage); // Add logo image to email
+            }
 
             // Attach PDF receipt
             DataSource pdfReceipt = pdfGenerator.generatePdfReceipt(transaction); // Generate PDF
             helper.addAttachment("TransactionReceipt.pdf", pdfReceipt); // Attach PDF receipt to email
 
-            mailSender.send(message); // Send the email
+            smtpTransportPool.send(message); // Send the email over a pooled connection
 
         } catch (MessagingException | IOException e) {
-            e.printStackTrace(); // Handle exceptions during email sending
+            throw new MailPreparationException(String.format(MessageConstants.Exceptions.EMAIL_PREPARATION_FAILED, transaction.getId()), e);
         }
     }
 
     /**
-     * Builds the email content by processing the Thymeleaf template.
+     * Sends one email summarizing several transactions, with all their receipts in one attached PDF.
+     * Failures are rethrown so the email outbox can retry the whole digest.
      *
-     * @param transaction The transaction details to include in the email.
-     * @return The processed HTML email content.
+     * @param transactions The transactions to include, oldest first.
+     * @throws MailPreparationException if the message or its PDF receipt cannot be built.
      */
-    private String buildEmailContent(Transaction transaction) {
-        Context context = new Context();
-        context.setVariable("transaction", transaction); // Add transaction to the template context
-        String formattedTimestamp = transaction.getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")); // Format timestamp
-        context.setVariable("formattedTimestamp", formattedTimestamp); // Add formatted timestamp to the template context
-        return templateEngine.process("transaction-receipt", context); // Process the template with context variables
+    @Override
+    public void sendTransactionDigest(List<Transaction> transactions) {
+        try {
+            MimeMessage message = mailSender.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, true);
+            helper.setTo(recipientEmail); // Set recipient email address
+            helper.setSubject("Transaction Summary (" + transactions.size() + " transactions)"); // Set email subject
+
+            // One table row per transaction
+            helper.setText(emailTemplateRenderer.renderTransactionDigest(transactions), true);
+
+            DataSource logoImage = logo.get();
+            if (logoImage != null) {
+                helper.addInline("logoImage", logoImage); // Add logo image to email
+            }
+
+            // Attach all receipts as one PDF
+            helper.addAttachment("TransactionReceipts.pdf", pdfGenerator.generatePdfDigest(transactions));
+
+            smtpTransportPool.send(message); // Send the email over a pooled connection
+
+        } catch (MessagingException | IOException e) {
+            throw new MailPreparationException(String.format(MessageConstants.Exceptions.EMAIL_DIGEST_PREPARATION_FAILED,
+                    transactions.stream().map(Transaction::getId).toList()), e);
+        }
     }
 
     /**
@@ -152,7 +198,10 @@ public class EmailServiceImpl implements EmailService {
      *
      * @param transaction The transaction details to include in the email model.
      * @return A map containing transaction details and formatted timestamp.
+     * @deprecated The transaction email is rendered by {@link EmailTemplateRenderer}, which no longer takes a model.
+     * Kept for existing callers and will be removed in a later release.
      */
+    @Deprecated
     public Map<String, Object> prepareTransactionModel(Transaction transaction) {
         Map<String, Object> model = new HashMap<>();
         model.put("transaction", transaction); // Add transaction to the model
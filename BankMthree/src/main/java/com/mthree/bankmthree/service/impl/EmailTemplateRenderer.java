@@ -0,0 +1,171 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.entity.User;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.unbescape.html.HtmlEscape;
+
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders the HTML email bodies. Each template is processed by Thymeleaf once, at startup, with a
+ * marker in place of every variable; the output is split at the markers into static parts.
+ * Rendering an email then only joins those parts with the HTML-escaped values, so styles, header
+ * and footer are never parsed or processed again. The renderer uses its own engine with a cacheable
+ * resolver, independent of the {@code spring.thymeleaf.cache} setting.
+ * The digest email is compiled the same way from a page and a row template; its rows are rendered
+ * from the row parts and inserted into the page unescaped, like {@code th:utext}.
+ */
+@Component
+public class EmailTemplateRenderer {
+    static final String TRANSACTION_RECEIPT = "transaction-receipt";
+    static final String TRANSACTION_DIGEST = "transaction-digest";
+    static final String TRANSACTION_DIGEST_ROW = "transaction-digest-row";
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] RECEIPT_VARIABLES = {"amount", "formattedTimestamp", "transactionId",
+            "senderName", "senderCardNumber", "receiverName", "receiverCardNumber"};
+    private static final String[] DIGEST_VARIABLES = {"senderName", "transactionCount", "period", "rows"};
+    private static final String[] DIGEST_ROW_VARIABLES = {"formattedTimestamp", "transactionId", "receiverName", "amount"};
+    private static final Set<String> DIGEST_RAW_VARIABLES = Set.of("rows");
+    private static final Pattern MARKER = Pattern.compile("@@(\\w+)@@");
+
+    private final CompiledTemplate transactionReceipt;
+    private final CompiledTemplate transactionDigest;
+    private final CompiledTemplate transactionDigestRow;
+
+    public EmailTemplateRenderer() {
+        this(classpathResolver());
+    }
+
+    EmailTemplateRenderer(ITemplateResolver templateResolver) {
+        TemplateEngine templateEngine = new TemplateEngine();
+        templateEngine.setTemplateResolver(templateResolver);
+        this.transactionReceipt = compile(templateEngine, TRANSACTION_RECEIPT, RECEIPT_VARIABLES, Set.of());
+        this.transactionDigest = compile(templateEngine, TRANSACTION_DIGEST, DIGEST_VARIABLES, DIGEST_RAW_VARIABLES);
+        this.transactionDigestRow = compile(templateEngine, TRANSACTION_DIGEST_ROW, DIGEST_ROW_VARIABLES, Set.of());
+    }
+
+    /**
+     * Renders the transaction receipt email.
+     *
+     * @param transaction The transaction details to include in the email.
+     * @return The HTML email content.
+     */
+    public String renderTransactionReceipt(Transaction transaction) {
+        return transactionReceipt.render(Map.of(
+                "amount", formatAmount(transaction),
+                "formattedTimestamp", transaction.getTimestamp().format(TIMESTAMP_FORMAT),
+                "transactionId", String.valueOf(transaction.getId()),
+                "senderName", fullName(transaction.getSender()),
+                "senderCardNumber", transaction.getSenderAccount().getCardNumber(),
+                "receiverName", fullName(transaction.getReceiver()),
+                "receiverCardNumber", transaction.getReceiverAccount().getCardNumber()));
+    }
+
+    /**
+     * Renders the digest email listing several transactions of the same sender.
+     *
+     * @param transactions The transactions to list, oldest first.
+     * @return The HTML email content.
+     */
+    public String renderTransactionDigest(List<Transaction> transactions) {
+        StringBuilder rows = new StringBuilder(transactions.size() * transactionDigestRow.length());
+        for (Transaction transaction : transactions) {
+            transactionDigestRow.renderTo(rows, Map.of(
+                    "formattedTimestamp", transaction.getTimestamp().format(TIMESTAMP_FORMAT),
+                    "transactionId", String.valueOf(transaction.getId()),
+                    "receiverName", fullName(transaction.getReceiver()),
+                    "amount", formatAmount(transaction)));
+        }
+        Transaction first = transactions.get(0);
+        Transaction last = transactions.get(transactions.size() - 1);
+        return transactionDigest.render(Map.of(
+                "senderName", fullName(first.getSender()),
+                "transactionCount", String.valueOf(transactions.size()),
+                "period", first.getTimestamp().format(TIMESTAMP_FORMAT) + " - " + last.getTimestamp().format(TIMESTAMP_FORMAT),
+                "rows", rows.toString()));
+    }
+
+    private static String fullName(User user) {
+        return user.getProfile().getFirstName() + " " + user.getProfile().getLastName();
+    }
+
+    // Same amount format as the PDF receipt
+    private static String formatAmount(Transaction transaction) {
+        return String.format("%.2f %s", transaction.getAmount(), transaction.getSenderAccount().getCurrency());
+    }
+
+    private static CompiledTemplate compile(TemplateEngine templateEngine, String template, String[] variables,
+                                            Set<String> rawVariables) {
+        Context context = new Context();
+        for (String variable : variables) {
+            context.setVariable(variable, "@@" + variable + "@@");
+        }
+        String rendered = templateEngine.process(template, context);
+
+        List<String> parts = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        List<Boolean> raw = new ArrayList<>();
+        Matcher matcher = MARKER.matcher(rendered);
+        int start = 0;
+        while (matcher.find()) {
+            parts.add(rendered.substring(start, matcher.start()));
+            names.add(matcher.group(1));
+            raw.add(rawVariables.contains(matcher.group(1)));
+            start = matcher.end();
+        }
+        parts.add(rendered.substring(start));
+        boolean[] unescaped = new boolean[raw.size()];
+        for (int i = 0; i < unescaped.length; i++) {
+            unescaped[i] = raw.get(i);
+        }
+        return new CompiledTemplate(parts.toArray(String[]::new), names.toArray(String[]::new), unescaped, rendered.length());
+    }
+
+    private static ITemplateResolver classpathResolver() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+        return resolver;
+    }
+
+    /**
+     * A processed template split into static parts; {@code names[i]} goes between {@code parts[i]}
+     * and {@code parts[i + 1]}, escaped unless {@code raw[i]} is set.
+     */
+    private record CompiledTemplate(String[] parts, String[] names, boolean[] raw, int length) {
+
+        String render(Map<String, String> values) {
+            StringBuilder html = new StringBuilder(length + 256);
+            renderTo(html, values);
+            return html.toString();
+        }
+
+        void renderTo(StringBuilder html, Map<String, String> values) {
+            for (int i = 0; i < names.length; i++) {
+                html.append(parts[i]);
+                String value = values.get(names[i]);
+                if (value != null) {
+                    // Same escaping as th:text
+                    html.append(raw[i] ? value : HtmlEscape.escapeHtml4Xml(value));
+                }
+            }
+            html.append(parts[names.length]);
+        }
+    }
+}
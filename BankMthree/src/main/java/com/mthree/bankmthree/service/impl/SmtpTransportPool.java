@@ -0,0 +1,174 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends MIME messages over a small pool of open SMTP connections.
+ * {@link JavaMailSender#send} connects, says hello, upgrades to TLS and authenticates for every
+ * call; here a connection is opened once and reused for up to {@code email.smtp.maxMessagesPerConnection}
+ * messages, so a busy outbox pays the handshake once per connection instead of once per email.
+ * Connections idle for longer than {@code email.smtp.maxIdleMs} are closed before the server
+ * drops them. Mail senders other than {@link JavaMailSenderImpl} are used as they are.
+ */
+@Slf4j
+@Component
+public class SmtpTransportPool {
+
+    private static final class PooledTransport {
+        private final Transport transport;
+        private int sent;
+        private long lastUsed;
+
+        private PooledTransport(Transport transport) {
+            this.transport = transport;
+        }
+    }
+
+    private final JavaMailSender mailSender;
+    private final int maxMessagesPerConnection;
+    private final long maxIdleNanos;
+    private final Semaphore permits;
+    private final Deque<PooledTransport> idle = new ArrayDeque<>();
+    private final AtomicInteger open = new AtomicInteger();
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             @Value("${email.smtp.poolSize:4}") int poolSize,
+                             @Value("${email.smtp.maxMessagesPerConnection:100}") int maxMessagesPerConnection,
+                             @Value("${email.smtp.maxIdleMs:60000}") long maxIdleMs) {
+        this.mailSender = mailSender;
+        this.maxMessagesPerConnection = maxMessagesPerConnection;
+        this.maxIdleNanos = maxIdleMs * 1_000_000;
+        // One permit per connection; senders wait for a free connection rather than opening more
+        this.permits = new Semaphore(poolSize);
+    }
+
+    /**
+     * Sends the message on a pooled connection.
+     *
+     * @param message the message to send
+     * @throws MailSendException if the connection cannot be opened or the server rejects the message
+     */
+    public void send(MimeMessage message) {
+        if (!(mailSender instanceof JavaMailSenderImpl sender)) {
+            mailSender.send(message);
+            return;
+        }
+        permits.acquireUninterruptibly();
+        try {
+            prepare(message);
+            PooledTransport pooled = borrow(sender);
+            boolean reused = pooled.sent > 0;
+            try {
+                send(pooled, message);
+            } catch (MessagingException e) {
+                boolean dropped = reused && !pooled.transport.isConnected();
+                close(pooled);
+                if (!dropped) {
+                    throw e;
+                }
+                // The server closed a connection that sat in the pool; the message never reached it
+                log.debug(MessageConstants.Logs.SMTP_CONNECTION_RETRY, e.getMessage());
+                PooledTransport fresh = connect(sender);
+                try {
+                    send(fresh, message);
+                } catch (MessagingException retryFailure) {
+                    close(fresh);
+                    throw retryFailure;
+                }
+            }
+        } catch (MessagingException e) {
+            throw new MailSendException(MessageConstants.Exceptions.SMTP_SEND_FAILED, e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void send(PooledTransport pooled, MimeMessage message) throws MessagingException {
+        pooled.transport.sendMessage(message, message.getAllRecipients());
+        pooled.sent++;
+        pooled.lastUsed = System.nanoTime();
+        if (pooled.sent >= maxMessagesPerConnection) {
+            close(pooled);
+        } else {
+            synchronized (idle) {
+                idle.push(pooled);
+            }
+        }
+    }
+
+    private PooledTransport borrow(JavaMailSenderImpl sender) throws MessagingException {
+        long now = System.nanoTime();
+        while (true) {
+            PooledTransport pooled;
+            synchronized (idle) {
+                pooled = idle.poll();
+            }
+            if (pooled == null) {
+                return connect(sender);
+            }
+            if (now - pooled.lastUsed < maxIdleNanos) {
+                return pooled;
+            }
+            close(pooled);
+        }
+    }
+
+    private PooledTransport connect(JavaMailSenderImpl sender) throws MessagingException {
+        String protocol = sender.getProtocol() != null ? sender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+        Transport transport = sender.getSession().getTransport(protocol);
+        // Same connection arguments as JavaMailSenderImpl
+        String username = sender.getUsername() == null || sender.getUsername().isEmpty() ? null : sender.getUsername();
+        String password = sender.getPassword() == null || sender.getPassword().isEmpty() ? null : sender.getPassword();
+        transport.connect(sender.getHost(), sender.getPort(), username, password);
+        log.debug(MessageConstants.Logs.SMTP_CONNECTION_OPENED, sender.getHost(), open.incrementAndGet());
+        return new PooledTransport(transport);
+    }
+
+    /**
+     * Same header handling as {@link JavaMailSenderImpl} before it hands a message to the transport.
+     */
+    private static void prepare(MimeMessage message) throws MessagingException {
+        if (message.getSentDate() == null) {
+            message.setSentDate(new Date());
+        }
+        String messageId = message.getMessageID();
+        message.saveChanges();
+        if (messageId != null) {
+            // Preserve an explicitly specified message id, which saveChanges would replace
+            message.setHeader("Message-ID", messageId);
+        }
+    }
+
+    private void close(PooledTransport pooled) {
+        open.decrementAndGet();
+        try {
+            pooled.transport.close();
+        } catch (MessagingException e) {
+            // The connection is discarded either way
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        synchronized (idle) {
+            idle.forEach(this::close);
+            idle.clear();
+        }
+    }
+}
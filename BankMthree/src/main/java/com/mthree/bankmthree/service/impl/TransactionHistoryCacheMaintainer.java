@@ -0,0 +1,165 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.dto.transaction.TransactionResponse;
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.mapper.TransactionMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the {@code transactionHistory} cache in step with new transfers, touching only the
+ * histories of the sender and the receiver. When a history is cached, the new transaction is
+ * inserted at its position in the cached list after commit; when the cache cannot be updated
+ * in place the entry is evicted instead. Other users' entries are left alone.
+ */
+@Component
+public class TransactionHistoryCacheMaintainer {
+    static final String CACHE_NAME = "transactionHistory";
+
+    // Same order as the history query: newest first, ties broken by id
+    private static final Comparator<TransactionResponse> HISTORY_ORDER = Comparator
+            .comparing(TransactionResponse::getTimestamp, Comparator.nullsLast(Comparator.reverseOrder()))
+            .thenComparing(TransactionResponse::getTransactionId, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final CacheManager cacheManager;
+    private final TransactionMapper transactionMapper;
+    private final Counter updatedCounter;
+    private final Counter evictedCounter;
+
+    public TransactionHistoryCacheMaintainer(CacheManager cacheManager, TransactionMapper transactionMapper, MeterRegistry meterRegistry) {
+        this.cacheManager = cacheManager;
+        this.transactionMapper = transactionMapper;
+        this.updatedCounter = Counter.builder("bank.cache.history.maintenance")
+                .description("Cached transaction histories updated in place after a transfer")
+                .tag("action", "updated")
+                .register(meterRegistry);
+        this.evictedCounter = Counter.builder("bank.cache.history.maintenance")
+                .description("Cached transaction histories evicted after a transfer")
+                .tag("action", "evicted")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the sender's and receiver's cached histories to be updated once the current
+     * database transaction commits. Must be called inside that transaction, after the row is saved.
+     *
+     * @param transaction    the saved transaction
+     * @param senderUserId   the ID of the sending user
+     * @param receiverUserId the ID of the receiving user
+     */
+    public void onTransactionSaved(Transaction transaction, Long senderUserId, Long receiverUserId) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null) {
+            return;
+        }
+        Set<Long> userIds = new LinkedHashSet<>(List.of(senderUserId, receiverUserId));
+
+        // Mapping may initialize account proxies, so it is only done while the transaction is open and a history is cached.
+        // The check goes through the map view so that it is not counted as a cache hit or miss.
+        ConcurrentMap<Object, Object> entries = entries(cache);
+        TransactionResponse response = entries != null && userIds.stream().anyMatch(entries::containsKey)
+                ? transactionMapper.toResponse(transaction)
+                : null;
+        afterCommit(() -> userIds.forEach(userId -> update(cache, userId, response)));
+    }
+
+    /**
+     * Evicts the given users' cached histories once the current database transaction commits.
+     *
+     * @param userIds the IDs of the users whose histories changed
+     */
+    public void evictAfterCommit(Collection<Long> userIds) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        if (cache == null || userIds.isEmpty()) {
+            return;
+        }
+        Set<Long> distinctUserIds = new LinkedHashSet<>(userIds);
+        afterCommit(() -> distinctUserIds.forEach(userId -> evict(cache, userId)));
+    }
+
+    private void update(Cache cache, Long userId, TransactionResponse response) {
+        ConcurrentMap<Object, Object> entries = entries(cache);
+        if (response != null && entries != null) {
+            // Atomic per key, so two transfers for the same user cannot lose each other's update
+            entries.computeIfPresent(userId, (key, history) -> withTransaction(history, response));
+            updatedCounter.increment();
+        } else {
+            evict(cache, userId);
+        }
+    }
+
+    // Map view of the underlying store, or null when the cache provider does not expose one
+    @SuppressWarnings("unchecked")
+    private ConcurrentMap<Object, Object> entries(Cache cache) {
+        Object nativeCache = cache.getNativeCache();
+        if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+            return (ConcurrentMap<Object, Object>) caffeineCache.asMap();
+        }
+        if (nativeCache instanceof ConcurrentMap<?, ?> map) {
+            return (ConcurrentMap<Object, Object>) map;
+        }
+        return null;
+    }
+
+    private void evict(Cache cache, Long userId) {
+        cache.evict(userId);
+        evictedCounter.increment();
+    }
+
+    /**
+     * Returns a copy of the cached history with the transaction inserted in order. Cached lists
+     * are never modified in place, since other threads may be reading them.
+     * Returning null drops the entry when its shape is unexpected.
+     */
+    private Object withTransaction(Object history, TransactionResponse response) {
+        if (!(history instanceof List<?> cached)) {
+            return null;
+        }
+        List<TransactionResponse> updated = new ArrayList<>(cached.size() + 1);
+        boolean inserted = false;
+        for (Object item : cached) {
+            if (!(item instanceof TransactionResponse existing)) {
+                return null;
+            }
+            // A history loaded after the commit already contains the transaction
+            if (existing.getTransactionId() != null && existing.getTransactionId().equals(response.getTransactionId())) {
+                return history;
+            }
+            if (!inserted && HISTORY_ORDER.compare(response, existing) <= 0) {
+                updated.add(response);
+                inserted = true;
+            }
+            updated.add(existing);
+        }
+        if (!inserted) {
+            updated.add(response);
+        }
+        return updated;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
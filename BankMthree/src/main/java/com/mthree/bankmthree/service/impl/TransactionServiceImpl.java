@@ -1,64 +1,162 @@
 package com.mthree.bankmthree.service.impl;
 
 import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.dto.account.AccountTransferView;
+import com.mthree.bankmthree.dto.transaction.BatchTransferResult;
+import com.mthree.bankmthree.dto.transaction.HistoryCursor;
+import com.mthree.bankmthree.dto.transaction.TransactionHistoryPage;
 import com.mthree.bankmthree.dto.transaction.TransactionResponse;
 import com.mthree.bankmthree.dto.transaction.TransferRequest;
 import com.mthree.bankmthree.entity.Account;
 import com.mthree.bankmthree.entity.Transaction;
-import com.mthree.bankmthree.entity.User;
-import com.mthree.bankmthree.entity.enums.Role;
+import com.mthree.bankmthree.entity.enums.CurrencyType;
 import com.mthree.bankmthree.exception.account.AccountsNotFoundException;
 import com.mthree.bankmthree.exception.account.ReceiverAccountNotFoundException;
 import com.mthree.bankmthree.exception.transaction.UnauthorizedTransferException;
 import com.mthree.bankmthree.mapper.TransactionMapper;
 import com.mthree.bankmthree.repository.AccountRepository;
 import com.mthree.bankmthree.repository.TransactionRepository;
-import com.mthree.bankmthree.service.EmailService;
+import com.mthree.bankmthree.repository.UserRepository;
 import com.mthree.bankmthree.service.UserService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Positive;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Service class for managing transactions.
+ * In ATOMIC mode (the default) balances are moved with conditional UPDATE statements, so a
+ * transfer costs two small updates and one insert without loading the Account entities.
+ * In PESSIMISTIC mode transfers lock both account rows in ascending id order so that crossing
+ * transfers (A to B and B to A) cannot deadlock, and retry a bounded number of times on lock timeout.
+ * In OPTIMISTIC mode accounts are read without locks and the {@code @Version} check at commit
+ * detects concurrent updates, which are retried with jittered backoff.
  */
 @Slf4j
 @Service
 public class TransactionServiceImpl implements com.mthree.bankmthree.service.TransactionService {
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
+    private final UserRepository userRepository;
     private final UserService userService;
     private final TransactionMapper transactionMapper;
-    private final EmailService emailService;
+    private final EmailOutboxDispatcher emailOutboxDispatcher;
+    private final TransactionHistoryCacheMaintainer historyCacheMaintainer;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrencyMode concurrencyMode;
+    private final int maxLockAttempts;
+    private final long lockRetryBackoffMs;
+    private final int maxOptimisticAttempts;
+    private final long optimisticBackoffMs;
+    private final int batchChunkSize;
+    private final int historyPageSize;
+    private final int historyMaxPageSize;
+    private final Counter retryCounter;
+    private final Counter retriesExhaustedCounter;
+    private final DistributionSummary attemptsSummary;
+    private final Counter historyLoadCounter;
 
     @Autowired
-    public TransactionServiceImpl(AccountRepository accountRepository, TransactionRepository transactionRepository, UserService userService, TransactionMapper transactionMapper, EmailService emailService) {
+    public TransactionServiceImpl(AccountRepository accountRepository,
+                                  TransactionRepository transactionRepository,
+                                  UserRepository userRepository,
+                                  UserService userService,
+                                  TransactionMapper transactionMapper,
+                                  EmailOutboxDispatcher emailOutboxDispatcher,
+                                  TransactionHistoryCacheMaintainer historyCacheMaintainer,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${transaction.concurrency.mode:ATOMIC}") ConcurrencyMode concurrencyMode,
+                                  @Value("${transaction.lock.maxAttempts:3}") int maxLockAttempts,
+                                  @Value("${transaction.lock.retryBackoffMs:50}") long lockRetryBackoffMs,
+                                  @Value("${transaction.optimistic.maxAttempts:5}") int maxOptimisticAttempts,
+                                  @Value("${transaction.optimistic.backoffMs:10}") long optimisticBackoffMs,
+                                  @Value("${transaction.batch.chunkSize:500}") int batchChunkSize,
+                                  @Value("${transaction.history.pageSize:50}") int historyPageSize,
+                                  @Value("${transaction.history.maxPageSize:500}") int historyMaxPageSize) {
         this.accountRepository = accountRepository;
         this.transactionRepository = transactionRepository;
+        this.userRepository = userRepository;
         this.userService = userService;
         this.transactionMapper = transactionMapper;
-        this.emailService = emailService;
+        this.emailOutboxDispatcher = emailOutboxDispatcher;
+        this.historyCacheMaintainer = historyCacheMaintainer;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.concurrencyMode = concurrencyMode;
+        this.maxLockAttempts = maxLockAttempts;
+        this.lockRetryBackoffMs = lockRetryBackoffMs;
+        this.maxOptimisticAttempts = maxOptimisticAttempts;
+        this.optimisticBackoffMs = optimisticBackoffMs;
+        this.batchChunkSize = batchChunkSize;
+        this.historyPageSize = historyPageSize;
+        this.historyMaxPageSize = historyMaxPageSize;
+
+        // Retry metrics are tagged with the mode so both strategies can be compared side by side
+        String mode = concurrencyMode.name().toLowerCase();
+        this.retryCounter = Counter.builder("bank.transfer.retries")
+                .description("Transfer attempts retried after a lock timeout or version conflict")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.retriesExhaustedCounter = Counter.builder("bank.transfer.retries.exhausted")
+                .description("Transfers that failed after using all retry attempts")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.attemptsSummary = DistributionSummary.builder("bank.transfer.attempts")
+                .description("Attempts needed per successful transfer")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        this.historyLoadCounter = Counter.builder("bank.cache.history.loads")
+                .description("Transaction histories loaded from the database because they were not cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Strategy used to protect concurrent balance updates, selected with {@code transaction.concurrency.mode}.
+     */
+    public enum ConcurrencyMode {
+        ATOMIC,
+        PESSIMISTIC,
+        OPTIMISTIC
     }
 
     /**
      * Transfers money between two accounts using card numbers.
+     * Each attempt runs in its own database transaction so that a lock timeout or version conflict can be retried.
      *
      * @param transferRequest the transfer request containing sender and receiver card numbers and amount
      * @param username        the username initiating the transfer
      * @return the created transaction
      */
-    @Transactional
-    @CacheEvict(value = "transactionHistory", allEntries = true) // Clear cache for transaction history
     @Override
     public Transaction transferMoneyUsingCardNumbers(@Valid TransferRequest transferRequest, String username) {
         try {
@@ -74,40 +172,58 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
             // Validating same-account transfer
             validateTransferRequest(transferRequest);
 
-            // Fetching sender and receiver accounts
-            Account sender = accountRepository.findByCardNumber(transferRequest.getSenderCardNumber())
-                    .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
-            Account receiver = accountRepository.findByCardNumber(transferRequest.getReceiverCardNumber())
-                    .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
-
-            // Validating the transfer details
-            validateTransfer(sender, receiver, transferRequest.getAmount(), username);
-
-            // Performing the transfer
-            sender.setBalance(sender.getBalance().subtract(transferRequest.getAmount()));
-            receiver.setBalance(receiver.getBalance().add(transferRequest.getAmount()));
-
-            accountRepository.save(sender);
-            accountRepository.save(receiver);
-
-            // Creating the transaction record
-            Transaction transaction = new Transaction();
-            transaction.setAmount(transferRequest.getAmount());
-            transaction.setSenderAccount(sender);
-            transaction.setReceiverAccount(receiver);
-            transaction.setSender(sender.getUser());
-            transaction.setReceiver(receiver.getUser());
-
-            Transaction completedTransaction = transactionRepository.save(transaction);
+            Transaction completedTransaction = executeWithRetry(() -> {
+                if (concurrencyMode == ConcurrencyMode.ATOMIC) {
+                    List<AccountTransferView> views = accountRepository.findTransferViewsByCardNumberIn(
+                            Set.of(transferRequest.getSenderCardNumber(), transferRequest.getReceiverCardNumber()));
+                    AccountTransferView sender = views.stream()
+                            .filter(view -> view.cardNumber().equals(transferRequest.getSenderCardNumber()))
+                            .findFirst()
+                            .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
+                    AccountTransferView receiver = views.stream()
+                            .filter(view -> view.cardNumber().equals(transferRequest.getReceiverCardNumber()))
+                            .findFirst()
+                            .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+                    return transferAtomically(sender, receiver, transferRequest.getAmount(), username);
+                }
+
+                // Fetching sender and receiver accounts
+                TransferAccounts accounts = loadAccountsByCardNumber(transferRequest.getSenderCardNumber(), transferRequest.getReceiverCardNumber());
+                Account sender = accounts.sender();
+                Account receiver = accounts.receiver();
+
+                // Validating the transfer details
+                validateTransfer(sender, receiver, transferRequest.getAmount(), username);
+
+                // Performing the transfer
+                sender.setBalance(sender.getBalance().subtract(transferRequest.getAmount()));
+                receiver.setBalance(receiver.getBalance().add(transferRequest.getAmount()));
+
+                accountRepository.save(sender);
+                accountRepository.save(receiver);
+
+                // Creating the transaction record
+                Transaction transaction = new Transaction();
+                transaction.setAmount(transferRequest.getAmount());
+                transaction.setSenderAccount(sender);
+                transaction.setReceiverAccount(receiver);
+                transaction.setSender(sender.getUser());
+                transaction.setReceiver(receiver.getUser());
+
+                Transaction savedTransaction = transactionRepository.save(transaction);
+
+                // Queueing the transaction email and refreshing both users' cached histories, after commit
+                emailOutboxDispatcher.enqueue(savedTransaction);
+                historyCacheMaintainer.onTransactionSaved(savedTransaction, sender.getUser().getId(), receiver.getUser().getId());
+
+                return savedTransaction;
+            });
 
             // Logging the successful transfer
             log.info(MessageConstants.Logs.TRANSFER_COMPLETED,
                     maskCardNumber(transferRequest.getSenderCardNumber()),
                     maskCardNumber(transferRequest.getReceiverCardNumber()));
 
-            // Sending transaction email notification
-            emailService.sendTransactionEmail(completedTransaction);
-
             return completedTransaction; // Return the completed transaction
 
         } catch (Exception e) {
@@ -120,6 +236,7 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
 
     /**
      * Transfers money between two users.
+     * Each attempt runs in its own database transaction so that a lock timeout or version conflict can be retried.
      *
      * @param senderUserId   the sender's user ID
      * @param receiverUserId the receiver's user ID
@@ -127,50 +244,189 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
      * @param username       the username initiating the transfer
      * @return the created transaction
      */
-    @Transactional
-    @CacheEvict(value = "transactionHistory", allEntries = true) // Clear cache for transaction history
     @Override
     public Transaction transferMoneyBetweenUsers(@Valid Long senderUserId, @Valid Long receiverUserId, @Valid @Positive BigDecimal amount, @NotBlank String username) {
         try {
-            // Fetching sender and receiver accounts by user IDs
-            Account sender = accountRepository.findById(senderUserId)
-                    .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
-
-            Account receiver = accountRepository.findById(receiverUserId)
-                    .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+            return executeWithRetry(() -> {
+                if (concurrencyMode == ConcurrencyMode.ATOMIC) {
+                    // Checked before the lookup, which needs two distinct ids
+                    if (senderUserId.equals(receiverUserId)) {
+                        log.warn(MessageConstants.Logs.SAME_ACCOUNT_TRANSFER_LOG);
+                        throw new IllegalArgumentException(MessageConstants.Exceptions.SAME_ACCOUNT_TRANSFER);
+                    }
+                    List<AccountTransferView> views = accountRepository.findTransferViewsByIdIn(Set.of(senderUserId, receiverUserId));
+                    AccountTransferView sender = views.stream()
+                            .filter(view -> view.id().equals(senderUserId))
+                            .findFirst()
+                            .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
+                    AccountTransferView receiver = views.stream()
+                            .filter(view -> view.id().equals(receiverUserId))
+                            .findFirst()
+                            .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+                    return transferAtomically(sender, receiver, amount, username);
+                }
+
+                // Fetching sender and receiver accounts by their IDs
+                TransferAccounts accounts = loadAccounts(senderUserId, receiverUserId);
+                Account sender = accounts.sender();
+                Account receiver = accounts.receiver();
+
+                // Validation: Prevent transferring to the same account
+                UserTransferRequestValidation(sender, receiver);
+
+                // Validating the transfer details
+                validateTransfer(sender, receiver, amount, username);
+
+                // Performing the transfer
+                sender.setBalance(sender.getBalance().subtract(amount));
+                receiver.setBalance(receiver.getBalance().add(amount));
+
+                // Saving updated accounts
+                accountRepository.save(sender);
+                accountRepository.save(receiver);
+
+                // Map to Transaction using the mapper
+                Transaction mapperTransactionById = transactionMapper.toTransactionById(sender, receiver, amount);
+
+                // Logging the successful transfer between users
+                log.info(MessageConstants.Logs.TRANSFER_BETWEEN_USERS_COMPLETED, amount, sender.getUser().getUsername(), receiver.getUser().getUsername());
+
+                // Saving the transaction and queueing the email notification, it is sent after commit
+                Transaction completedTransaction = transactionRepository.save(mapperTransactionById);
+                emailOutboxDispatcher.enqueue(completedTransaction);
+                historyCacheMaintainer.onTransactionSaved(completedTransaction, sender.getUser().getId(), receiver.getUser().getId());
+
+                return completedTransaction; // Return the completed transaction
+            });
 
-            // Validation: Prevent transferring to the same account
-            UserTransferRequestValidation(sender, receiver);
-
-            // Validating the transfer details
-            validateTransfer(sender, receiver, amount, username);
-
-            // Performing the transfer
-            sender.setBalance(sender.getBalance().subtract(amount));
-            receiver.setBalance(receiver.getBalance().add(amount));
+        } catch (Exception e) {
+            // Log the error for debugging purposes
+            log.error(MessageConstants.Logs.GENERAL_OPERATION_FAILED, e.getMessage(), e);
+            // Handle specific exceptions as needed or rethrow to trigger transaction rollback
+            throw new RuntimeException(MessageConstants.Logs.GENERAL_OPERATION_FAILED + e.getMessage(), e);
+        }
+    }
 
-            // Saving updated accounts
-            accountRepository.save(sender);
-            accountRepository.save(receiver);
+    /**
+     * Applies a list of card transfers. The initiating user and all card numbers are resolved once
+     * for the whole batch, then the valid items are applied in chunks of {@code transaction.batch.chunkSize},
+     * each chunk in one database transaction with its Transaction rows inserted as a JDBC batch.
+     * Items are applied in request order, so an item may fail for insufficient funds that an earlier
+     * item of the same batch used up.
+     *
+     * @param transferRequests the transfers to apply
+     * @param username         the username initiating the transfers
+     * @return one result per request, in request order
+     */
+    @Override
+    public List<BatchTransferResult> transferBatch(List<TransferRequest> transferRequests, String username) {
+        log.info(MessageConstants.Logs.BATCH_TRANSFER_STARTED, transferRequests.size(), username);
+        boolean isAdmin = userService.findSnapshotByUsername(username).isAdmin();
+
+        // One IN query resolves every card number of the batch
+        Set<String> cardNumbers = new HashSet<>();
+        for (TransferRequest transferRequest : transferRequests) {
+            cardNumbers.add(transferRequest.getSenderCardNumber());
+            cardNumbers.add(transferRequest.getReceiverCardNumber());
+        }
+        cardNumbers.remove(null);
+        Map<String, AccountTransferView> views = accountRepository.findTransferViewsByCardNumberIn(cardNumbers).stream()
+                .collect(Collectors.toMap(AccountTransferView::cardNumber, Function.identity()));
+
+        // Rule checks need no row locks, rejected items never reach the database transaction
+        BatchTransferResult[] results = new BatchTransferResult[transferRequests.size()];
+        List<Integer> accepted = new ArrayList<>();
+        for (int i = 0; i < transferRequests.size(); i++) {
+            try {
+                checkBatchItem(transferRequests.get(i), views, isAdmin, username);
+                accepted.add(i);
+            } catch (RuntimeException e) {
+                results[i] = BatchTransferResult.failed(i, e.getMessage());
+            }
+        }
 
-            // Map to Transaction using the mapper
-            Transaction mapperTransactionById = transactionMapper.toTransactionById(sender, receiver, amount);
+        for (int from = 0; from < accepted.size(); from += batchChunkSize) {
+            List<Integer> chunk = accepted.subList(from, Math.min(from + batchChunkSize, accepted.size()));
+            try {
+                Map<Integer, BatchTransferResult> chunkResults = executeWithRetry(() ->
+                        applyBatchChunk(chunk, transferRequests, views, isAdmin, username));
+                chunkResults.forEach((index, result) -> results[index] = result);
+            } catch (RuntimeException e) {
+                // The chunk was rolled back as a whole, later chunks still run
+                log.error(MessageConstants.Logs.BATCH_CHUNK_FAILED, from / batchChunkSize + 1, e.getMessage(), e);
+                for (Integer index : chunk) {
+                    results[index] = BatchTransferResult.failed(index, e.getMessage());
+                }
+            }
+        }
 
-            // Logging the successful transfer between users
-            log.info(MessageConstants.Logs.TRANSFER_BETWEEN_USERS_COMPLETED, amount, sender.getUser().getUsername(), receiver.getUser().getUsername());
+        log.info(MessageConstants.Logs.BATCH_TRANSFER_COMPLETED, transferRequests.size(), username);
+        return Arrays.asList(results);
+    }
 
-            // Saving the transaction and sending email notification
-            Transaction completedTransaction = transactionRepository.save(mapperTransactionById);
-            emailService.sendTransactionEmail(completedTransaction);
+    private void checkBatchItem(TransferRequest transferRequest, Map<String, AccountTransferView> views, boolean isAdmin, String username) {
+        validateCardNumberFormat(transferRequest.getSenderCardNumber());
+        validateCardNumberFormat(transferRequest.getReceiverCardNumber());
+        validateTransferRequest(transferRequest);
 
-            return completedTransaction; // Return the completed transaction
+        AccountTransferView sender = views.get(transferRequest.getSenderCardNumber());
+        if (sender == null) {
+            throw new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND);
+        }
+        AccountTransferView receiver = views.get(transferRequest.getReceiverCardNumber());
+        if (receiver == null) {
+            throw new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND);
+        }
+        if (transferRequest.getAmount() == null) {
+            throw new IllegalArgumentException(MessageConstants.Exceptions.INVALID_TRANSFER_AMOUNT);
+        }
+        checkTransferRules(sender.username(), sender.currency(), receiver.currency(), transferRequest.getAmount(), username, isAdmin);
+    }
 
-        } catch (Exception e) {
-            // Log the error for debugging purposes
-            log.error(MessageConstants.Logs.GENERAL_OPERATION_FAILED, e.getMessage(), e);
-            // Handle specific exceptions as needed or rethrow to trigger transaction rollback
-            throw new RuntimeException(MessageConstants.Logs.GENERAL_OPERATION_FAILED + e.getMessage(), e);
+    /**
+     * Applies one chunk of a batch inside the current database transaction.
+     * Every account row of the chunk is locked up front with one statement in ascending id order,
+     * so the chunk cannot deadlock with other chunks or single transfers, and each item can then
+     * debit before crediting: a rejected debit leaves nothing to undo.
+     */
+    private Map<Integer, BatchTransferResult> applyBatchChunk(List<Integer> chunk, List<TransferRequest> transferRequests,
+                                                              Map<String, AccountTransferView> views, boolean isAdmin, String username) {
+        Set<Long> accountIds = new TreeSet<>();
+        for (Integer index : chunk) {
+            accountIds.add(views.get(transferRequests.get(index).getSenderCardNumber()).id());
+            accountIds.add(views.get(transferRequests.get(index).getReceiverCardNumber()).id());
+        }
+        accountRepository.lockAllByIdIn(accountIds);
+
+        Map<Integer, BatchTransferResult> results = new HashMap<>();
+        Map<Integer, Transaction> pending = new LinkedHashMap<>();
+        for (Integer index : chunk) {
+            TransferRequest transferRequest = transferRequests.get(index);
+            AccountTransferView sender = views.get(transferRequest.getSenderCardNumber());
+            AccountTransferView receiver = views.get(transferRequest.getReceiverCardNumber());
+            try {
+                debit(sender, transferRequest.getAmount(), isAdmin, username);
+            } catch (IllegalArgumentException e) {
+                results.put(index, BatchTransferResult.failed(index, e.getMessage()));
+                continue;
+            }
+            credit(receiver, transferRequest.getAmount());
+            pending.put(index, newTransaction(sender, receiver, transferRequest.getAmount()));
         }
+
+        // Sequence-generated ids let Hibernate send these inserts as JDBC batches
+        transactionRepository.saveAll(pending.values());
+        Set<Long> affectedUserIds = new HashSet<>();
+        pending.forEach((index, transaction) -> {
+            emailOutboxDispatcher.enqueue(transaction);
+            results.put(index, BatchTransferResult.success(index, transaction.getId()));
+            TransferRequest transferRequest = transferRequests.get(index);
+            affectedUserIds.add(views.get(transferRequest.getSenderCardNumber()).userId());
+            affectedUserIds.add(views.get(transferRequest.getReceiverCardNumber()).userId());
+        });
+        // A chunk can touch many rows of one history, so those histories are reloaded rather than patched
+        historyCacheMaintainer.evictAfterCommit(affectedUserIds);
+        return results;
     }
 
     // Validation of transfer request
@@ -181,6 +437,194 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
         }
     }
 
+    /**
+     * Moves the funds with single-statement conditional updates instead of load-modify-save.
+     * The debit succeeds only if the balance covers the amount, decided by the affected-row count,
+     * so no Account entity is loaded and the row locks are held only for the two updates and the insert.
+     * The updates run in ascending id order, matching the pessimistic lock order, so crossing
+     * transfers cannot deadlock.
+     *
+     * @param sender   the sender's account projection
+     * @param receiver the receiver's account projection
+     * @param amount   the amount to transfer
+     * @param username the username initiating the transfer
+     * @return the saved transaction
+     */
+    private Transaction transferAtomically(AccountTransferView sender, AccountTransferView receiver, BigDecimal amount, String username) {
+        boolean isAdmin = checkTransferRules(sender.username(), sender.currency(), receiver.currency(), amount, username);
+
+        if (sender.id() < receiver.id()) {
+            debit(sender, amount, isAdmin, username);
+            credit(receiver, amount);
+        } else {
+            credit(receiver, amount);
+            debit(sender, amount, isAdmin, username);
+        }
+
+        Transaction completedTransaction = transactionRepository.save(newTransaction(sender, receiver, amount));
+        log.info(MessageConstants.Logs.TRANSFER_BETWEEN_USERS_COMPLETED, amount, sender.username(), receiver.username());
+
+        // Queueing the transaction email and refreshing both users' cached histories, after commit
+        emailOutboxDispatcher.enqueue(completedTransaction);
+        historyCacheMaintainer.onTransactionSaved(completedTransaction, sender.userId(), receiver.userId());
+
+        return completedTransaction;
+    }
+
+    // References only carry the foreign keys, the rows are not read again for the insert
+    private Transaction newTransaction(AccountTransferView sender, AccountTransferView receiver, BigDecimal amount) {
+        Transaction transaction = new Transaction();
+        transaction.setAmount(amount);
+        transaction.setSenderAccount(accountRepository.getReferenceById(sender.id()));
+        transaction.setReceiverAccount(accountRepository.getReferenceById(receiver.id()));
+        transaction.setSender(userRepository.getReferenceById(sender.userId()));
+        transaction.setReceiver(userRepository.getReferenceById(receiver.userId()));
+        return transaction;
+    }
+
+    private void debit(AccountTransferView sender, BigDecimal amount, boolean isAdmin, String username) {
+        int updated = isAdmin
+                ? accountRepository.debit(sender.id(), amount)
+                : accountRepository.debitIfSufficientFunds(sender.id(), amount);
+        if (updated == 0) {
+            log.warn(MessageConstants.Logs.INSUFFICIENT_FUNDS, username, maskCardNumber(sender.cardNumber()));
+            throw new IllegalArgumentException(MessageConstants.Exceptions.INSUFFICIENT_BALANCE);
+        }
+    }
+
+    private void credit(AccountTransferView receiver, BigDecimal amount) {
+        if (accountRepository.credit(receiver.id(), amount) == 0) {
+            throw new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND);
+        }
+    }
+
+    /**
+     * Runs a transfer in a new database transaction, retrying when the account locks cannot be
+     * acquired in time (pessimistic mode) or another transfer changed an account first (optimistic mode).
+     * The failed attempt is rolled back before the next one starts.
+     *
+     * @param transfer the transfer body executed inside the transaction
+     * @return the result of the transfer body
+     */
+    private <T> T executeWithRetry(Supplier<T> transfer) {
+        int maxAttempts = concurrencyMode == ConcurrencyMode.OPTIMISTIC ? maxOptimisticAttempts : maxLockAttempts;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                T result = transactionTemplate.execute(status -> transfer.get());
+                attemptsSummary.record(attempt);
+                return result;
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    retriesExhaustedCounter.increment();
+                    log.error(MessageConstants.Logs.TRANSFER_RETRIES_EXHAUSTED, attempt, concurrencyMode);
+                    throw e;
+                }
+                retryCounter.increment();
+                log.warn(MessageConstants.Logs.TRANSFER_RETRY, attempt, maxAttempts, concurrencyMode);
+                backOff(attempt, e);
+            }
+        }
+    }
+
+    /**
+     * Waits before the next attempt. Lock timeouts back off linearly; version conflicts use
+     * exponential backoff with full jitter so that colliding transfers spread out instead of
+     * colliding again on the same hot account.
+     *
+     * @param attempt the number of the attempt that just failed
+     * @param cause   the concurrency failure, rethrown if the thread is interrupted while waiting
+     */
+    private void backOff(int attempt, ConcurrencyFailureException cause) {
+        long delayMs = concurrencyMode == ConcurrencyMode.OPTIMISTIC
+                ? ThreadLocalRandom.current().nextLong(optimisticBackoffMs * (1L << Math.min(attempt - 1, 10)) + 1)
+                : lockRetryBackoffMs * attempt;
+        if (delayMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+
+    /**
+     * Loads the accounts of a card transfer. Pessimistic mode resolves the ids first so the
+     * rows can be locked in canonical order; optimistic mode reads them directly.
+     *
+     * @param senderCardNumber   the sender's card number
+     * @param receiverCardNumber the receiver's card number
+     * @return the sender and receiver accounts
+     */
+    private TransferAccounts loadAccountsByCardNumber(String senderCardNumber, String receiverCardNumber) {
+        if (concurrencyMode == ConcurrencyMode.OPTIMISTIC) {
+            Account sender = accountRepository.findByCardNumber(senderCardNumber)
+                    .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
+            Account receiver = accountRepository.findByCardNumber(receiverCardNumber)
+                    .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+            return new TransferAccounts(sender, receiver);
+        }
+        Long senderId = accountRepository.findIdByCardNumber(senderCardNumber)
+                .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
+        Long receiverId = accountRepository.findIdByCardNumber(receiverCardNumber)
+                .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+        return lockAccountsInOrder(senderId, receiverId);
+    }
+
+    /**
+     * Loads the accounts of a transfer by id, locking them in pessimistic mode.
+     *
+     * @param senderId   the sender's account ID
+     * @param receiverId the receiver's account ID
+     * @return the sender and receiver accounts
+     */
+    private TransferAccounts loadAccounts(Long senderId, Long receiverId) {
+        if (concurrencyMode == ConcurrencyMode.OPTIMISTIC) {
+            Account sender = accountRepository.findById(senderId)
+                    .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
+            Account receiver = accountRepository.findById(receiverId)
+                    .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+            return new TransferAccounts(sender, receiver);
+        }
+        return lockAccountsInOrder(senderId, receiverId);
+    }
+
+    /**
+     * Locks the sender and receiver accounts with SELECT ... FOR UPDATE, always taking the
+     * lower id first. Every transfer acquires its locks in the same global order, so two
+     * transfers over the same pair of accounts wait for each other instead of deadlocking.
+     * Waits are bounded by {@code transaction.lock.waitTimeoutSeconds}, set on every pooled connection
+     * by {@link com.mthree.bankmthree.config.JpaConfig}, after which the attempt is retried.
+     *
+     * @param senderId   the sender's account ID
+     * @param receiverId the receiver's account ID
+     * @return the locked sender and receiver accounts
+     */
+    private TransferAccounts lockAccountsInOrder(Long senderId, Long receiverId) {
+        if (senderId.equals(receiverId)) {
+            Account account = lockAccount(senderId, true);
+            return new TransferAccounts(account, account);
+        }
+        if (senderId < receiverId) {
+            Account sender = lockAccount(senderId, true);
+            Account receiver = lockAccount(receiverId, false);
+            return new TransferAccounts(sender, receiver);
+        }
+        Account receiver = lockAccount(receiverId, false);
+        Account sender = lockAccount(senderId, true);
+        return new TransferAccounts(sender, receiver);
+    }
+
+    private Account lockAccount(Long accountId, boolean isSender) {
+        if (isSender) {
+            return accountRepository.findByIdForUpdate(accountId)
+                    .orElseThrow(() -> new AccountsNotFoundException(MessageConstants.Exceptions.SENDER_ACCOUNT_NOT_FOUND));
+        }
+        return accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new ReceiverAccountNotFoundException(MessageConstants.Exceptions.RECEIVER_ACCOUNT_NOT_FOUND));
+    }
+
     /**
      * Retrieves the transaction history for a user.
      *
@@ -191,10 +635,59 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
     @Cacheable(value = "transactionHistory", key = "#userId")
     @Override
     public List<TransactionResponse> getTransactionHistory(Long userId) {
+        historyLoadCounter.increment(); // Only runs on a cache miss
         List<Transaction> transactions = transactionRepository.findByUserIdOrderByTimestampDesc(userId);
         return transactions.stream().map(transactionMapper::toResponse).collect(Collectors.toList());
     }
 
+    /**
+     * Retrieves one page of the transaction history using a keyset cursor.
+     * One extra row is fetched to tell whether another page follows.
+     *
+     * @param userId the user ID
+     * @param cursor the cursor returned with the previous page, or null for the first page
+     * @param size   the requested page size, capped at {@code transaction.history.maxPageSize}
+     * @return the page of transactions
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public TransactionHistoryPage getTransactionHistoryPage(Long userId, String cursor, Integer size) {
+        int pageSize = size == null || size <= 0 ? historyPageSize : Math.min(size, historyMaxPageSize);
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+
+        List<TransactionResponse> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionRepository.findHistoryFirstPage(userId, limit);
+        } else {
+            HistoryCursor position = HistoryCursor.decode(cursor);
+            rows = transactionRepository.findHistoryPageAfter(userId, position.timestamp(), position.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TransactionResponse> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = null;
+        if (hasMore) {
+            TransactionResponse last = items.get(items.size() - 1);
+            nextCursor = new HistoryCursor(last.getTimestamp(), last.getTransactionId()).encode();
+        }
+        return new TransactionHistoryPage(new ArrayList<>(items), nextCursor, hasMore);
+    }
+
+    /**
+     * Streams the transaction history row by row. The rows are DTO projections rather than
+     * managed entities, so the persistence context does not grow with the history.
+     *
+     * @param userId   the user ID
+     * @param consumer receives each transaction in order
+     */
+    @Transactional(readOnly = true)
+    @Override
+    public void streamTransactionHistory(Long userId, Consumer<TransactionResponse> consumer) {
+        try (Stream<TransactionResponse> history = transactionRepository.streamHistory(userId)) {
+            history.forEach(consumer);
+        }
+    }
+
     /**
      * Validates the transfer request by checking card number formats and preventing same-account transfers.
      *
@@ -217,20 +710,54 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
      * @param username the username initiating the transfer
      */
     private void validateTransfer(Account sender, Account receiver, BigDecimal amount, String username) {
+        boolean isAdmin = checkTransferRules(sender.getUser().getUsername(), sender.getCurrency(), receiver.getCurrency(), amount, username);
+
+        // Check for sufficient funds
+        if (!isAdmin && sender.getBalance().compareTo(amount) < 0) {
+            log.warn(MessageConstants.Logs.INSUFFICIENT_FUNDS, username, maskCardNumber(sender.getCardNumber()));
+            throw new IllegalArgumentException(MessageConstants.Exceptions.INSUFFICIENT_BALANCE);
+        }
+    }
+
+    /**
+     * Checks the authorization, currency and amount rules shared by all transfer modes.
+     *
+     * @param senderUsername   the username of the sender account's owner
+     * @param senderCurrency   the currency of the sender's account
+     * @param receiverCurrency the currency of the receiver's account
+     * @param amount           the amount to transfer
+     * @param username         the username initiating the transfer
+     * @return true if the initiating user is an administrator
+     */
+    private boolean checkTransferRules(String senderUsername, CurrencyType senderCurrency, CurrencyType receiverCurrency, BigDecimal amount, String username) {
         // Logging the validation process
         log.info(MessageConstants.Logs.VALIDATING_TRANSFER, username);
 
-        User user = userService.findByUsername(username);
-        boolean isAdmin = user.getRole().equals(Role.ROLE_ADMIN);
+        boolean isAdmin = userService.findSnapshotByUsername(username).isAdmin();
 
+        checkTransferRules(senderUsername, senderCurrency, receiverCurrency, amount, username, isAdmin);
+        return isAdmin;
+    }
+
+    /**
+     * Checks the transfer rules for an initiating user whose role is already known.
+     *
+     * @param senderUsername   the username of the sender account's owner
+     * @param senderCurrency   the currency of the sender's account
+     * @param receiverCurrency the currency of the receiver's account
+     * @param amount           the amount to transfer
+     * @param username         the username initiating the transfer
+     * @param isAdmin          whether the initiating user is an administrator
+     */
+    private void checkTransferRules(String senderUsername, CurrencyType senderCurrency, CurrencyType receiverCurrency, BigDecimal amount, String username, boolean isAdmin) {
         // Check for authorization
-        if (!isAdmin && !sender.getUser().getUsername().equals(username)) {
+        if (!isAdmin && !senderUsername.equals(username)) {
             log.warn(MessageConstants.ErrorCodes.UNAUTHORIZED_TRANSFER, username);
             throw new UnauthorizedTransferException(MessageConstants.Exceptions.UNAUTHORIZED_TRANSFER);
         }
 
         // Check for currency mismatch
-        if (!sender.getCurrency().equals(receiver.getCurrency())) {
+        if (!senderCurrency.equals(receiverCurrency)) {
             log.warn(MessageConstants.Logs.CURRENCY_MISMATCH_LOG);
             throw new IllegalArgumentException(MessageConstants.Exceptions.CURRENCY_MISMATCH);
         }
@@ -240,12 +767,6 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
             log.warn(MessageConstants.Logs.INVALID_TRANSFER_AMOUNT, amount);
             throw new IllegalArgumentException(MessageConstants.Exceptions.INVALID_TRANSFER_AMOUNT);
         }
-
-        // Check for sufficient funds
-        if (!isAdmin && sender.getBalance().compareTo(amount) < 0) {
-            log.warn(MessageConstants.Logs.INSUFFICIENT_FUNDS, username, maskCardNumber(sender.getCardNumber()));
-            throw new IllegalArgumentException(MessageConstants.Exceptions.INSUFFICIENT_BALANCE);
-        }
     }
 
     /**
@@ -270,4 +791,8 @@ public class TransactionServiceImpl implements com.mthree.bankmthree.service.Tra
         if (cardNumber == null || cardNumber.length() < 4) return "****";
         return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
     }
-}
\ No newline at end of file
+
+    // Sender and receiver accounts taking part in a transfer
+    private record TransferAccounts(Account sender, Account receiver) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.util.BloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory Bloom filters over the unique registration fields (username and the email, SSN and phone
+ * blind indexes), so that a value that is definitely not taken needs no database query.
+ * Built from {@code user_profiles} once the application is ready and again on a schedule, which drops
+ * values of deleted or changed profiles; new values are added as they are saved. Until the first build
+ * completes every value is reported as possibly taken. Unique constraints remain the final check.
+ */
+@Component
+@Slf4j
+public class UserFieldBloomFilters {
+    public enum Field { USERNAME, EMAIL, SSN, PHONE }
+
+    // Tags the check counters, so profile updates do not skew the registration hit rates
+    public enum Operation { REGISTER, UPDATE }
+
+    private static final String SELECT_FIELDS = "SELECT username, email_index, ssn_index, phone_index FROM user_profiles";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final Map<Operation, Counter> skippedCounters = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> queriedCounters = new EnumMap<>(Operation.class);
+    private final Map<Operation, Counter> falsePositiveCounters = new EnumMap<>(Operation.class);
+    private final AtomicLong lastRebuildMs = new AtomicLong();
+
+    private volatile Map<Field, BloomFilter> filters;
+    // Filters being rebuilt also receive new values, so none saved during the scan is lost on swap
+    private volatile Map<Field, BloomFilter> building;
+
+    public UserFieldBloomFilters(JdbcTemplate jdbcTemplate,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${registration.bloom.expectedInsertions:1000000}") long expectedInsertions,
+                                 @Value("${registration.bloom.fpp:0.01}") double fpp) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        for (Operation operation : Operation.values()) {
+            skippedCounters.put(operation, checkCounter(meterRegistry, operation, "skipped", "Checks whose fields were all definitely new"));
+            queriedCounters.put(operation, checkCounter(meterRegistry, operation, "queried", "Checks that needed the collision query"));
+            falsePositiveCounters.put(operation, checkCounter(meterRegistry, operation, "false_positive", "Collision queries that found nothing"));
+        }
+        Gauge.builder("bank.registration.bloom.rebuild.duration", lastRebuildMs, AtomicLong::get)
+                .description("Duration of the last Bloom filter rebuild in milliseconds")
+                .register(meterRegistry);
+        for (Field field : Field.values()) {
+            Gauge.builder("bank.registration.bloom.fpp", this, bloomFilters -> bloomFilters.expectedFpp(field))
+                    .description("Estimated false positive rate of a user field Bloom filter")
+                    .tag("field", field.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Tells whether any of the values may already be taken. Null values are ignored.
+     * A false answer is definite; a true answer must be confirmed by querying the database.
+     * The answer is counted under the given operation.
+     */
+    public boolean mightContainAny(Operation operation, String username, String emailIndex, String ssnIndex, String phoneIndex) {
+        Map<Field, BloomFilter> current = filters;
+        boolean mightContain = current == null
+                || mightContain(current, Field.USERNAME, username)
+                || mightContain(current, Field.EMAIL, emailIndex)
+                || mightContain(current, Field.SSN, ssnIndex)
+                || mightContain(current, Field.PHONE, phoneIndex);
+        (mightContain ? queriedCounters : skippedCounters).get(operation).increment();
+        return mightContain;
+    }
+
+    public void add(Field field, String value) {
+        if (value == null) {
+            return;
+        }
+        Map<Field, BloomFilter> current = filters;
+        if (current != null) {
+            current.get(field).put(value);
+        }
+        Map<Field, BloomFilter> next = building;
+        if (next != null) {
+            next.get(field).put(value);
+        }
+    }
+
+    /**
+     * Records that a value reported as possibly taken turned out to be free.
+     */
+    public void recordFalsePositive(Operation operation) {
+        falsePositiveCounters.get(operation).increment();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${registration.bloom.rebuildCron:0 30 3 * * *}")
+    public synchronized void rebuild() {
+        long startedAt = System.nanoTime();
+        Map<Field, BloomFilter> next = new EnumMap<>(Field.class);
+        for (Field field : Field.values()) {
+            next.put(field, BloomFilter.create(expectedInsertions, fpp));
+        }
+        building = next;
+        try {
+            AtomicLong rows = new AtomicLong();
+            // Streams the rows instead of buffering the whole table
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(SELECT_FIELDS, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(Integer.MIN_VALUE);
+                return statement;
+            }, rs -> {
+                putIfPresent(next, Field.USERNAME, rs.getString("username"));
+                putIfPresent(next, Field.EMAIL, rs.getString("email_index"));
+                putIfPresent(next, Field.SSN, rs.getString("ssn_index"));
+                putIfPresent(next, Field.PHONE, rs.getString("phone_index"));
+                rows.incrementAndGet();
+            });
+            filters = next;
+            lastRebuildMs.set((System.nanoTime() - startedAt) / 1_000_000);
+            log.info(MessageConstants.Logs.USER_FIELD_FILTERS_REBUILT, rows.get(), lastRebuildMs.get(), fppByField(next));
+        } catch (DataAccessException e) {
+            // The previous filters, if any, stay in use
+            log.warn(MessageConstants.Logs.USER_FIELD_FILTERS_REBUILD_FAILED, e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    private double expectedFpp(Field field) {
+        Map<Field, BloomFilter> current = filters;
+        return current == null ? 1.0 : current.get(field).expectedFpp();
+    }
+
+    private Map<Field, String> fppByField(Map<Field, BloomFilter> filters) {
+        Map<Field, String> rates = new EnumMap<>(Field.class);
+        filters.forEach((field, filter) -> rates.put(field, String.format("%.5f", filter.expectedFpp())));
+        return rates;
+    }
+
+    private static boolean mightContain(Map<Field, BloomFilter> filters, Field field, String value) {
+        return value != null && filters.get(field).mightContain(value);
+    }
+
+    private static void putIfPresent(Map<Field, BloomFilter> filters, Field field, String value) {
+        if (value != null) {
+            filters.get(field).put(value);
+        }
+    }
+
+    private static Counter checkCounter(MeterRegistry meterRegistry, Operation operation, String result, String description) {
+        return Counter.builder("bank.registration.bloom.checks")
+                .description(description)
+                .tag("operation", operation.name().toLowerCase())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
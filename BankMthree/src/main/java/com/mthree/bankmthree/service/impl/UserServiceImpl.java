@@ -4,6 +4,8 @@ import com.mthree.bankmthree.constants.MessageConstants;
 import com.mthree.bankmthree.dto.auth.RegisterRequest;
 import com.mthree.bankmthree.dto.user.UpdateUserRequest;
 import com.mthree.bankmthree.dto.user.UserDTO;
+import com.mthree.bankmthree.dto.user.UserFieldCollisions;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
 import com.mthree.bankmthree.entity.Account;
 import com.mthree.bankmthree.entity.User;
 import com.mthree.bankmthree.entity.UserProfile;
@@ -16,6 +18,7 @@ import com.mthree.bankmthree.mapper.UserMapper;
 import com.mthree.bankmthree.repository.UserRepository;
 import com.mthree.bankmthree.service.AccountService;
 import com.mthree.bankmthree.service.UserService;
+import com.mthree.bankmthree.util.BlindIndexer;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.exception.ConstraintViolationException;
@@ -28,8 +31,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -43,13 +46,18 @@ public class UserServiceImpl implements UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AccountService accountService;
+    private final BlindIndexer blindIndexer;
+    private final UserFieldBloomFilters userFieldBloomFilters;
 
     @Autowired
-    public UserServiceImpl(UserMapper userMapper, UserRepository userRepository, PasswordEncoder passwordEncoder, AccountService accountService) {
+    public UserServiceImpl(UserMapper userMapper, UserRepository userRepository, PasswordEncoder passwordEncoder, AccountService accountService,
+                           BlindIndexer blindIndexer, UserFieldBloomFilters userFieldBloomFilters) {
         this.userMapper = userMapper;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.accountService = accountService;
+        this.blindIndexer = blindIndexer;
+        this.userFieldBloomFilters = userFieldBloomFilters;
     }
 
     /**
@@ -89,8 +97,12 @@ public class UserServiceImpl implements UserService {
     public UserDTO createUser(@Valid RegisterRequest registerRequest) {
         log.info(MessageConstants.Logs.CREATING_USER, registerRequest.getUsername());
 
+        String emailIndex = blindIndexer.emailIndex(registerRequest.getEmail());
+        String ssnIndex = blindIndexer.ssnIndex(registerRequest.getSsn());
+        String phoneIndex = blindIndexer.phoneIndex(registerRequest.getPhone());
+
         // Validate the registration request fields
-        validateUserFields(registerRequest);
+        validateUserFields(registerRequest.getUsername(), emailIndex, ssnIndex, phoneIndex);
         validatePassword(registerRequest.getPassword());
 
         // Map RegisterRequest to UserProfile using the mapper
@@ -105,10 +117,21 @@ public class UserServiceImpl implements UserService {
             User savedUser = userRepository.save(user);
 
             // Create and associate accounts with the saved user
-            Account usdAccount = accountService.createAndInitializeAccount(CurrencyType.USD, savedUser);
-            Account eurAccount = accountService.createAndInitializeAccount(CurrencyType.EUR, savedUser);
+            List<Account> accounts = accountService.createAndInitializeAccounts(savedUser, CurrencyType.USD, CurrencyType.EUR);
+
+            savedUser.setAccounts(new HashSet<>(accounts));
+
+            // Profile, user and accounts are flushed together here rather than at commit, so unique key
+            // violations surface inside this try and are mapped to the matching conflict error
+            userRepository.flush();
 
-            savedUser.setAccounts(new HashSet<>(Arrays.asList(usdAccount, eurAccount)));
+            // The filters only know this node's registrations; a value taken on another node since the last
+            // rebuild passes them, and is caught by the unique constraints on the flush above.
+            // A rolled-back registration leaves only a false positive behind
+            userFieldBloomFilters.add(UserFieldBloomFilters.Field.USERNAME, registerRequest.getUsername());
+            userFieldBloomFilters.add(UserFieldBloomFilters.Field.EMAIL, emailIndex);
+            userFieldBloomFilters.add(UserFieldBloomFilters.Field.SSN, ssnIndex);
+            userFieldBloomFilters.add(UserFieldBloomFilters.Field.PHONE, phoneIndex);
 
             log.info(MessageConstants.Logs.USER_CREATED_SUCCESSFULLY, savedUser.getUsername());
             return userMapper.toUserDTO(savedUser);
@@ -130,25 +153,37 @@ public class UserServiceImpl implements UserService {
      * @param e the DataIntegrityViolationException
      */
     private void handleDataIntegrityViolation(DataIntegrityViolationException e) {
-        // Inspect the root cause to determine which constraint was violated
-        Throwable rootCause = e.getRootCause();
-        if (rootCause instanceof ConstraintViolationException constraintViolationException) {
-            String constraintName = constraintViolationException.getConstraintName();
-
-            if ("unique_username".equalsIgnoreCase(constraintName)) {
-                throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_ALREADY_EXISTS);
-            } else if ("unique_email".equalsIgnoreCase(constraintName)) {
-                throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
-            } else if ("unique_ssn".equalsIgnoreCase(constraintName)) {
-                throw new UserSsnAlreadyExistsException(MessageConstants.Exceptions.USER_SSN_EXISTS);
-            } else if ("unique_phone".equalsIgnoreCase(constraintName)) {
-                throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
-            }
+        String constraintName = constraintName(e);
+
+        if ("unique_username".equalsIgnoreCase(constraintName)) {
+            throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_ALREADY_EXISTS);
+        } else if ("unique_email".equalsIgnoreCase(constraintName)) {
+            throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
+        } else if ("unique_ssn".equalsIgnoreCase(constraintName)) {
+            throw new UserSsnAlreadyExistsException(MessageConstants.Exceptions.USER_SSN_EXISTS);
+        } else if ("unique_phone".equalsIgnoreCase(constraintName)) {
+            throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
         }
         // Fallback for unknown constraints
         throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_PROVIDED_DETAILS_EXIST);
     }
 
+    /**
+     * Finds the name of the violated constraint. The root cause is the driver's SQLException, so the
+     * Hibernate exception carrying the name is looked up along the cause chain instead.
+     *
+     * @param e the DataIntegrityViolationException
+     * @return the constraint name, or null if it is not known
+     */
+    private static String constraintName(DataIntegrityViolationException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException constraintViolationException) {
+                return constraintViolationException.getConstraintName();
+            }
+        }
+        return null;
+    }
+
     /**
      * Updates an existing user's details.
      *
@@ -166,21 +201,17 @@ public class UserServiceImpl implements UserService {
         validateAndUpdateUserFields(updateUserRequest, user);
 
         try {
-            User updatedUser = userRepository.save(user);
+            // Flushed here so unique key violations are mapped below instead of failing the commit
+            User updatedUser = userRepository.saveAndFlush(user);
             log.info(MessageConstants.Logs.USER_UPDATED_SUCCESSFULLY, username);
             return getUserDto(updatedUser);
         } catch (DataIntegrityViolationException e) {
             log.error(MessageConstants.Logs.FAILED_TO_SAVE_USER, e);
-            // Inspect the root cause to determine which constraint was violated
-            Throwable rootCause = e.getRootCause();
-            if (rootCause instanceof ConstraintViolationException constraintViolationException) {
-                String constraintName = constraintViolationException.getConstraintName();
-
-                if ("unique_email".equalsIgnoreCase(constraintName)) {
-                    throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
-                } else if ("unique_phone".equalsIgnoreCase(constraintName)) {
-                    throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
-                }
+            String constraintName = constraintName(e);
+            if ("unique_email".equalsIgnoreCase(constraintName)) {
+                throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
+            } else if ("unique_phone".equalsIgnoreCase(constraintName)) {
+                throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
             }
             // Fallback for unknown constraints
             throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_PROVIDED_DETAILS_EXIST);
@@ -205,17 +236,27 @@ public class UserServiceImpl implements UserService {
         }
 
         if (updateUserRequest.getEmail() != null && !user.getProfile().getEmail().equals(updateUserRequest.getEmail())) {
-            if (userRepository.existsByProfile_Email(updateUserRequest.getEmail())) {
-                throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
+            String emailIndex = blindIndexer.emailIndex(updateUserRequest.getEmail());
+            if (userFieldBloomFilters.mightContainAny(UserFieldBloomFilters.Operation.UPDATE, null, emailIndex, null, null)) {
+                if (userRepository.existsByProfile_EmailIndex(emailIndex)) {
+                    throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
+                }
+                userFieldBloomFilters.recordFalsePositive(UserFieldBloomFilters.Operation.UPDATE);
             }
             user.getProfile().setEmail(updateUserRequest.getEmail());
+            userFieldBloomFilters.add(UserFieldBloomFilters.Field.EMAIL, emailIndex);
         }
 
         if (updateUserRequest.getPhone() != null && !user.getProfile().getPhone().equals(updateUserRequest.getPhone())) {
-            if (userRepository.existsByProfile_Phone(updateUserRequest.getPhone())) {
-                throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
+            String phoneIndex = blindIndexer.phoneIndex(updateUserRequest.getPhone());
+            if (userFieldBloomFilters.mightContainAny(UserFieldBloomFilters.Operation.UPDATE, null, null, null, phoneIndex)) {
+                if (userRepository.existsByProfile_PhoneIndex(phoneIndex)) {
+                    throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
+                }
+                userFieldBloomFilters.recordFalsePositive(UserFieldBloomFilters.Operation.UPDATE);
             }
             user.getProfile().setPhone(updateUserRequest.getPhone());
+            userFieldBloomFilters.add(UserFieldBloomFilters.Field.PHONE, phoneIndex);
         }
 
         if (updateUserRequest.getPassword() != null) {
@@ -226,20 +267,32 @@ public class UserServiceImpl implements UserService {
 
     /**
      * Validates user fields during registration to ensure uniqueness.
+     * Values the Bloom filters report as definitely new skip the database; otherwise a single
+     * query reports every field that collides.
      *
-     * @param registerRequest the registration request containing user details
+     * @param username   the requested username
+     * @param emailIndex the blind index of the email
+     * @param ssnIndex   the blind index of the SSN
+     * @param phoneIndex the blind index of the phone number
      */
-    private void validateUserFields(@Valid RegisterRequest registerRequest) {
-        if (userRepository.existsByProfile_Username(registerRequest.getUsername())) {
+    private void validateUserFields(String username, String emailIndex, String ssnIndex, String phoneIndex) {
+        if (!userFieldBloomFilters.mightContainAny(UserFieldBloomFilters.Operation.REGISTER, username, emailIndex, ssnIndex, phoneIndex)) {
+            return;
+        }
+        UserFieldCollisions collisions = UserFieldCollisions.merge(userRepository.findFieldCollisions(username, emailIndex, ssnIndex, phoneIndex));
+        if (collisions.none()) {
+            userFieldBloomFilters.recordFalsePositive(UserFieldBloomFilters.Operation.REGISTER);
+        }
+        if (collisions.username()) {
             throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_ALREADY_EXISTS);
         }
-        if (userRepository.existsByProfile_Email(registerRequest.getEmail())) {
+        if (collisions.email()) {
             throw new UserAlreadyExistsException(MessageConstants.Exceptions.USER_EMAIL_EXISTS);
         }
-        if (userRepository.existsByProfile_Ssn(registerRequest.getSsn())) {
+        if (collisions.ssn()) {
             throw new UserSsnAlreadyExistsException(MessageConstants.Exceptions.USER_SSN_EXISTS);
         }
-        if (userRepository.existsByProfile_Phone(registerRequest.getPhone())) {
+        if (collisions.phone()) {
             throw new UserPhoneAlreadyExistsException(MessageConstants.Exceptions.USER_PHONE_EXISTS);
         }
     }
@@ -294,7 +347,6 @@ public class UserServiceImpl implements UserService {
      * @return the found User entity
      */
     @Transactional(readOnly = true)
-    @Cacheable(value = "users", key = "#username")
     @PreAuthorize("hasRole('ADMIN') or #username == authentication.name")
     @Override
     public User findByUsername(String username) {
@@ -302,6 +354,22 @@ public class UserServiceImpl implements UserService {
         return userRepository.findByProfile_Username(username).orElseThrow(() -> new UserNotFoundException(MessageConstants.Exceptions.USER_NOT_FOUND));
     }
 
+    /**
+     * Finds the snapshot of a user by their username. The "users" cache holds snapshots rather
+     * than managed entities, so a hit is free of database work and lazy-loading surprises.
+     *
+     * @param username the username to search for
+     * @return the found UserSnapshot
+     */
+    @Transactional(readOnly = true)
+    @Cacheable(value = "users", key = "#username")
+    @PreAuthorize("hasRole('ADMIN') or #username == authentication.name")
+    @Override
+    public UserSnapshot findSnapshotByUsername(String username) {
+        log.info(MessageConstants.Logs.FINDING_USER_BY_USERNAME, username);
+        return userRepository.findSnapshotByUsername(username).orElseThrow(() -> new UserNotFoundException(MessageConstants.Exceptions.USER_NOT_FOUND));
+    }
+
     /**
      * Converts a set of User entities to a set of UserDTOs.
      *
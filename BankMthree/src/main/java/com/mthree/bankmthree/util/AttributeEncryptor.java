@@ -3,40 +3,176 @@ package com.mthree.bankmthree.util;
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
 import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Converter to encrypt and decrypt sensitive attributes.
+ * Values are written as {@code v1:<keyId>:<base64(iv | ciphertext | tag)>} using AES-GCM with a
+ * random IV and a key from the {@link AttributeKeyRing}. Values without the prefix were written by
+ * the earlier AES/ECB format and are still decrypted with its fixed key, or were stored before the
+ * column was encrypted at all; those are read as they are until the startup backfill rewrites them.
+ * Ciphers are reused from small bounded pools, since a provider lookup on every conversion adds up
+ * across entity loads. A pool rather than a thread-local keeps reuse effective on virtual threads.
  */
 @Converter
 public class AttributeEncryptor implements AttributeConverter<String, String> {
-    private static final String KEY = "MthreeBankApp";
-    private static final String ALGORITHM = "AES";
+    static final String VERSION_PREFIX = "v1:";
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH_BITS = 128;
+    private static final String LEGACY_KEY = "MthreeBankApp";
+    private static final String LEGACY_ALGORITHM = "AES";
+    // The legacy passphrase is not a valid AES key length, so its AES-128 key is derived from it
+    private static final SecretKeySpec LEGACY_SECRET_KEY = deriveKey(LEGACY_KEY);
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // GCM ciphers are initialized per message with a fresh IV; legacy ones once, for decryption only
+    private static final CipherPool GCM_CIPHERS = new CipherPool(() -> Cipher.getInstance(ALGORITHM));
+    private static final CipherPool LEGACY_DECRYPTORS = new CipherPool(() -> {
+        Cipher cipher = Cipher.getInstance(LEGACY_ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, LEGACY_SECRET_KEY);
+        return cipher;
+    });
+
+    private final AttributeKeyRing keyRing;
+
+    public AttributeEncryptor(AttributeKeyRing keyRing) {
+        this.keyRing = keyRing;
+    }
 
     @Override
     public String convertToDatabaseColumn(String attribute) {
         if (attribute == null) return null;
+        Cipher cipher = null;
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            SecretKeySpec key = new SecretKeySpec(KEY.getBytes(), ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, key);
-            return Base64.getEncoder().encodeToString(cipher.doFinal(attribute.getBytes()));
+            cipher = GCM_CIPHERS.borrow();
+            String keyId = keyRing.activeKeyId();
+            byte[] iv = new byte[IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            cipher.init(Cipher.ENCRYPT_MODE, keyRing.key(keyId), new GCMParameterSpec(TAG_LENGTH_BITS, iv));
+            // The key id is authenticated too, so a value cannot be relabelled to another key
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            byte[] encrypted = cipher.doFinal(attribute.getBytes(StandardCharsets.UTF_8));
+            byte[] payload = ByteBuffer.allocate(IV_LENGTH + encrypted.length).put(iv).put(encrypted).array();
+            return VERSION_PREFIX + keyId + ":" + Base64.getEncoder().encodeToString(payload);
         } catch (Exception e) {
+            cipher = null; // A cipher that failed mid-operation is not returned to the pool
             throw new RuntimeException("Error while encrypting data", e);
+        } finally {
+            GCM_CIPHERS.release(cipher);
         }
     }
 
     @Override
     public String convertToEntityAttribute(String dbData) {
         if (dbData == null) return null;
+        if (dbData.startsWith(VERSION_PREFIX)) {
+            return decrypt(dbData);
+        }
+        String legacy = decryptLegacy(dbData);
+        return legacy != null ? legacy : dbData;
+    }
+
+    /**
+     * Tells whether a stored value is in the versioned format, under any key. Unversioned values are
+     * legacy ciphertext or plaintext written before the column was encrypted.
+     *
+     * @param dbData the column value
+     * @return true if the value is null or versioned
+     */
+    public boolean isVersioned(String dbData) {
+        return dbData == null || dbData.startsWith(VERSION_PREFIX);
+    }
+
+    /**
+     * Tells whether a stored value is already in the current format under the active key.
+     *
+     * @param dbData the column value
+     * @return true if the value does not need to be re-encrypted
+     */
+    public boolean isCurrent(String dbData) {
+        return dbData == null || dbData.startsWith(VERSION_PREFIX + keyRing.activeKeyId() + ":");
+    }
+
+    private String decrypt(String dbData) {
+        Cipher cipher = null;
         try {
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            SecretKeySpec key = new SecretKeySpec(KEY.getBytes(), ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, key);
-            return new String(cipher.doFinal(Base64.getDecoder().decode(dbData)));
+            int keyEnd = dbData.indexOf(':', VERSION_PREFIX.length());
+            String keyId = dbData.substring(VERSION_PREFIX.length(), keyEnd);
+            byte[] payload = Base64.getDecoder().decode(dbData.substring(keyEnd + 1));
+            cipher = GCM_CIPHERS.borrow();
+            cipher.init(Cipher.DECRYPT_MODE, keyRing.key(keyId), new GCMParameterSpec(TAG_LENGTH_BITS, payload, 0, IV_LENGTH));
+            cipher.updateAAD(keyId.getBytes(StandardCharsets.UTF_8));
+            return new String(cipher.doFinal(payload, IV_LENGTH, payload.length - IV_LENGTH), StandardCharsets.UTF_8);
         } catch (Exception e) {
+            cipher = null;
             throw new RuntimeException("Error while decrypting data", e);
+        } finally {
+            GCM_CIPHERS.release(cipher);
+        }
+    }
+
+    // Returns null when the value is not legacy ciphertext: plaintext is not Base64 of whole AES blocks
+    // with valid padding, so it fails to decode or to decrypt
+    private String decryptLegacy(String dbData) {
+        Cipher cipher = null;
+        try {
+            byte[] encrypted = Base64.getDecoder().decode(dbData);
+            cipher = LEGACY_DECRYPTORS.borrow();
+            return new String(cipher.doFinal(encrypted), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException | GeneralSecurityException e) {
+            cipher = null;
+            return null;
+        } finally {
+            LEGACY_DECRYPTORS.release(cipher);
+        }
+    }
+
+    private static SecretKeySpec deriveKey(String passphrase) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(passphrase.getBytes(StandardCharsets.UTF_8));
+            return new SecretKeySpec(Arrays.copyOf(digest, 16), LEGACY_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to derive the attribute encryption key", e);
+        }
+    }
+
+    private interface CipherFactory {
+        Cipher create() throws GeneralSecurityException;
+    }
+
+    /**
+     * Idle ciphers of one kind. Borrowing never blocks: an empty pool creates a new cipher,
+     * and a full pool drops the returned one.
+     */
+    private static final class CipherPool {
+        private final CipherFactory factory;
+        private final BlockingQueue<Cipher> idle = new ArrayBlockingQueue<>(POOL_SIZE);
+
+        private CipherPool(CipherFactory factory) {
+            this.factory = factory;
+        }
+
+        private Cipher borrow() throws GeneralSecurityException {
+            Cipher cipher = idle.poll();
+            return cipher != null ? cipher : factory.create();
+        }
+
+        private void release(Cipher cipher) {
+            if (cipher != null) {
+                idle.offer(cipher);
+            }
         }
     }
-}
\ No newline at end of file
+}
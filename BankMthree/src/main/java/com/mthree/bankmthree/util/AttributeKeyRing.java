@@ -0,0 +1,59 @@
+package com.mthree.bankmthree.util;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AES keys for attribute encryption, configured as {@code encryption.attribute.keys=<id>:<base64 key>,...}.
+ * New values are encrypted under {@code encryption.attribute.activeKeyId}; retired keys stay in the
+ * ring until no row is encrypted under them any more.
+ */
+@Component
+public class AttributeKeyRing {
+    private final Map<String, SecretKeySpec> keys = new HashMap<>();
+    private final String activeKeyId;
+
+    public AttributeKeyRing(@Value("${encryption.attribute.keys}") List<String> keyEntries,
+                            @Value("${encryption.attribute.activeKeyId}") String activeKeyId) {
+        for (String entry : keyEntries) {
+            int separator = entry.indexOf(':');
+            if (separator <= 0) {
+                throw new IllegalStateException(String.format(MessageConstants.Exceptions.INVALID_ENCRYPTION_KEY, "missing key id"));
+            }
+            String keyId = entry.substring(0, separator).trim();
+            byte[] key = Base64.getDecoder().decode(entry.substring(separator + 1).trim());
+            if (key.length != 16 && key.length != 24 && key.length != 32) {
+                throw new IllegalStateException(String.format(MessageConstants.Exceptions.INVALID_ENCRYPTION_KEY, keyId));
+            }
+            keys.put(keyId, new SecretKeySpec(key, "AES"));
+        }
+        this.activeKeyId = activeKeyId;
+        key(activeKeyId);
+    }
+
+    public String activeKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * Returns the key with the given id.
+     *
+     * @param keyId the id written in front of the ciphertext
+     * @return the AES key
+     * @throws IllegalStateException if the key is not in the ring
+     */
+    public SecretKeySpec key(String keyId) {
+        SecretKeySpec key = keys.get(keyId);
+        if (key == null) {
+            throw new IllegalStateException(String.format(MessageConstants.Exceptions.UNKNOWN_ENCRYPTION_KEY, keyId));
+        }
+        return key;
+    }
+}
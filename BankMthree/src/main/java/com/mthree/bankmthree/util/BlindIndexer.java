@@ -0,0 +1,79 @@
+package com.mthree.bankmthree.util;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Computes blind indexes for encrypted attributes: an HMAC-SHA256 of the normalized value,
+ * stored next to the ciphertext so that equality lookups and unique constraints can use an index.
+ * The field name is part of the MAC input, so equal values in different fields do not share an index.
+ * Changing {@code encryption.blindIndex.key} requires recomputing every stored index.
+ */
+@Component
+public class BlindIndexer {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final SecretKeySpec key;
+    // Mac instances are not thread-safe; idle ones are reused for the same reason as in AttributeEncryptor
+    private final BlockingQueue<Mac> idle = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    public BlindIndexer(@Value("${encryption.blindIndex.key}") String base64Key) {
+        byte[] keyBytes = Base64.getDecoder().decode(base64Key);
+        if (keyBytes.length < 32) {
+            throw new IllegalStateException(String.format(MessageConstants.Exceptions.INVALID_ENCRYPTION_KEY, "blind index key"));
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    public String emailIndex(String email) {
+        return email == null ? null : index("email", email.trim().toLowerCase(Locale.ROOT));
+    }
+
+    public String phoneIndex(String phone) {
+        return phone == null ? null : index("phone", digits(phone));
+    }
+
+    public String ssnIndex(String ssn) {
+        return ssn == null ? null : index("ssn", digits(ssn));
+    }
+
+    private String index(String field, String normalized) {
+        Mac mac = idle.poll();
+        try {
+            if (mac == null) {
+                mac = Mac.getInstance(ALGORITHM);
+                mac.init(key);
+            }
+            mac.update(field.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            String index = HexFormat.of().formatHex(mac.doFinal(normalized.getBytes(StandardCharsets.UTF_8)));
+            idle.offer(mac);
+            return index;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to compute blind index", e);
+        }
+    }
+
+    private static String digits(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+}
@@ -7,12 +7,18 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.security.SecureRandom;
+import java.util.Base64;
 
 /**
  * Utility class responsible for generating unique and valid card numbers for user accounts.
  * Uses a cryptographically strong random number generator to ensure the unpredictability
  * and uniqueness of generated card numbers. Additionally, implement the Luhn algorithm
  * to validate the generated card numbers.
+ * <p>
+ * With {@code card.number.mode=permutation}, numbers are instead derived from a cluster-wide
+ * sequence passed through a keyed {@link FeistelPermutation} of the digits after the prefix.
+ * They remain unpredictable, and are unique without querying the accounts as long as the prefix
+ * is not shared with numbers issued in random mode.
  */
 @Component
 @Slf4j
@@ -25,6 +31,8 @@ public class CardNumberGenerator {
      */
     private static final SecureRandom RANDOM = new SecureRandom();
 
+    private static final String PERMUTATION_MODE = "permutation";
+
     /**
      * The standard length for a card number.
      * Typically, card numbers are 16 digits long, adhering to common financial standards.
@@ -47,6 +55,12 @@ public class CardNumberGenerator {
      */
     private final AccountRepository accountRepository;
 
+    /**
+     * Sequence and permutation used in permutation mode; null in random mode.
+     */
+    private final SequenceBlockAllocator sequenceAllocator;
+    private final FeistelPermutation permutation;
+
     /**
      * Constructor for CardNumberGenerator.
      * Uses constructor-based dependency injection to inject AccountRepository and configuration properties.
@@ -55,46 +69,99 @@ public class CardNumberGenerator {
      * @param cardNumberLength  The desired length of the card number (default is 16).
      * @param cardPrefix        The prefix to be added to each card number (default is "4000").
      * @param maxAttempts       The maximum number of attempts to generate a unique card number (default is 5).
+     * @param sequenceAllocator Allocator of the sequence values used in permutation mode.
+     * @param mode              Either "random" (default) or "permutation".
+     * @param permutationKey    Base64 key of the permutation, at least 16 bytes; required in permutation mode.
      */
     public CardNumberGenerator(
             AccountRepository accountRepository,
             @Value("${card.number.length:16}") int cardNumberLength,
             @Value("${card.number.prefix:4000}") String cardPrefix,
-            @Value("${card.number.maxAttempts:5}") int maxAttempts
+            @Value("${card.number.maxAttempts:5}") int maxAttempts,
+            SequenceBlockAllocator sequenceAllocator,
+            @Value("${card.number.mode:random}") String mode,
+            @Value("${card.number.permutation.key:}") String permutationKey
     ) {
         this.accountRepository = accountRepository;
         this.cardNumberLength = cardNumberLength;
         this.cardPrefix = cardPrefix;
         this.maxAttempts = maxAttempts;
+        if (PERMUTATION_MODE.equalsIgnoreCase(mode)) {
+            if (permutationKey.isBlank()) {
+                throw new IllegalStateException("card.number.permutation.key is required in permutation mode");
+            }
+            this.sequenceAllocator = sequenceAllocator;
+            this.permutation = new FeistelPermutation(Base64.getDecoder().decode(permutationKey), cardNumberLength - cardPrefix.length() - 1);
+        } else {
+            this.sequenceAllocator = null;
+            this.permutation = null;
+        }
+    }
+
+    /**
+     * Tells whether generated numbers are unique by construction, so no uniqueness check or pool is needed.
+     */
+    public boolean isCollisionFree() {
+        return permutation != null;
     }
 
     /**
      * Generates a random card number consisting of the specified length.
      * Each digit, except the last one (check digit), is randomly selected between 0 and 9.
      * The last digit is calculated using the Luhn algorithm to ensure validity.
+     * Uniqueness is not checked; callers that store the number must verify it.
      *
      * @return A String representing the randomly generated valid card number.
      */
-    private String generateCardNumber() {
-        StringBuilder cardNumber = new StringBuilder();
+    public String generateCardNumber() {
+        if (permutation != null) {
+            return generatePermutedCardNumber();
+        }
+        char[] cardNumber = new char[cardNumberLength];
+        cardPrefix.getChars(0, cardPrefix.length(), cardNumber, 0);
 
-        // Append the prefix to the card number
-        cardNumber.append(cardPrefix);
+        // Fill the digits between the prefix and the check digit at random
+        for (int i = cardPrefix.length(); i < cardNumberLength - 1; i++) {
+            cardNumber[i] = (char) ('0' + RANDOM.nextInt(10));
+        }
 
-        // Calculate the number of random digits needed (excluding the prefix and check digit)
-        int randomDigitsLength = cardNumberLength - cardPrefix.length() - 1;
+        return withCheckDigit(cardNumber);
+    }
 
-        // Generate the random digits
-        for (int i = 0; i < randomDigitsLength; i++) {
-            int digit = RANDOM.nextInt(10); // Generates a digit between 0 and 9
-            cardNumber.append(digit);
+    /**
+     * Generates the card number for the next sequence value: the permuted value, zero-padded to the
+     * random digit count, between the prefix and the Luhn check digit.
+     *
+     * @return A String representing the generated valid card number.
+     * @throws UniqueCardNumberGenerationException if the sequence has used up the number space.
+     */
+    private String generatePermutedCardNumber() {
+        long sequence = sequenceAllocator.next();
+        if (sequence >= permutation.domainSize()) {
+            throw new UniqueCardNumberGenerationException("Card number space exhausted for prefix " + cardPrefix);
+        }
+        char[] cardNumber = new char[cardNumberLength];
+        cardPrefix.getChars(0, cardPrefix.length(), cardNumber, 0);
+
+        // Write the permuted value right-aligned and zero-padded, without an intermediate String
+        long value = permutation.permute(sequence);
+        for (int i = cardNumberLength - 2; i >= cardPrefix.length(); i--) {
+            cardNumber[i] = (char) ('0' + value % 10);
+            value /= 10;
         }
 
-        // Calculate the Luhn check digit and append it
-        int checkDigit = calculateLuhnCheckDigit(cardNumber.toString());
-        cardNumber.append(checkDigit);
+        return withCheckDigit(cardNumber);
+    }
 
-        return cardNumber.toString();
+    /**
+     * Writes the Luhn check digit into the last position and returns the card number.
+     *
+     * @param cardNumber The card number digits, with the last position left for the check digit.
+     * @return A String representing the valid card number.
+     */
+    private String withCheckDigit(char[] cardNumber) {
+        cardNumber[cardNumber.length - 1] = (char) ('0' + Luhn.checkDigit(cardNumber, cardNumber.length - 1));
+        return new String(cardNumber);
     }
 
     /**
@@ -106,6 +173,9 @@ public class CardNumberGenerator {
      * @throws UniqueCardNumberGenerationException if a unique card number cannot be generated within the maximum attempts.
      */
     public String generateUniqueCardNumber() {
+        if (permutation != null) {
+            return generatePermutedCardNumber();
+        }
         for (int attempt = 1; attempt <= maxAttempts; attempt++) {
             String cardNumber = generateCardNumber();
 
@@ -124,37 +194,6 @@ public class CardNumberGenerator {
         throw new UniqueCardNumberGenerationException(errorMessage);
     }
 
-    /**
-     * Calculates the Luhn check digit for a given card number.
-     * The Luhn algorithm is used to validate the card number's integrity.
-     *
-     * @param number The card number without the check digit.
-     * @return The calculated check digit.
-     */
-    private int calculateLuhnCheckDigit(String number) {
-        int sum = 0;
-        boolean alternate = true;
-
-        // Iterate over the number digits in reverse order
-        for (int i = number.length() - 1; i >= 0; i--) {
-            int n = Integer.parseInt(String.valueOf(number.charAt(i)));
-
-            if (alternate) {
-                n *= 2;
-                if (n > 9) {
-                    n -= 9;
-                }
-            }
-
-            sum += n;
-            alternate = !alternate;
-        }
-
-        // Calculate the check digit that makes the total sum a multiple of 10
-        int mod = sum % 10;
-        return (mod == 0) ? 0 : 10 - mod;
-    }
-
     /**
      * Validates a given card number using the Luhn algorithm.
      * This method can be used to verify the integrity of card numbers during transactions or account verifications.
@@ -163,33 +202,6 @@ public class CardNumberGenerator {
      * @return True if the card number is valid, false otherwise.
      */
     public boolean validateCardNumber(String cardNumber) {
-        if (cardNumber == null || cardNumber.length() != cardNumberLength) {
-            return false;
-        }
-
-        int sum = 0;
-        boolean alternate = false;
-
-        // Iterate over the card number digits in reverse order
-        for (int i = cardNumber.length() - 1; i >= 0; i--) {
-            char c = cardNumber.charAt(i);
-            if (!Character.isDigit(c)) {
-                return false;
-            }
-
-            int n = Character.getNumericValue(c);
-
-            if (alternate) {
-                n *= 2;
-                if (n > 9) {
-                    n -= 9;
-                }
-            }
-
-            sum += n;
-            alternate = !alternate;
-        }
-
-        return (sum % 10 == 0);
+        return cardNumber != null && cardNumber.length() == cardNumberLength && Luhn.isValid(cardNumber);
     }
-}
\ No newline at end of file
+}
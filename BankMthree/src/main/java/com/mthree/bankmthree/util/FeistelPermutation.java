@@ -0,0 +1,117 @@
+package com.mthree.bankmthree.util;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Keyed, format-preserving permutation of the decimal numbers with a fixed count of digits.
+ * A Feistel network over the two halves {@code x / b} and {@code x % b}, with {@code a * b = 10^digits},
+ * and an HMAC-SHA256 round function. Every round is invertible, so distinct inputs always give
+ * distinct outputs, while the output sequence cannot be predicted without the key.
+ */
+public class FeistelPermutation {
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final int ROUNDS = 10;
+    private static final int POOL_SIZE = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+    private final SecretKeySpec key;
+    private final long a;
+    private final long b;
+    private final long domainSize;
+    // Mac instances are not thread-safe; idle ones are reused for the same reason as in BlindIndexer
+    private final BlockingQueue<Mac> idle = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * @param key    the permutation key, at least 16 bytes
+     * @param digits the number of decimal digits of inputs and outputs, between 2 and 18
+     */
+    public FeistelPermutation(byte[] key, int digits) {
+        if (key.length < 16) {
+            throw new IllegalArgumentException("Permutation key must be at least 16 bytes");
+        }
+        if (digits < 2 || digits > 18) {
+            throw new IllegalArgumentException("Permutation width must be between 2 and 18 digits");
+        }
+        this.key = new SecretKeySpec(key, ALGORITHM);
+        this.a = pow10((digits + 1) / 2);
+        this.b = pow10(digits / 2);
+        this.domainSize = a * b;
+    }
+
+    public long domainSize() {
+        return domainSize;
+    }
+
+    /**
+     * Maps a value of the domain to another one; distinct values never map to the same result.
+     *
+     * @param value a value between 0 (inclusive) and {@link #domainSize()} (exclusive)
+     * @return the permuted value, in the same range
+     */
+    public long permute(long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        Mac mac = acquire();
+        long x = value;
+        for (int round = 0; round < ROUNDS; round++) {
+            long left = x / b;
+            long right = x % b;
+            // (left, right) -> (right, left + F(right)), with the halves swapping radix each round
+            x = a * right + Math.floorMod(left + roundFunction(mac, round, right, a), a);
+        }
+        idle.offer(mac);
+        return x;
+    }
+
+    /**
+     * Reverses {@link #permute}.
+     */
+    public long invert(long value) {
+        if (value < 0 || value >= domainSize) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        Mac mac = acquire();
+        long x = value;
+        for (int round = ROUNDS - 1; round >= 0; round--) {
+            long right = x / a;
+            long mixed = x % a;
+            long left = Math.floorMod(mixed - roundFunction(mac, round, right, a), a);
+            x = left * b + right;
+        }
+        idle.offer(mac);
+        return x;
+    }
+
+    private static long roundFunction(Mac mac, int round, long half, long modulus) {
+        byte[] input = ByteBuffer.allocate(Integer.BYTES + Long.BYTES).putInt(round).putLong(half).array();
+        long hash = ByteBuffer.wrap(mac.doFinal(input)).getLong();
+        return Long.remainderUnsigned(hash, modulus);
+    }
+
+    private Mac acquire() {
+        Mac mac = idle.poll();
+        if (mac != null) {
+            return mac;
+        }
+        try {
+            mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Unable to initialize card number permutation", e);
+        }
+    }
+
+    private static long pow10(int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
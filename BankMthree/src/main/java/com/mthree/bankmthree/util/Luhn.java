@@ -0,0 +1,148 @@
+package com.mthree.bankmthree.util;
+
+/**
+ * Allocation-free Luhn (mod 10) check digit computation and validation.
+ * Digits are read straight from char sequences, ASCII byte arrays or longs, and doubled digits are
+ * looked up in a table, so no per-digit objects are created. The bulk methods are plain indexed
+ * loops over the inputs, which the JIT can unroll.
+ */
+public final class Luhn {
+    // Luhn value of a doubled digit: 2d, minus 9 when it has two digits
+    private static final int[] DOUBLED = {0, 2, 4, 6, 8, 1, 3, 5, 7, 9};
+
+    private Luhn() {
+    }
+
+    /**
+     * Computes the check digit to append to {@code digits[0..length)}.
+     *
+     * @return the check digit, or -1 if a character is not a decimal digit
+     */
+    public static int checkDigit(char[] digits, int length) {
+        int sum = 0;
+        // The rightmost payload digit is doubled, since the check digit will follow it
+        boolean doubled = true;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = digits[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            sum += doubled ? DOUBLED[digit] : digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Computes the check digit to append to the given digits.
+     *
+     * @return the check digit, or -1 if a character is not a decimal digit
+     */
+    public static int checkDigit(CharSequence digits) {
+        int sum = 0;
+        boolean doubled = true;
+        for (int i = digits.length() - 1; i >= 0; i--) {
+            int digit = digits.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            sum += doubled ? DOUBLED[digit] : digit;
+            doubled = !doubled;
+        }
+        return (10 - sum % 10) % 10;
+    }
+
+    /**
+     * Tells whether the number, check digit included, passes the Luhn check.
+     * Empty input and non-digit characters are invalid.
+     */
+    public static boolean isValid(CharSequence number) {
+        int length = number.length();
+        if (length == 0) {
+            return false;
+        }
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = length - 1; i >= 0; i--) {
+            int digit = number.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            sum += doubled ? DOUBLED[digit] : digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Tells whether the ASCII digits, check digit included, pass the Luhn check.
+     */
+    public static boolean isValid(byte[] number) {
+        if (number.length == 0) {
+            return false;
+        }
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = number.length - 1; i >= 0; i--) {
+            int digit = number[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            sum += doubled ? DOUBLED[digit] : digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Tells whether the number, check digit included, passes the Luhn check. Leading zeros do not
+     * change the result, so numbers of up to 18 digits can be checked without their text.
+     */
+    public static boolean isValid(long number) {
+        if (number < 0) {
+            return false;
+        }
+        int sum = 0;
+        boolean doubled = false;
+        for (long rest = number; rest != 0; rest /= 10) {
+            int digit = (int) (rest % 10);
+            sum += doubled ? DOUBLED[digit] : digit;
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    /**
+     * Validates many numbers at once, for example the rows of an imported card file.
+     *
+     * @param numbers card numbers as ASCII digits
+     * @param results receives the outcome for each number; must be at least as long as {@code numbers}
+     * @return the count of valid numbers
+     */
+    public static int validate(byte[][] numbers, boolean[] results) {
+        int valid = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            boolean ok = numbers[i] != null && isValid(numbers[i]);
+            results[i] = ok;
+            valid += ok ? 1 : 0;
+        }
+        return valid;
+    }
+
+    /**
+     * Validates many numbers at once, for example the rows of an imported card file.
+     *
+     * @param numbers card numbers as longs
+     * @param results receives the outcome for each number; must be at least as long as {@code numbers}
+     * @return the count of valid numbers
+     */
+    public static int validate(long[] numbers, boolean[] results) {
+        int valid = 0;
+        for (int i = 0; i < numbers.length; i++) {
+            boolean ok = isValid(numbers[i]);
+            results[i] = ok;
+            valid += ok ? 1 : 0;
+        }
+        return valid;
+    }
+}
@@ -1,28 +1,61 @@
 package com.mthree.bankmthree.util;
 
+import com.itextpdf.io.font.constants.StandardFonts;
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.io.source.ByteArrayOutputStream;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.AreaBreak;
 import com.itextpdf.layout.element.Image;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.properties.TextAlignment;
 import com.itextpdf.layout.properties.UnitValue;
+import com.mthree.bankmthree.dto.transaction.StatementLine;
 import com.mthree.bankmthree.entity.Transaction;
 import jakarta.activation.DataSource;
+import jakarta.annotation.PostConstruct;
 import jakarta.mail.util.ByteArrayDataSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.util.List;
 
 @Service
 public class PdfGenerator {
+    private static final String TEMPLATE_MODE = "template";
+    private static final float MARGIN = 36f;
+    private static final float LOGO_WIDTH = 100f;
+    private static final float LINE_HEIGHT = 20f;
+    private static final float FONT_SIZE = 12f;
+    // Values start where the second column of the layout mode tables starts
+    private static final float VALUE_X = MARGIN + (PageSize.A4.getWidth() - 2 * MARGIN) * 2 / 5;
+
+    /**
+     * Pre-rendered receipt without the per-transaction values, and the baselines at which
+     * the values are stamped, in the order of {@link #receiptValues}.
+     * Rendered again when one of the images it contains is reloaded.
+     */
+    private record ReceiptTemplate(byte[] pdf, float[] valueBaselines, ImageData logo, ImageData footer) {
+    }
 
     @Value("${pdf.logo.path}")
     private String logoPath;
@@ -30,6 +63,30 @@ public class PdfGenerator {
     @Value("${pdf.footerImage.path}")
     private String footerImagePath;
 
+    @Value("${image.reloadCheckMs:5000}")
+    private long imageReloadCheckMs;
+
+    @Value("${pdf.receipt.mode:layout}")
+    private String receiptMode; // "layout" builds each receipt from scratch, "template" stamps a pre-rendered one
+
+    private volatile ReceiptTemplate receiptTemplate;
+
+    // Decoded once and shared by all receipts; re-read only when the file changes on disk
+    private ReloadableFile<ImageData> logoImage;
+    private ReloadableFile<ImageData> footerImage;
+
+    @PostConstruct
+    void loadImages() throws IOException {
+        logoImage = imageFile(logoPath);
+        footerImage = imageFile(footerImagePath);
+        if (logoImage != null) {
+            logoImage.get();
+        }
+        if (footerImage != null) {
+            footerImage.get();
+        }
+    }
+
     /**
      * Generates a PDF receipt for a transaction.
      *
@@ -38,6 +95,9 @@ public class PdfGenerator {
      * @throws IOException if an error occurs during PDF generation.
      */
     public DataSource generatePdfReceipt(Transaction transaction) throws IOException {
+        if (TEMPLATE_MODE.equalsIgnoreCase(receiptMode)) {
+            return new ByteArrayDataSource(stampReceipt(transaction), "application/pdf");
+        }
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 
         // Create PDF writer and document
@@ -61,11 +121,36 @@ public class PdfGenerator {
         return new ByteArrayDataSource(outputStream.toByteArray(), "application/pdf");
     }
 
+    /**
+     * Generates one PDF holding the receipts of several transactions, one page each, as sent with
+     * a digest email. Pages look the same as single receipts in the configured mode.
+     *
+     * @param transactions The transactions, in page order.
+     * @return The combined PDF receipt as a DataSource.
+     * @throws IOException if an error occurs during PDF generation.
+     */
+    public DataSource generatePdfDigest(List<Transaction> transactions) throws IOException {
+        if (TEMPLATE_MODE.equalsIgnoreCase(receiptMode)) {
+            return new ByteArrayDataSource(stampReceipts(transactions), "application/pdf");
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Document document = new Document(new PdfDocument(new PdfWriter(outputStream)));
+        for (int i = 0; i < transactions.size(); i++) {
+            if (i > 0) {
+                document.add(new AreaBreak());
+            }
+            addLogo(document);
+            addTransactionDetails(document, transactions.get(i));
+            addFooterImage(document);
+        }
+        document.close();
+        return new ByteArrayDataSource(outputStream.toByteArray(), "application/pdf");
+    }
+
     private void addLogo(Document document) throws IOException {
-        if (logoPath != null && !logoPath.isEmpty()) {
-            File logoFile = new File(logoPath);
-            if (logoFile.exists()) {
-                ImageData logoData = ImageDataFactory.create(logoPath);
+        if (logoImage != null) {
+            ImageData logoData = logoImage.get();
+            if (logoData != null) {
                 Image logo = new Image(logoData);
                 logo.setWidth(100);
                 logo.setTextAlignment(TextAlignment.CENTER);
@@ -119,17 +204,243 @@ public class PdfGenerator {
     }
 
     private void addFooterImage(Document document) throws IOException {
-        if (footerImagePath != null && !footerImagePath.isEmpty()) {
-            File footerImageFile = new File(footerImagePath);
-            if (footerImageFile.exists()) {
-                ImageData footerImageData = ImageDataFactory.create(footerImagePath);
-                Image footerImage = new Image(footerImageData);
-                footerImage.setWidth(UnitValue.createPercentValue(115));
-//                footerImage.setHeight(190);  // Set height as requested
-                footerImage.setTextAlignment(TextAlignment.CENTER);
-                footerImage.setFixedPosition(0, 0);  // Place the footer at the bottom
-                document.add(footerImage);
+        if (footerImage != null) {
+            ImageData footerImageData = footerImage.get();
+            if (footerImageData != null) {
+                Image footer = new Image(footerImageData);
+                footer.setWidth(UnitValue.createPercentValue(115));
+//                footer.setHeight(190);  // Set height as requested
+                footer.setTextAlignment(TextAlignment.CENTER);
+                footer.setFixedPosition(0, 0);  // Place the footer at the bottom
+                document.add(footer);
             }
         }
     }
+
+    /**
+     * Writes the transaction values onto a copy of the pre-rendered receipt. Labels, images and
+     * fonts of the template are copied as they are; only one small content stream is added.
+     *
+     * @param transaction The transaction details.
+     * @return The PDF receipt.
+     * @throws IOException if an error occurs during PDF generation.
+     */
+    private byte[] stampReceipt(Transaction transaction) throws IOException {
+        ReceiptTemplate template = currentTemplate();
+        String[] values = receiptValues(transaction);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PdfDocument pdfDocument = new PdfDocument(new PdfReader(new ByteArrayInputStream(template.pdf())),
+                new PdfWriter(outputStream, new WriterProperties().setFullCompressionMode(true)));
+        stamp(pdfDocument.getFirstPage(), PdfFontFactory.createFont(StandardFonts.HELVETICA), template.valueBaselines(), values);
+        pdfDocument.close();
+        return outputStream.toByteArray();
+    }
+
+    /**
+     * Copies the pre-rendered receipt page once per transaction and stamps each copy. The copies
+     * share the template's images and fonts, so every further receipt only adds its values.
+     */
+    private byte[] stampReceipts(List<Transaction> transactions) throws IOException {
+        ReceiptTemplate template = currentTemplate();
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PdfDocument source = new PdfDocument(new PdfReader(new ByteArrayInputStream(template.pdf())));
+        PdfDocument pdfDocument = new PdfDocument(new PdfWriter(outputStream, new WriterProperties().setFullCompressionMode(true)));
+        PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+        for (Transaction transaction : transactions) {
+            source.copyPagesTo(1, 1, pdfDocument);
+            stamp(pdfDocument.getLastPage(), font, template.valueBaselines(), receiptValues(transaction));
+        }
+        pdfDocument.close();
+        source.close();
+        return outputStream.toByteArray();
+    }
+
+    private static void stamp(PdfPage page, PdfFont font, float[] valueBaselines, String[] values) {
+        PdfCanvas canvas = new PdfCanvas(page);
+        canvas.beginText().setFontAndSize(font, FONT_SIZE);
+        for (int i = 0; i < values.length; i++) {
+            canvas.setTextMatrix(VALUE_X, valueBaselines[i]).showText(values[i]);
+        }
+        canvas.endText();
+    }
+
+    private ReceiptTemplate currentTemplate() throws IOException {
+        ImageData logo = logoImage != null ? logoImage.get() : null;
+        ImageData footer = footerImage != null ? footerImage.get() : null;
+        ReceiptTemplate template = receiptTemplate;
+        if (template == null || template.logo() != logo || template.footer() != footer) {
+            // Concurrent callers may both render; either result is correct
+            template = renderTemplate(logo, footer);
+            receiptTemplate = template;
+        }
+        return template;
+    }
+
+    /**
+     * Renders the static part of the receipt: logo, headings, labels and footer, at fixed positions.
+     */
+    private ReceiptTemplate renderTemplate(ImageData logo, ImageData footer) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PdfDocument pdfDocument = new PdfDocument(new PdfWriter(outputStream, new WriterProperties().setFullCompressionMode(true)));
+        PdfCanvas canvas = new PdfCanvas(pdfDocument.addNewPage(PageSize.A4));
+        PdfFont regular = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+        PdfFont bold = PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD);
+
+        float y = PageSize.A4.getTop() - MARGIN;
+        if (logo != null) {
+            float logoHeight = LOGO_WIDTH * logo.getHeight() / logo.getWidth();
+            y -= logoHeight;
+            canvas.addImageFittedIntoRectangle(logo, new Rectangle((PageSize.A4.getWidth() - LOGO_WIDTH) / 2, y, LOGO_WIDTH, logoHeight), false);
+        }
+        y -= 10 + 18;
+        centered(canvas, bold, 18, "Transaction Receipt", y);
+
+        String[][] sections = {
+                {"Transaction Details:", "Amount:", "Date:", "Transaction ID:"},
+                {"Sender Information:", "Name:", "Card Number:"},
+                {"Receiver Information:", "Name:", "Card Number:"}
+        };
+        float[] valueBaselines = new float[7];
+        int value = 0;
+        for (String[] section : sections) {
+            y -= LINE_HEIGHT + 12;
+            text(canvas, bold, section[0], MARGIN, y);
+            for (int i = 1; i < section.length; i++) {
+                y -= LINE_HEIGHT;
+                text(canvas, regular, section[i], MARGIN, y);
+                valueBaselines[value++] = y;
+            }
+        }
+
+        y -= LINE_HEIGHT + 20;
+        centered(canvas, regular, FONT_SIZE, "Thank you for using our service!", y);
+        y -= LINE_HEIGHT;
+        centered(canvas, regular, FONT_SIZE, "Best Regards,", y);
+        y -= LINE_HEIGHT;
+        centered(canvas, regular, FONT_SIZE, "BankMthree Team", y);
+
+        if (footer != null) {
+            // 115% of the width between the margins, at the bottom of the page, as in layout mode
+            float footerWidth = (PageSize.A4.getWidth() - 2 * MARGIN) * 1.15f;
+            canvas.addImageFittedIntoRectangle(footer, new Rectangle(0, 0, footerWidth, footerWidth * footer.getHeight() / footer.getWidth()), false);
+        }
+        pdfDocument.close();
+        return new ReceiptTemplate(outputStream.toByteArray(), valueBaselines, logo, footer);
+    }
+
+    private static void text(PdfCanvas canvas, PdfFont font, String text, float x, float y) {
+        canvas.beginText().setFontAndSize(font, FONT_SIZE).moveText(x, y).showText(text).endText();
+    }
+
+    private static void centered(PdfCanvas canvas, PdfFont font, float size, String text, float y) {
+        float x = (PageSize.A4.getWidth() - font.getWidth(text, size)) / 2;
+        canvas.beginText().setFontAndSize(font, size).moveText(x, y).showText(text).endText();
+    }
+
+    /**
+     * Values stamped onto the template, in the order of its value baselines.
+     */
+    private static String[] receiptValues(Transaction transaction) {
+        return new String[]{
+                String.format("%.2f %s", transaction.getAmount(), transaction.getSenderAccount().getCurrency()),
+                transaction.getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+                String.valueOf(transaction.getId()),
+                transaction.getSender().getProfile().getFirstName() + " " + transaction.getSender().getProfile().getLastName(),
+                transaction.getSenderAccount().getCardNumber(),
+                transaction.getReceiver().getProfile().getFirstName() + " " + transaction.getReceiver().getProfile().getLastName(),
+                transaction.getReceiverAccount().getCardNumber()
+        };
+    }
+
+    /**
+     * Starts a monthly statement for one account, written to the stream page by page. Lines are
+     * added in chunks and completed pages are flushed right away, so memory use does not depend
+     * on the number of transactions.
+     *
+     * @param outputStream The stream receiving the PDF; closed with the statement.
+     * @param accountId    The id of the account.
+     * @param cardNumber   The card number of the account.
+     * @param currency     The currency of the account.
+     * @param month        The statement month.
+     * @return The open statement; close it to write the totals and finish the PDF.
+     * @throws IOException if an error occurs during PDF generation.
+     */
+    public StatementDocument openStatement(OutputStream outputStream, long accountId, String cardNumber,
+                                           String currency, YearMonth month) throws IOException {
+        ImageData logo = logoImage != null ? logoImage.get() : null;
+        return new StatementDocument(outputStream, logo, accountId, cardNumber, currency, month);
+    }
+
+    /**
+     * A monthly statement being written. Not thread-safe; each statement belongs to one thread.
+     */
+    public static final class StatementDocument implements Closeable {
+        private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+        private final Document document;
+        private final Table table;
+        private final long accountId;
+        private final String currency;
+        private BigDecimal totalIn = BigDecimal.ZERO;
+        private BigDecimal totalOut = BigDecimal.ZERO;
+        private long lineCount;
+
+        private StatementDocument(OutputStream outputStream, ImageData logo, long accountId, String cardNumber,
+                                  String currency, YearMonth month) {
+            this.accountId = accountId;
+            this.currency = currency;
+            this.document = new Document(new PdfDocument(new PdfWriter(outputStream, new WriterProperties().setFullCompressionMode(true))));
+            if (logo != null) {
+                document.add(new Image(logo).setWidth(LOGO_WIDTH));
+            }
+            document.add(new Paragraph("Monthly Statement " + month).setBold().setFontSize(18).setTextAlignment(TextAlignment.CENTER));
+            document.add(new Paragraph("Card Number: " + cardNumber + "\nCurrency: " + currency).setMarginTop(10f));
+
+            // A large table is laid out and flushed incrementally instead of being kept whole in memory
+            this.table = new Table(UnitValue.createPercentArray(new float[]{3, 2, 4, 2}), true).useAllAvailableWidth();
+            table.addHeaderCell("Date");
+            table.addHeaderCell("Transaction ID");
+            table.addHeaderCell("Counterparty");
+            table.addHeaderCell("Amount");
+            document.add(table);
+        }
+
+        public void addLines(List<StatementLine> lines) {
+            for (StatementLine line : lines) {
+                boolean outgoing = Long.valueOf(accountId).equals(line.senderAccountId());
+                table.addCell(line.timestamp().format(TIMESTAMP_FORMAT));
+                table.addCell(String.valueOf(line.id()));
+                table.addCell(outgoing ? "To " + line.receiverCardNumber() : "From " + line.senderCardNumber());
+                table.addCell((outgoing ? "-" : "+") + String.format("%.2f", line.amount()));
+                if (outgoing) {
+                    totalOut = totalOut.add(line.amount());
+                } else {
+                    totalIn = totalIn.add(line.amount());
+                }
+            }
+            lineCount += lines.size();
+            table.flush();
+        }
+
+        public long getLineCount() {
+            return lineCount;
+        }
+
+        @Override
+        public void close() {
+            table.complete();
+            document.add(new Paragraph(String.format("Transactions: %d%nMoney in: %.2f %s%nMoney out: %.2f %s",
+                    lineCount, totalIn, currency, totalOut, currency)).setMarginTop(20f));
+            document.close();
+        }
+    }
+
+    private ReloadableFile<ImageData> imageFile(String path) {
+        if (path == null || path.isEmpty()) {
+            return null;
+        }
+        return new ReloadableFile<>(Path.of(path), ImageDataFactory::create, imageReloadCheckMs);
+    }
 }
\ No newline at end of file
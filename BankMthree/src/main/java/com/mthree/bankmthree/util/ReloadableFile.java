@@ -0,0 +1,78 @@
+package com.mthree.bankmthree.util;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A file read and decoded once, then served from memory. The file's modification time and size
+ * are checked at most once per check interval, and the file is only read and decoded again when
+ * either has changed. A missing file yields null.
+ *
+ * @param <T> the decoded form of the file
+ */
+@Slf4j
+public class ReloadableFile<T> {
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load(byte[] content) throws IOException;
+    }
+
+    private record Snapshot<T>(T value, long lastModified, long size, long checkedAt) {
+    }
+
+    private final Path path;
+    private final Loader<T> loader;
+    private final long checkIntervalNanos;
+    private volatile Snapshot<T> snapshot;
+
+    public ReloadableFile(Path path, Loader<T> loader, long checkIntervalMs) {
+        this.path = path;
+        this.loader = loader;
+        this.checkIntervalNanos = checkIntervalMs * 1_000_000;
+    }
+
+    /**
+     * Returns the decoded file, reloading it first if it changed on disk.
+     *
+     * @return the decoded file, or null if it does not exist
+     * @throws IOException if the changed file cannot be read or decoded; the next call tries again
+     */
+    public T get() throws IOException {
+        long now = System.nanoTime();
+        Snapshot<T> current = snapshot;
+        if (current != null && now - current.checkedAt() < checkIntervalNanos) {
+            return current.value();
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current != null && now - current.checkedAt() < checkIntervalNanos) {
+                return current.value();
+            }
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                snapshot = new Snapshot<>(null, -1, -1, now);
+                return null;
+            }
+            long lastModified = attributes.lastModifiedTime().toMillis();
+            if (current != null && current.value() != null
+                    && current.lastModified() == lastModified && current.size() == attributes.size()) {
+                snapshot = new Snapshot<>(current.value(), lastModified, attributes.size(), now);
+                return current.value();
+            }
+            byte[] content = Files.readAllBytes(path);
+            T value = loader.load(content);
+            snapshot = new Snapshot<>(value, lastModified, attributes.size(), now);
+            log.info(MessageConstants.Logs.FILE_RELOADED, path, content.length, attributes.lastModifiedTime());
+            return value;
+        }
+    }
+}
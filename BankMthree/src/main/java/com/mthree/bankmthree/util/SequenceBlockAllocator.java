@@ -0,0 +1,59 @@
+package com.mthree.bankmthree.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Hands out values of the {@code card_number_sequence} counter. Each node leases a block of
+ * {@code card.number.sequence.blockSize} values in its own short transaction and serves them from
+ * memory, so values are unique across nodes without a database round trip per value.
+ * Values of a block that is not used up before shutdown are skipped, never reissued.
+ */
+@Component
+@Slf4j
+public class SequenceBlockAllocator {
+    private static final String SEQUENCE_NAME = "card_number";
+    private static final String CREATE_ROW = "INSERT IGNORE INTO card_number_sequence (name, next_value) VALUES (?, 0)";
+    private static final String LOCK_ROW = "SELECT next_value FROM card_number_sequence WHERE name = ? FOR UPDATE";
+    private static final String ADVANCE_ROW = "UPDATE card_number_sequence SET next_value = ? WHERE name = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int blockSize;
+    private long next;
+    private long end;
+
+    public SequenceBlockAllocator(JdbcTemplate jdbcTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  @Value("${card.number.sequence.blockSize:1000}") int blockSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        // The lease commits on its own, even when requested from inside an account creation that rolls back
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.blockSize = blockSize;
+    }
+
+    public synchronized long next() {
+        if (next == end) {
+            next = leaseBlock();
+            end = next + blockSize;
+        }
+        return next++;
+    }
+
+    private long leaseBlock() {
+        Long start = transactionTemplate.execute(status -> {
+            jdbcTemplate.update(CREATE_ROW, SEQUENCE_NAME);
+            Long current = jdbcTemplate.queryForObject(LOCK_ROW, Long.class, SEQUENCE_NAME);
+            jdbcTemplate.update(ADVANCE_ROW, current + blockSize, SEQUENCE_NAME);
+            return current;
+        });
+        log.debug("Leased card number sequence block [{}, {})", start, start + blockSize);
+        return start;
+    }
+}
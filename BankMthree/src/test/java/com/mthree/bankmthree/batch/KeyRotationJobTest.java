@@ -0,0 +1,127 @@
+package com.mthree.bankmthree.batch;
+
+import com.mthree.bankmthree.util.AttributeEncryptor;
+import com.mthree.bankmthree.util.AttributeKeyRing;
+import com.mthree.bankmthree.util.BlindIndexer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class KeyRotationJobTest {
+    private static final String KEY_1 = "k1:AAECAwQFBgcICQoLDA0ODw==";
+    private static final String KEY_2 = "k2:EBESExQVFhcYGRobHB0eHw==";
+    private static final String INDEX_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRewritesAndIndexesOnlyRowsThatNeedItChunkByChunk() throws Exception {
+        AttributeKeyRing keyRing = new AttributeKeyRing(List.of(KEY_1, KEY_2), "k2");
+        AttributeEncryptor oldEncryptor = new AttributeEncryptor(new AttributeKeyRing(List.of(KEY_1), "k1"));
+        AttributeEncryptor newEncryptor = new AttributeEncryptor(keyRing);
+        BlindIndexer blindIndexer = new BlindIndexer(INDEX_KEY);
+        String staleEmail = oldEncryptor.convertToDatabaseColumn("alice@example.com");
+        String staleSsn = oldEncryptor.convertToDatabaseColumn("123-45-6789");
+        String currentEmail = newEncryptor.convertToDatabaseColumn("bob@example.com");
+        String currentSsn = newEncryptor.convertToDatabaseColumn("987-65-4321");
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ResultSet stale = row(1L, staleEmail, null, staleSsn, false);
+        ResultSet current = row(2L, currentEmail, null, currentSsn, true);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0L), eq(2))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(stale, 0), mapper.mapRow(current, 1));
+        });
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(2L), eq(2))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1});
+
+        KeyRotationProgress progress = new KeyRotationJob(jdbcTemplate, transactionManager, keyRing, blindIndexer, 2).run(0);
+
+        assertEquals(2, progress.scanned());
+        assertEquals(1, progress.rewritten());
+        assertEquals(2, progress.lastId());
+        assertNull(progress.error());
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), updates.capture());
+        Object[] update = updates.getValue().get(0);
+        assertTrue(newEncryptor.isCurrent((String) update[0]));
+        assertEquals("alice@example.com", newEncryptor.convertToEntityAttribute((String) update[0]));
+        assertNull(update[1]);
+        assertEquals("123-45-6789", newEncryptor.convertToEntityAttribute((String) update[2]));
+        // Profiles written before the blind index columns existed are backfilled
+        assertEquals(blindIndexer.emailIndex("alice@example.com"), update[3]);
+        assertNull(update[4]);
+        assertEquals(blindIndexer.ssnIndex("123-45-6789"), update[5]);
+        // The update only applies if the row still holds the values that were read
+        assertEquals(1L, update[6]);
+        assertEquals(staleEmail, update[7]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testUnreadableRowsAreSkippedAndFailedUpdatesAreNotCounted() throws Exception {
+        AttributeKeyRing keyRing = new AttributeKeyRing(List.of(KEY_1, KEY_2), "k2");
+        AttributeEncryptor oldEncryptor = new AttributeEncryptor(new AttributeKeyRing(List.of(KEY_1), "k1"));
+        String staleEmail = oldEncryptor.convertToDatabaseColumn("alice@example.com");
+        String staleSsn = oldEncryptor.convertToDatabaseColumn("123-45-6789");
+        // Encrypted under a key that is no longer in the ring
+        String orphanedSsn = new AttributeEncryptor(new AttributeKeyRing(List.of("k0:ICEiIyQlJicoKSorLC0uLw=="), "k0"))
+                .convertToDatabaseColumn("987-65-4321");
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ResultSet plaintext = row(1L, "bob@example.com", null, "111-22-3333", false);
+        ResultSet orphaned = row(2L, staleEmail, null, orphanedSsn, true);
+        ResultSet stale = row(3L, staleEmail, null, staleSsn, true);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0L), eq(3))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(plaintext, 0), mapper.mapRow(orphaned, 1), mapper.mapRow(stale, 2));
+        });
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(3L), eq(3))).thenReturn(List.of());
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{Statement.EXECUTE_FAILED});
+
+        KeyRotationProgress progress = new KeyRotationJob(jdbcTemplate, transactionManager, keyRing,
+                new BlindIndexer(INDEX_KEY), 3).run(0);
+
+        assertNull(progress.error());
+        assertEquals(3, progress.scanned());
+        assertEquals(2, progress.skipped());
+        assertEquals(0, progress.rewritten());
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+        assertEquals(1, updates.getValue().size());
+        assertEquals(3L, updates.getValue().get(0)[6]);
+    }
+
+    private ResultSet row(long id, String email, String phone, String ssn, boolean indexed) throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("id")).thenReturn(id);
+        when(resultSet.getString("email")).thenReturn(email);
+        when(resultSet.getString("phone")).thenReturn(phone);
+        when(resultSet.getString("ssn")).thenReturn(ssn);
+        when(resultSet.getString("email_index")).thenReturn(indexed ? "email-index" : null);
+        when(resultSet.getString("ssn_index")).thenReturn(indexed ? "ssn-index" : null);
+        return resultSet;
+    }
+}
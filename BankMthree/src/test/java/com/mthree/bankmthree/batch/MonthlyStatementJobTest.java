@@ -0,0 +1,91 @@
+package com.mthree.bankmthree.batch;
+
+import com.mthree.bankmthree.dto.transaction.StatementLine;
+import com.mthree.bankmthree.repository.TransactionRepository;
+import com.mthree.bankmthree.util.PdfGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MonthlyStatementJobTest {
+    private static final YearMonth MONTH = YearMonth.of(2024, 5);
+
+    @TempDir
+    Path outputDir;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWritesOneStatementPerAccountAndSkipsThemOnRestart() throws Exception {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        ResultSet first = account(1L, "4000000000000001");
+        ResultSet second = account(2L, "4000000000000002");
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0L), eq(2))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(first, 0), mapper.mapRow(second, 1));
+        });
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(2L), eq(2))).thenReturn(List.of());
+
+        TransactionRepository transactionRepository = mock(TransactionRepository.class);
+        LocalDateTime from = MONTH.atDay(1).atStartOfDay();
+        // Account 1 has two pages of transactions, account 2 has none
+        when(transactionRepository.findStatementPageAfter(eq(1L), eq(from), any(), eq(from), eq(0L), any()))
+                .thenReturn(List.of(line(10L, 1L), line(11L, 2L)));
+        when(transactionRepository.findStatementPageAfter(eq(1L), eq(from), any(), eq(from.plusHours(11)), eq(11L), any()))
+                .thenReturn(List.of(line(12L, 1L)));
+
+        PdfGenerator pdfGenerator = new PdfGenerator();
+        ReflectionTestUtils.setField(pdfGenerator, "logoPath", "");
+        ReflectionTestUtils.setField(pdfGenerator, "footerImagePath", "");
+
+        MonthlyStatementJob job = new MonthlyStatementJob(jdbcTemplate, transactionRepository, pdfGenerator,
+                outputDir.toString(), 2, 2, 2);
+        StatementRunProgress progress = job.run(MONTH, 0);
+
+        assertNull(progress.error());
+        assertEquals(2, progress.written());
+        assertEquals(0, progress.failed());
+        assertEquals(3, progress.transactions());
+        assertEquals(2, progress.lastAccountId());
+        Path directory = outputDir.resolve("2024-05");
+        assertTrue(Files.size(directory.resolve("statement-2024-05-1.pdf")) > 0);
+        assertTrue(Files.exists(directory.resolve("statement-2024-05-2.pdf")));
+        assertFalse(Files.exists(directory.resolve("statement-2024-05-1.pdf.part")));
+
+        StatementRunProgress rerun = job.run(MONTH, 0);
+        assertEquals(0, rerun.written());
+        assertEquals(2, rerun.skipped());
+    }
+
+    private static StatementLine line(long id, long senderAccountId) {
+        return new StatementLine(id, MONTH.atDay(1).atStartOfDay().plusHours(id), senderAccountId,
+                "400000000000000" + senderAccountId, "4000000000000009", new BigDecimal("5.00"));
+    }
+
+    private static ResultSet account(long id, String cardNumber) throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("id")).thenReturn(id);
+        when(resultSet.getString("card_number")).thenReturn(cardNumber);
+        when(resultSet.getString("currency")).thenReturn("USD");
+        return resultSet;
+    }
+}
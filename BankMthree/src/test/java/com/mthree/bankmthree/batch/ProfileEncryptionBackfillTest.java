@@ -0,0 +1,94 @@
+package com.mthree.bankmthree.batch;
+
+import com.mthree.bankmthree.util.AttributeEncryptor;
+import com.mthree.bankmthree.util.AttributeKeyRing;
+import com.mthree.bankmthree.util.BlindIndexer;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProfileEncryptionBackfillTest {
+    private static final String KEY_1 = "k1:AAECAwQFBgcICQoLDA0ODw==";
+    private static final String INDEX_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    private final AttributeKeyRing keyRing = new AttributeKeyRing(List.of(KEY_1), "k1");
+    private final BlindIndexer blindIndexer = new BlindIndexer(INDEX_KEY);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPlaintextProfilesAreEncryptedAndIndexed() throws Exception {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        ResultSet plaintext = row(4L, "alice@example.com", "5551234567", "123-45-6789");
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(0L), eq(2))).thenAnswer(invocation -> {
+            RowMapper<Object> mapper = invocation.getArgument(1);
+            return List.of(mapper.mapRow(plaintext, 0));
+        });
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), eq(4L), eq(2))).thenReturn(List.of());
+
+        new ProfileEncryptionBackfill(jdbcTemplate, transactionManager, keyRing, blindIndexer, true, 2).backfill();
+
+        ArgumentCaptor<List<Object[]>> updates = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), updates.capture());
+        Object[] update = updates.getValue().get(0);
+        AttributeEncryptor encryptor = new AttributeEncryptor(keyRing);
+        assertTrue(encryptor.isCurrent((String) update[0]));
+        assertEquals("alice@example.com", encryptor.convertToEntityAttribute((String) update[0]));
+        assertEquals("5551234567", encryptor.convertToEntityAttribute((String) update[1]));
+        assertEquals("123-45-6789", encryptor.convertToEntityAttribute((String) update[2]));
+        assertEquals(blindIndexer.emailIndex("alice@example.com"), update[3]);
+        assertEquals(blindIndexer.phoneIndex("5551234567"), update[4]);
+        assertEquals(blindIndexer.ssnIndex("123-45-6789"), update[5]);
+        // The update only applies if the row still holds the plaintext that was read
+        assertEquals(4L, update[6]);
+        assertEquals("alice@example.com", update[7]);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDisabledBackfillDoesNotScan() {
+        new ProfileEncryptionBackfill(jdbcTemplate, transactionManager, keyRing, blindIndexer, false, 2).backfill();
+
+        verify(jdbcTemplate, never()).query(anyString(), any(RowMapper.class), any(), any());
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    void testNarrowEncryptedColumnsAreWidened() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("email", "phone"));
+
+        new ProfileEncryptionBackfill(jdbcTemplate, transactionManager, keyRing, blindIndexer, false, 2).backfill();
+
+        verify(jdbcTemplate).execute("ALTER TABLE user_profiles MODIFY email VARCHAR(512) NOT NULL");
+        verify(jdbcTemplate).execute("ALTER TABLE user_profiles MODIFY phone VARCHAR(512)");
+        verify(jdbcTemplate, never()).execute(contains(" ssn "));
+    }
+
+    private ResultSet row(long id, String email, String phone, String ssn) throws Exception {
+        ResultSet resultSet = mock(ResultSet.class);
+        when(resultSet.getLong("id")).thenReturn(id);
+        when(resultSet.getString("email")).thenReturn(email);
+        when(resultSet.getString("phone")).thenReturn(phone);
+        when(resultSet.getString("ssn")).thenReturn(ssn);
+        return resultSet;
+    }
+}
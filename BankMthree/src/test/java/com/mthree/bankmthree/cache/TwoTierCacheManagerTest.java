@@ -0,0 +1,89 @@
+package com.mthree.bankmthree.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class TwoTierCacheManagerTest {
+
+    private SharedCacheStore sharedStore;
+    private CacheInvalidationBus invalidationBus;
+    private CaffeineCacheManager localOfNodeA;
+    private CaffeineCacheManager localOfNodeB;
+    private TwoTierCacheManager nodeA;
+    private TwoTierCacheManager nodeB;
+
+    @BeforeEach
+    void setUp() {
+        // Two application nodes sharing one L2 store and one invalidation bus
+        sharedStore = new InMemorySharedCacheStore();
+        invalidationBus = new InMemoryCacheInvalidationBus();
+        localOfNodeA = newLocalCacheManager();
+        localOfNodeB = newLocalCacheManager();
+        nodeA = new TwoTierCacheManager(localOfNodeA, sharedStore, invalidationBus, List.of("users", "transactionHistory"));
+        nodeB = new TwoTierCacheManager(localOfNodeB, sharedStore, invalidationBus, List.of("users", "transactionHistory"));
+    }
+
+    @Test
+    void testValueWrittenOnOneNodeIsReadFromSharedTierOnAnother() {
+        nodeA.getCache("users").put("alice", "v1");
+
+        assertEquals("v1", nodeB.getCache("users").get("alice").get());
+        // Now held in node B's local tier as well
+        assertEquals("v1", localOfNodeB.getCache("users").get("alice").get());
+    }
+
+    @Test
+    void testEvictionOnOneNodeInvalidatesLocalCopiesEverywhere() {
+        nodeA.getCache("users").put("alice", "v1");
+        nodeB.getCache("users").get("alice");
+
+        nodeA.getCache("users").evict("alice");
+
+        assertNull(localOfNodeB.getCache("users").get("alice"));
+        assertNull(nodeB.getCache("users").get("alice"));
+    }
+
+    @Test
+    void testUpdateOnOneNodeReplacesStaleLocalCopyOnAnother() {
+        nodeA.getCache("transactionHistory").put(1L, List.of("t1"));
+        nodeB.getCache("transactionHistory").get(1L);
+
+        nodeA.getCache("transactionHistory").put(1L, List.of("t2", "t1"));
+
+        assertEquals(List.of("t2", "t1"), nodeB.getCache("transactionHistory").get(1L).get());
+    }
+
+    @Test
+    void testLoaderRunsOnceAcrossNodes() {
+        int[] loads = {0};
+        nodeA.getCache("users").get("bob", () -> ++loads[0]);
+        Object value = nodeB.getCache("users").get("bob", () -> ++loads[0]);
+
+        assertEquals(1, value);
+        assertEquals(1, loads[0]);
+    }
+
+    @Test
+    void testOtherCachesStayLocal() {
+        Cache accounts = nodeA.getCache("accounts");
+
+        assertInstanceOf(org.springframework.cache.caffeine.CaffeineCache.class, accounts);
+        accounts.put("key", "value");
+        assertNull(nodeB.getCache("accounts").get("key"));
+    }
+
+    private CaffeineCacheManager newLocalCacheManager() {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCaffeine(Caffeine.newBuilder().maximumSize(100));
+        return cacheManager;
+    }
+}
@@ -0,0 +1,68 @@
+package com.mthree.bankmthree.config;
+
+import com.mthree.bankmthree.dto.user.UserSnapshot;
+import com.mthree.bankmthree.entity.enums.Role;
+import com.mthree.bankmthree.entity.enums.Status;
+import com.mthree.bankmthree.entity.enums.UserType;
+import com.mthree.bankmthree.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CacheConfigTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void testCachesAreBoundedAndPublishStatistics() {
+        CacheManager cacheManager = newCacheManager("maximumWeight=3,recordStats");
+        Cache history = cacheManager.getCache("transactionHistory");
+        assertInstanceOf(CaffeineCache.class, history);
+
+        history.get(1L);
+        history.put(1L, List.of("a", "b"));
+        history.get(1L);
+        // Two rows plus one weigh 3, so a second history of the same size pushes the first one out
+        history.put(2L, List.of("c", "d"));
+        ((CaffeineCache) history).getNativeCache().cleanUp();
+
+        assertNull(history.get(1L));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "transactionHistory").tag("result", "hit").functionCounter().count());
+        assertNotNull(meterRegistry.find("cache.size").tag("cache", "users").gauge());
+    }
+
+    @Test
+    void testUsersCacheLoadsThroughRepository() {
+        UserSnapshot user = new UserSnapshot(1L, "alice", Role.ROLE_USER, Status.ACTIVE, UserType.STANDARD);
+        when(userRepository.findSnapshotByUsername("alice")).thenReturn(Optional.of(user));
+        CacheManager cacheManager = newCacheManager("maximumWeight=100,recordStats");
+
+        assertEquals(user, cacheManager.getCache("users").get("alice").get());
+    }
+
+    @SuppressWarnings("unchecked")
+    private CacheManager newCacheManager(String transactionHistorySpec) {
+        return new CacheConfig().cacheManager(userRepository, meterRegistry,
+                "maximumSize=10,recordStats",
+                "maximumSize=10,expireAfterWrite=15m,refreshAfterWrite=5m,recordStats",
+                "maximumSize=10,recordStats",
+                "maximumSize=10,recordStats",
+                transactionHistorySpec,
+                "maximumSize=10,expireAfterWrite=30s,recordStats",
+                false, List.of(), mock(ObjectProvider.class), mock(ObjectProvider.class));
+    }
+}
@@ -0,0 +1,39 @@
+package com.mthree.bankmthree.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.SQLException;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SequenceSeederTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+
+    @Test
+    void testEverySequenceIsRaisedAboveItsTableMaxId() {
+        new SequenceSeeder(jdbcTemplate).seed();
+
+        verify(jdbcTemplate, times(SequenceSeeder.SEQUENCES.size())).update(anyString());
+        verify(jdbcTemplate).update("UPDATE users_seq SET next_val = GREATEST(next_val, " +
+                "(SELECT COALESCE(MAX(id), 0) + 50 FROM users))");
+    }
+
+    @Test
+    void testMissingSequenceTableDoesNotStopTheOthers() {
+        when(jdbcTemplate.update(contains("users_seq "))).thenThrow(
+                new BadSqlGrammarException("seed", "UPDATE users_seq", new SQLException("Table doesn't exist")));
+
+        new SequenceSeeder(jdbcTemplate).seed();
+
+        verify(jdbcTemplate).update(contains("accounts_seq "));
+        verify(jdbcTemplate).update(contains("email_outbox_seq "));
+    }
+}
@@ -2,9 +2,13 @@ package com.mthree.bankmthree.controller;
 
 import com.mthree.bankmthree.dto.account.AccountDTO;
 import com.mthree.bankmthree.dto.account.CloseAccountRequest;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
 import com.mthree.bankmthree.entity.Account;
 import com.mthree.bankmthree.entity.User;
 import com.mthree.bankmthree.entity.enums.CurrencyType;
+import com.mthree.bankmthree.entity.enums.Role;
+import com.mthree.bankmthree.entity.enums.Status;
+import com.mthree.bankmthree.entity.enums.UserType;
 import com.mthree.bankmthree.mapper.UserMapper;
 import com.mthree.bankmthree.service.UserService;
 import com.mthree.bankmthree.service.impl.AccountServiceImpl;
@@ -44,6 +48,7 @@ public class AccountControllerTest {
     private UserDetails userDetails;
 
     private User user;
+    private UserSnapshot userSnapshot;
     private Account account;
 
     @BeforeEach
@@ -51,6 +56,7 @@ public class AccountControllerTest {
         MockitoAnnotations.openMocks(this);
         user = new User(); // Initialize a user object as needed
         user.getProfile().setUsername("testUser");
+        userSnapshot = new UserSnapshot(1L, "testUser", Role.ROLE_USER, Status.ACTIVE, UserType.STANDARD);
 
         account = new Account();
         account.setCardNumber("123456789");
@@ -64,7 +70,7 @@ public class AccountControllerTest {
         accountDTO.setCurrency(CurrencyType.USD);
 
         when(userDetails.getUsername()).thenReturn("testUser");
-        when(userService.findByUsername(anyString())).thenReturn(user);
+        when(userService.findSnapshotByUsername(anyString())).thenReturn(userSnapshot);
         when(accountService.createAccount(any(), any())).thenReturn(account);
         when(userMapper.toAccountDTO(any())).thenReturn(accountDTO);
 
@@ -73,7 +79,7 @@ public class AccountControllerTest {
         assertEquals(200, response.getStatusCodeValue());
         assertEquals("Account created successfully!", response.getBody().getMessage());
         assertEquals(accountDTO, response.getBody().getData());
-        verify(accountService).createAccount(user, accountDTO.getCurrency());
+        verify(accountService).createAccount(userSnapshot, accountDTO.getCurrency());
     }
 
     @Test
@@ -82,7 +88,7 @@ public class AccountControllerTest {
         accountDTOs.add(new AccountDTO()); // Add mock accounts as needed
 
         when(userDetails.getUsername()).thenReturn("testUser");
-        when(userService.findByUsername(anyString())).thenReturn(user);
+        when(userService.findSnapshotByUsername(anyString())).thenReturn(userSnapshot);
         when(accountService.getUserAccounts(any())).thenReturn(accountDTOs);
 
         ResponseEntity<ApiResponse> response = accountController.getUserAccounts(userDetails);
@@ -90,7 +96,7 @@ public class AccountControllerTest {
         assertEquals(200, response.getStatusCodeValue());
         assertEquals("Retrieved accounts successfully", response.getBody().getMessage());
         assertEquals(accountDTOs, response.getBody().getData());
-        verify(accountService).getUserAccounts(user);
+        verify(accountService).getUserAccounts(userSnapshot);
     }
 
     @Test
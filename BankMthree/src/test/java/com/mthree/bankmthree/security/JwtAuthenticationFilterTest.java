@@ -0,0 +1,97 @@
+package com.mthree.bankmthree.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.mthree.bankmthree.entity.enums.Role;
+import com.mthree.bankmthree.entity.enums.Status;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JwtAuthenticationFilterTest {
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+    private final UserDetailsService userDetailsService = mock(UserDetailsService.class);
+    private final UserStatusProvider userStatusProvider = mock(UserStatusProvider.class);
+    private JwtUtils jwtUtils;
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000L);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheMaximumSize", 100L);
+        jwtUtils.init();
+        filter = new JwtAuthenticationFilter(jwtUtils, userDetailsService, userStatusProvider);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void testAuthenticatesFromClaimsWithoutLoadingTheUser() throws Exception {
+        when(userStatusProvider.findStatus(7L)).thenReturn(Status.ACTIVE);
+        String token = jwtUtils.generateJwtToken(new AuthenticatedUser(7L, "alice", "hash", Role.ROLE_ADMIN, true));
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        AuthenticatedUser principal = assertInstanceOf(AuthenticatedUser.class, authentication.getPrincipal());
+        assertEquals(7L, principal.getId());
+        assertEquals("alice", principal.getUsername());
+        assertNull(principal.getPassword());
+        assertEquals("ROLE_ADMIN", authentication.getAuthorities().iterator().next().getAuthority());
+        verify(userDetailsService, never()).loadUserByUsername(anyString());
+    }
+
+    @Test
+    void testSuspendedUserIsNotAuthenticated() throws Exception {
+        when(userStatusProvider.findStatus(7L)).thenReturn(Status.SUSPENDED);
+        String token = jwtUtils.generateJwtToken(new AuthenticatedUser(7L, "alice", "hash", Role.ROLE_USER, true));
+
+        filter.doFilter(requestWith(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void testTokenWithoutClaimsFallsBackToLoadingTheUser() throws Exception {
+        String legacyToken = JWT.create()
+                .withSubject("alice")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(Algorithm.HMAC512(SECRET));
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(new AuthenticatedUser(7L, "alice", "hash", Role.ROLE_USER, true));
+
+        filter.doFilter(requestWith(legacyToken), new MockHttpServletResponse(), new MockFilterChain());
+
+        assertEquals("alice", SecurityContextHolder.getContext().getAuthentication().getName());
+        verify(userStatusProvider, never()).findStatus(7L);
+    }
+
+    private MockHttpServletRequest requestWith(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+}
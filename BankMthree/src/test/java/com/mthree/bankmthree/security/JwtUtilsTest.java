@@ -0,0 +1,70 @@
+package com.mthree.bankmthree.security;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import com.mthree.bankmthree.entity.enums.Role;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class JwtUtilsTest {
+    private static final String SECRET = "test-secret-test-secret-test-secret-test-secret";
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    public void setUp() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", SECRET);
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 60_000L);
+        ReflectionTestUtils.setField(jwtUtils, "verifiedCacheMaximumSize", 100L);
+        jwtUtils.init();
+    }
+
+    @Test
+    void testVerifyDecodesClaimsOnceAndCachesTheResult() {
+        String token = jwtUtils.generateJwtToken(new AuthenticatedUser(7L, "alice", "hash", Role.ROLE_USER, true));
+
+        VerifiedJwt first = jwtUtils.verify(token);
+
+        assertEquals("alice", first.username());
+        assertEquals(7L, first.userId());
+        assertEquals(Role.ROLE_USER, first.role());
+        // A cache hit returns the same decoded instance without verifying again
+        assertSame(first, jwtUtils.verify(token));
+    }
+
+    @Test
+    void testInvalidTokensAreRejectedAndNotCached() {
+        String token = jwtUtils.generateJwtToken(new AuthenticatedUser(7L, "alice", "hash", Role.ROLE_USER, true));
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+        String expired = JWT.create()
+                .withSubject("alice")
+                .withExpiresAt(new Date(System.currentTimeMillis() - 1_000))
+                .sign(Algorithm.HMAC512(SECRET));
+
+        assertNull(jwtUtils.verify(tampered));
+        assertNull(jwtUtils.verify(expired));
+        assertNull(jwtUtils.verify(expired));
+    }
+
+    @Test
+    void testTokenWithoutUserClaimsIsStillVerified() {
+        String legacyToken = JWT.create()
+                .withSubject("alice")
+                .withExpiresAt(new Date(System.currentTimeMillis() + 60_000))
+                .sign(Algorithm.HMAC512(SECRET));
+
+        VerifiedJwt verified = jwtUtils.verify(legacyToken);
+
+        assertEquals("alice", verified.username());
+        assertFalse(verified.hasUserClaims());
+    }
+}
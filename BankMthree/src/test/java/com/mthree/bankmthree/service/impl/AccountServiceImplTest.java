@@ -0,0 +1,45 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.entity.Account;
+import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.entity.enums.CurrencyType;
+import com.mthree.bankmthree.mapper.UserMapper;
+import com.mthree.bankmthree.repository.AccountRepository;
+import com.mthree.bankmthree.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccountServiceImplTest {
+
+    @Test
+    void testAccountsAreSavedTogetherAfterAllCardNumbersAreClaimed() {
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        CardNumberPool cardNumberPool = mock(CardNumberPool.class);
+        AccountServiceImpl accountService = new AccountServiceImpl(accountRepository, mock(UserRepository.class), cardNumberPool, mock(UserMapper.class), 5);
+        when(cardNumberPool.claim(2)).thenReturn(List.of("4000000000000001", "4000000000000002"));
+        when(accountRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        List<Account> accounts = accountService.createAndInitializeAccounts(new User(), CurrencyType.USD, CurrencyType.EUR);
+
+        assertEquals(2, accounts.size());
+        assertEquals(CurrencyType.EUR, accounts.get(1).getCurrency());
+        assertEquals("4000000000000002", accounts.get(1).getCardNumber());
+        // A claim after a pending insert would flush it alone and break the batch
+        InOrder inOrder = inOrder(cardNumberPool, accountRepository);
+        inOrder.verify(cardNumberPool, times(1)).claim(2);
+        inOrder.verify(accountRepository).saveAll(anyList());
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+}
@@ -0,0 +1,66 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.repository.AccountRepository;
+import com.mthree.bankmthree.repository.CardNumberPoolRepository;
+import com.mthree.bankmthree.util.CardNumberGenerator;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CardNumberPoolTest {
+    private final CardNumberPoolRepository poolRepository = mock(CardNumberPoolRepository.class);
+    private final AccountRepository accountRepository = mock(AccountRepository.class);
+    private final CardNumberGenerator cardNumberGenerator = mock(CardNumberGenerator.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final CardNumberPool cardNumberPool =
+            new CardNumberPool(poolRepository, accountRepository, cardNumberGenerator, jdbcTemplate, 2, 3, 10);
+
+    @Test
+    void testClaimTakesPooledNumbersWithoutUniquenessChecks() {
+        when(poolRepository.lockAvailable(2)).thenReturn(List.of("4000000000000001", "4000000000000002"));
+
+        List<String> cardNumbers = cardNumberPool.claim(2);
+
+        assertEquals(List.of("4000000000000001", "4000000000000002"), cardNumbers);
+        verify(poolRepository).deleteByCardNumberIn(cardNumbers);
+        verify(cardNumberGenerator, never()).generateUniqueCardNumber();
+    }
+
+    @Test
+    void testClaimGeneratesInlineWhenThePoolRunsDry() {
+        when(poolRepository.lockAvailable(2)).thenReturn(List.of("4000000000000001"));
+        when(cardNumberGenerator.generateUniqueCardNumber()).thenReturn("4000000000000009");
+
+        assertEquals(List.of("4000000000000001", "4000000000000009"), cardNumberPool.claim(2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefillSkipsNumbersAlreadyUsedByAccounts() {
+        when(poolRepository.count()).thenReturn(0L);
+        when(cardNumberGenerator.generateCardNumber()).thenReturn("4000000000000001", "4000000000000002", "4000000000000003");
+        when(accountRepository.findCardNumbersIn(anyCollection())).thenReturn(List.of("4000000000000002"));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1}, new int[0]);
+
+        cardNumberPool.refill();
+
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        // The second batch inserts nothing new, which ends the run instead of spinning
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), rows.capture());
+        List<Object[]> firstBatch = rows.getAllValues().get(0);
+        assertEquals(Set.of("4000000000000001", "4000000000000003"), Set.of(firstBatch.get(0)[0], firstBatch.get(1)[0]));
+    }
+}
@@ -0,0 +1,262 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.entity.EmailOutbox;
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.entity.enums.OutboxStatus;
+import com.mthree.bankmthree.repository.EmailOutboxRepository;
+import com.mthree.bankmthree.repository.TransactionRepository;
+import com.mthree.bankmthree.service.EmailService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.MailSendException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmailOutboxDispatcherTest {
+
+    private static final Long MESSAGE_ID = 7L;
+    private static final Long TRANSACTION_ID = 42L;
+    private static final Long USER_ID = 3L;
+
+    private EmailOutboxRepository outboxRepository;
+    private TransactionRepository transactionRepository;
+    private EmailService emailService;
+    private PlatformTransactionManager transactionManager;
+    private EmailOutboxDispatcher dispatcher;
+    private EmailOutbox message;
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        outboxRepository = mock(EmailOutboxRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        emailService = mock(EmailService.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        dispatcher = dispatcher("immediate");
+
+        transaction = transaction(TRANSACTION_ID, LocalDateTime.now());
+        message = EmailOutbox.builder()
+                .id(MESSAGE_ID)
+                .transactionId(TRANSACTION_ID)
+                .status(OutboxStatus.PROCESSING)
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+
+        when(outboxRepository.claim(eq(MESSAGE_ID), eq(OutboxStatus.PENDING), eq(OutboxStatus.PROCESSING), any())).thenReturn(1);
+        when(outboxRepository.findById(MESSAGE_ID)).thenReturn(Optional.of(message));
+        when(transactionRepository.findWithPartiesByIdIn(List.of(TRANSACTION_ID))).thenReturn(List.of(transaction));
+        when(outboxRepository.save(any(EmailOutbox.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private EmailOutboxDispatcher dispatcher(String mode) {
+        return new EmailOutboxDispatcher(outboxRepository, transactionRepository, emailService,
+                transactionManager, 3, 1000, 60000, 100, 4, mode, 60000, 200);
+    }
+
+    private static Transaction transaction(Long id, LocalDateTime timestamp) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setTimestamp(timestamp);
+        transaction.setSender(User.builder().id(USER_ID).build());
+        return transaction;
+    }
+
+    private EmailOutbox pendingMessage(Long id, Long transactionId) {
+        EmailOutbox pending = EmailOutbox.builder()
+                .id(id)
+                .transactionId(transactionId)
+                .userId(USER_ID)
+                .status(OutboxStatus.PROCESSING)
+                .attempts(1)
+                .nextAttemptAt(LocalDateTime.now())
+                .createdAt(LocalDateTime.now())
+                .build();
+        when(outboxRepository.claim(eq(id), eq(OutboxStatus.PENDING), eq(OutboxStatus.PROCESSING), any())).thenReturn(1);
+        when(outboxRepository.findById(id)).thenReturn(Optional.of(pending));
+        return pending;
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void testSuccessfulSendMarksMessageSent() {
+        dispatcher.dispatch(MESSAGE_ID);
+
+        verify(emailService).sendTransactionEmail(transaction);
+        assertEquals(OutboxStatus.SENT, message.getStatus());
+        assertNull(message.getLastError());
+    }
+
+    @Test
+    void testReceiptIsSentAfterTheReadTransactionHasEnded() {
+        AtomicInteger openTransactions = new AtomicInteger();
+        AtomicInteger openWhileSending = new AtomicInteger(-1);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> {
+            openTransactions.incrementAndGet();
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> openTransactions.decrementAndGet()).when(transactionManager).commit(any());
+        doAnswer(invocation -> {
+            openWhileSending.set(openTransactions.get());
+            return null;
+        }).when(emailService).sendTransactionEmail(transaction);
+
+        dispatcher.dispatch(MESSAGE_ID);
+
+        assertEquals(0, openWhileSending.get());
+    }
+
+    @Test
+    void testFailedSendIsRescheduledWithBackoff() {
+        doThrow(new MailSendException("SMTP unavailable")).when(emailService).sendTransactionEmail(transaction);
+
+        dispatcher.dispatch(MESSAGE_ID);
+
+        assertEquals(OutboxStatus.PENDING, message.getStatus());
+        assertTrue(message.getNextAttemptAt().isAfter(LocalDateTime.now()));
+        assertNotNull(message.getLastError());
+    }
+
+    @Test
+    void testFailedSendIsDeadLetteredAfterLastAttempt() {
+        message.setAttempts(3);
+        doThrow(new MailSendException("SMTP unavailable")).when(emailService).sendTransactionEmail(transaction);
+
+        dispatcher.dispatch(MESSAGE_ID);
+
+        assertEquals(OutboxStatus.DEAD, message.getStatus());
+        assertTrue(message.getLastError().contains("SMTP unavailable"));
+    }
+
+    @Test
+    void testMessageClaimedElsewhereIsNotSent() {
+        when(outboxRepository.claim(eq(MESSAGE_ID), eq(OutboxStatus.PENDING), eq(OutboxStatus.PROCESSING), any())).thenReturn(0);
+
+        dispatcher.dispatch(MESSAGE_ID);
+
+        verify(emailService, never()).sendTransactionEmail(any());
+    }
+
+    @Test
+    void testEnqueuedMessageIsSentOnlyAfterCommit() {
+        when(outboxRepository.save(any(EmailOutbox.class))).thenAnswer(invocation -> {
+            EmailOutbox saved = invocation.getArgument(0);
+            if (saved.getId() == null) {
+                saved.setId(MESSAGE_ID);
+            }
+            return saved;
+        });
+        TransactionSynchronizationManager.initSynchronization();
+
+        dispatcher.enqueue(transaction);
+        verify(emailService, never()).sendTransactionEmail(any());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        verify(emailService, timeout(5000)).sendTransactionEmail(transaction);
+    }
+
+    @Test
+    void testDigestModeBuffersMessagesForTheWindow() {
+        dispatcher = dispatcher("digest");
+        ArgumentCaptor<EmailOutbox> saved = ArgumentCaptor.forClass(EmailOutbox.class);
+        TransactionSynchronizationManager.initSynchronization();
+
+        dispatcher.enqueue(transaction);
+
+        verify(outboxRepository).save(saved.capture());
+        assertEquals(USER_ID, saved.getValue().getUserId());
+        assertTrue(saved.getValue().getNextAttemptAt().isAfter(LocalDateTime.now().plusSeconds(30)));
+        assertTrue(TransactionSynchronizationManager.getSynchronizations().isEmpty());
+    }
+
+    @Test
+    void testDigestSendsAllPendingMessagesOfTheUserAsOneEmail() {
+        dispatcher = dispatcher("digest");
+        LocalDateTime now = LocalDateTime.now();
+        EmailOutbox first = pendingMessage(11L, 101L);
+        EmailOutbox second = pendingMessage(12L, 102L);
+        Transaction older = transaction(101L, now.minusMinutes(5));
+        Transaction newer = transaction(102L, now);
+        when(outboxRepository.lockPendingIdsByUser(eq(USER_ID), any(), anyInt())).thenReturn(List.of(11L, 12L));
+        when(outboxRepository.findAllById(List.of(11L, 12L))).thenReturn(List.of(first, second));
+        when(transactionRepository.findWithPartiesByIdIn(List.of(101L, 102L))).thenReturn(List.of(newer, older));
+
+        dispatcher.dispatchDigest(USER_ID);
+
+        verify(emailService).sendTransactionDigest(List.of(older, newer));
+        verify(emailService, never()).sendTransactionEmail(any());
+        // Both messages are claimed by one update
+        verify(outboxRepository).claimAll(eq(List.of(11L, 12L)), eq(OutboxStatus.PENDING), eq(OutboxStatus.PROCESSING), any());
+        verify(outboxRepository, never()).claim(any(), any(), any(), any());
+        assertEquals(OutboxStatus.SENT, first.getStatus());
+        assertEquals(OutboxStatus.SENT, second.getStatus());
+    }
+
+    @Test
+    void testFailedDigestReschedulesEveryMessage() {
+        dispatcher = dispatcher("digest");
+        EmailOutbox first = pendingMessage(11L, 101L);
+        EmailOutbox second = pendingMessage(12L, 102L);
+        when(outboxRepository.lockPendingIdsByUser(eq(USER_ID), any(), anyInt())).thenReturn(List.of(11L, 12L));
+        when(outboxRepository.findAllById(List.of(11L, 12L))).thenReturn(List.of(first, second));
+        when(transactionRepository.findWithPartiesByIdIn(List.of(101L, 102L)))
+                .thenReturn(List.of(transaction(101L, LocalDateTime.now()), transaction(102L, LocalDateTime.now())));
+        doThrow(new MailSendException("SMTP unavailable")).when(emailService).sendTransactionDigest(any());
+
+        dispatcher.dispatchDigest(USER_ID);
+
+        assertEquals(OutboxStatus.PENDING, first.getStatus());
+        assertEquals(OutboxStatus.PENDING, second.getStatus());
+        assertNotNull(second.getLastError());
+    }
+
+    @Test
+    void testDigestPollStartsOneDigestPerUser() {
+        dispatcher = dispatcher("digest");
+        EmailOutbox first = pendingMessage(11L, 101L);
+        EmailOutbox second = pendingMessage(12L, 102L);
+        when(outboxRepository.findDue(eq(OutboxStatus.PENDING), any(), any())).thenReturn(List.of(first, second));
+        when(outboxRepository.lockPendingIdsByUser(eq(USER_ID), any(), anyInt())).thenReturn(List.of(11L));
+        when(outboxRepository.findAllById(List.of(11L))).thenReturn(List.of(first));
+        when(transactionRepository.findWithPartiesByIdIn(List.of(101L))).thenReturn(List.of(transaction));
+
+        dispatcher.pollDueMessages();
+
+        // A digest of one transaction is sent as the regular receipt
+        verify(emailService, timeout(5000)).sendTransactionEmail(transaction);
+        verify(outboxRepository, timeout(5000).times(1)).lockPendingIdsByUser(eq(USER_ID), any(), anyInt());
+    }
+}
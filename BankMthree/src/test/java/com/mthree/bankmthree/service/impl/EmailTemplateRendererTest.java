@@ -0,0 +1,118 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.entity.Account;
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.entity.UserProfile;
+import com.mthree.bankmthree.entity.enums.CurrencyType;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.IEngineConfiguration;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+import org.thymeleaf.templateresolver.TemplateResolution;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmailTemplateRendererTest {
+
+    @Test
+    void testTemplateIsResolvedAndParsedOnlyOnce() {
+        CountingResolver resolver = new CountingResolver();
+        EmailTemplateRenderer renderer = new EmailTemplateRenderer(resolver);
+
+        String html = null;
+        for (int i = 0; i < 100; i++) {
+            html = renderer.renderTransactionReceipt(transaction(i));
+        }
+
+        assertEquals(1, resolver.resolutions.get());
+        // The shared head fragment is part of the compiled output
+        assertTrue(html.contains("<title>Transaction Receipt</title>"));
+        assertTrue(html.contains(".container {"));
+        assertTrue(html.contains("<td>12.50 USD</td>"));
+        assertTrue(html.contains("<td>2024-05-01 10:30:00</td>"));
+        assertTrue(html.contains("<td>99</td>"));
+        assertTrue(html.contains("Thank you for using our service!"));
+        assertFalse(html.contains("@@"));
+    }
+
+    @Test
+    void testValuesAreEscapedLikeThText() {
+        EmailTemplateRenderer renderer = new EmailTemplateRenderer(new CountingResolver());
+        Transaction transaction = transaction(1);
+        transaction.getSender().getProfile().setLastName("<O'Brien>");
+
+        String html = renderer.renderTransactionReceipt(transaction);
+
+        assertTrue(html.contains("Alice &lt;O&#39;Brien&gt;"));
+    }
+
+    @Test
+    void testDigestListsEveryTransactionOnce() {
+        EmailTemplateRenderer renderer = new EmailTemplateRenderer(new CountingResolver());
+        Transaction last = transaction(3);
+        last.setTimestamp(LocalDateTime.of(2024, 5, 1, 18, 0));
+        last.getReceiver().getProfile().setLastName("<Jones>");
+
+        String html = renderer.renderTransactionDigest(List.of(transaction(1), transaction(2), last));
+
+        assertEquals(3, html.split("<td>12.50 USD</td>", -1).length - 1);
+        assertTrue(html.contains("<td>2</td>"));
+        assertTrue(html.contains("<td>Bob &lt;Jones&gt;</td>"));
+        assertTrue(html.contains("2024-05-01 10:30:00 - 2024-05-01 18:00:00"));
+        assertTrue(html.contains("<td>3</td>"));
+        assertFalse(html.contains("@@"));
+    }
+
+    private static Transaction transaction(long id) {
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAmount(new BigDecimal("12.50"));
+        transaction.setTimestamp(LocalDateTime.of(2024, 5, 1, 10, 30));
+        transaction.setSender(User.builder().profile(UserProfile.builder().firstName("Alice").lastName("Smith").build()).build());
+        transaction.setReceiver(User.builder().profile(UserProfile.builder().firstName("Bob").lastName("Jones").build()).build());
+        transaction.setSenderAccount(Account.builder().cardNumber("4000000000000001").currency(CurrencyType.USD).build());
+        transaction.setReceiverAccount(Account.builder().cardNumber("4000000000000002").currency(CurrencyType.USD).build());
+        return transaction;
+    }
+
+    private static final class CountingResolver implements ITemplateResolver {
+        private final ClassLoaderTemplateResolver delegate = new ClassLoaderTemplateResolver();
+        private final AtomicInteger resolutions = new AtomicInteger();
+
+        private CountingResolver() {
+            delegate.setPrefix("templates/");
+            delegate.setSuffix(".html");
+            delegate.setTemplateMode(TemplateMode.HTML);
+            delegate.setCharacterEncoding("UTF-8");
+        }
+
+        @Override
+        public String getName() {
+            return "counting";
+        }
+
+        @Override
+        public Integer getOrder() {
+            return 1;
+        }
+
+        @Override
+        public TemplateResolution resolveTemplate(IEngineConfiguration configuration, String ownerTemplate, String template,
+                                                  Map<String, Object> templateResolutionAttributes) {
+            if (EmailTemplateRenderer.TRANSACTION_RECEIPT.equals(template)) {
+                resolutions.incrementAndGet();
+            }
+            return delegate.resolveTemplate(configuration, ownerTemplate, template, templateResolutionAttributes);
+        }
+    }
+}
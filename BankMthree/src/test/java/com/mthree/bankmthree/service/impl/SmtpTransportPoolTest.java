@@ -0,0 +1,118 @@
+package com.mthree.bankmthree.service.impl;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SmtpTransportPoolTest {
+    private JavaMailSenderImpl mailSender;
+
+    @BeforeEach
+    void setUp() {
+        CountingTransport.connects.set(0);
+        CountingTransport.sent.set(0);
+        CountingTransport.failNext = false;
+        Session session = Session.getInstance(new Properties());
+        session.addProvider(new Provider(Provider.Type.TRANSPORT, "counting", CountingTransport.class.getName(), "test", "1"));
+        mailSender = new JavaMailSenderImpl();
+        mailSender.setSession(session);
+        mailSender.setProtocol("counting");
+        mailSender.setHost("localhost");
+    }
+
+    @Test
+    void testConnectionIsReusedAcrossMessages() throws Exception {
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender, 2, 100, 60000);
+
+        for (int i = 0; i < 5; i++) {
+            pool.send(message());
+        }
+
+        assertEquals(1, CountingTransport.connects.get());
+        assertEquals(5, CountingTransport.sent.get());
+    }
+
+    @Test
+    void testConnectionIsReplacedAfterItsMessageLimit() throws Exception {
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender, 2, 2, 60000);
+
+        for (int i = 0; i < 5; i++) {
+            pool.send(message());
+        }
+
+        assertEquals(3, CountingTransport.connects.get());
+    }
+
+    @Test
+    void testRejectedMessageIsReportedAndConnectionDiscarded() throws Exception {
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender, 2, 100, 60000);
+        pool.send(message());
+        CountingTransport.failNext = true;
+
+        assertThrows(MailSendException.class, () -> pool.send(message()));
+        pool.send(message());
+
+        // The connection is open but the server rejected the message, so it is not resent
+        assertEquals(2, CountingTransport.sent.get());
+        assertEquals(2, CountingTransport.connects.get());
+    }
+
+    @Test
+    void testMessageHeadersArePreparedBeforeSending() throws Exception {
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender, 1, 100, 60000);
+        MimeMessage message = message();
+
+        pool.send(message);
+
+        assertNotNull(message.getSentDate());
+        assertNotNull(message.getMessageID());
+    }
+
+    private MimeMessage message() throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        message.setRecipients(Message.RecipientType.TO, "user@example.com");
+        message.setText("Transaction Notification");
+        return message;
+    }
+
+    public static class CountingTransport extends Transport {
+        static final AtomicInteger connects = new AtomicInteger();
+        static final AtomicInteger sent = new AtomicInteger();
+        static volatile boolean failNext;
+
+        public CountingTransport(Session session, URLName urlName) {
+            super(session, urlName);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) {
+            connects.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            if (failNext) {
+                failNext = false;
+                throw new MessagingException("550 Rejected");
+            }
+            sent.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.dto.transaction.TransactionResponse;
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.mapper.TransactionMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TransactionHistoryCacheMaintainerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 1, 12, 0);
+
+    private TransactionMapper transactionMapper;
+    private Cache cache;
+    private TransactionHistoryCacheMaintainer maintainer;
+
+    @BeforeEach
+    void setUp() {
+        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager(TransactionHistoryCacheMaintainer.CACHE_NAME);
+        cache = cacheManager.getCache(TransactionHistoryCacheMaintainer.CACHE_NAME);
+        transactionMapper = mock(TransactionMapper.class);
+        maintainer = new TransactionHistoryCacheMaintainer(cacheManager, transactionMapper, new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testNewTransactionIsAddedToCachedHistoriesOnlyAfterCommit() {
+        cache.put(1L, List.of(row(10L, NOW.minusMinutes(5))));
+        cache.put(3L, List.of(row(5L, NOW.minusHours(1))));
+        Transaction transaction = new Transaction();
+        when(transactionMapper.toResponse(transaction)).thenReturn(row(11L, NOW));
+        TransactionSynchronizationManager.initSynchronization();
+
+        maintainer.onTransactionSaved(transaction, 1L, 2L);
+        assertEquals(1, cachedHistory(1L).size());
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        List<TransactionResponse> senderHistory = cachedHistory(1L);
+        assertEquals(List.of(11L, 10L), senderHistory.stream().map(TransactionResponse::getTransactionId).toList());
+        // The receiver had nothing cached, and unrelated users keep their entries
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(3L));
+    }
+
+    @Test
+    void testHistoryLoadedAfterCommitIsNotUpdatedTwice() {
+        cache.put(1L, List.of(row(11L, NOW), row(10L, NOW.minusMinutes(5))));
+        Transaction transaction = new Transaction();
+        when(transactionMapper.toResponse(transaction)).thenReturn(row(11L, NOW));
+
+        maintainer.onTransactionSaved(transaction, 1L, 1L);
+
+        assertEquals(2, cachedHistory(1L).size());
+    }
+
+    @Test
+    void testNothingIsMappedWhenNoHistoryIsCached() {
+        Transaction transaction = new Transaction();
+
+        maintainer.onTransactionSaved(transaction, 1L, 2L);
+
+        verify(transactionMapper, never()).toResponse(transaction);
+        assertNull(cache.get(1L));
+    }
+
+    @Test
+    void testEvictionTargetsOnlyAffectedUsers() {
+        cache.put(1L, List.of(row(10L, NOW)));
+        cache.put(2L, List.of(row(10L, NOW)));
+        cache.put(3L, List.of(row(5L, NOW)));
+
+        maintainer.evictAfterCommit(List.of(1L, 2L));
+
+        assertNull(cache.get(1L));
+        assertNull(cache.get(2L));
+        assertNotNull(cache.get(3L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<TransactionResponse> cachedHistory(Long userId) {
+        return (List<TransactionResponse>) cache.get(userId).get();
+    }
+
+    private TransactionResponse row(Long id, LocalDateTime timestamp) {
+        return new TransactionResponse(id, 1L, "4000000000000001", 2L, "4000000000000002", BigDecimal.ONE, "USD", BigDecimal.TEN, timestamp);
+    }
+}
@@ -0,0 +1,434 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.dto.account.AccountTransferView;
+import com.mthree.bankmthree.dto.transaction.BatchTransferResult;
+import com.mthree.bankmthree.dto.transaction.HistoryCursor;
+import com.mthree.bankmthree.dto.transaction.TransactionHistoryPage;
+import com.mthree.bankmthree.dto.transaction.TransactionResponse;
+import com.mthree.bankmthree.dto.transaction.TransferRequest;
+import com.mthree.bankmthree.dto.user.UserSnapshot;
+import com.mthree.bankmthree.entity.Account;
+import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.entity.UserProfile;
+import com.mthree.bankmthree.entity.enums.CurrencyType;
+import com.mthree.bankmthree.entity.enums.Role;
+import com.mthree.bankmthree.entity.enums.Status;
+import com.mthree.bankmthree.entity.enums.UserType;
+import com.mthree.bankmthree.mapper.TransactionMapper;
+import com.mthree.bankmthree.repository.AccountRepository;
+import com.mthree.bankmthree.repository.TransactionRepository;
+import com.mthree.bankmthree.repository.UserRepository;
+import com.mthree.bankmthree.service.UserService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+public class TransactionServiceImplTest {
+
+    private static final String SENDER_CARD = "4000000000000001";
+    private static final String RECEIVER_CARD = "4000000000000002";
+    private static final BigDecimal INITIAL_BALANCE = BigDecimal.valueOf(1_000_000);
+
+    // Row locks held by the current thread's "database transaction", released on commit/rollback
+    private final ThreadLocal<Deque<Long>> heldRows = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Map<Long, ReentrantLock> rowLocks = new ConcurrentHashMap<>();
+    private final AtomicInteger lockTimeouts = new AtomicInteger();
+    private final AtomicInteger outOfOrderLocks = new AtomicInteger();
+
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private UserService userService;
+    private Account accountA;
+    private Account accountB;
+
+    @BeforeEach
+    void setUp() {
+        // stubOnly mocks do not record invocations, so they are safe to call from many threads
+        accountRepository = mock(AccountRepository.class, withSettings().stubOnly());
+        transactionRepository = mock(TransactionRepository.class, withSettings().stubOnly());
+        userService = mock(UserService.class, withSettings().stubOnly());
+
+        User owner = User.builder()
+                .id(1L)
+                .role(Role.ROLE_USER)
+                .profile(UserProfile.builder().username("owner").build())
+                .build();
+        accountA = Account.builder().id(1L).cardNumber(SENDER_CARD).currency(CurrencyType.USD).balance(INITIAL_BALANCE).user(owner).build();
+        accountB = Account.builder().id(2L).cardNumber(RECEIVER_CARD).currency(CurrencyType.USD).balance(INITIAL_BALANCE).user(owner).build();
+        rowLocks.put(1L, new ReentrantLock());
+        rowLocks.put(2L, new ReentrantLock());
+
+        when(userService.findSnapshotByUsername(anyString()))
+                .thenReturn(new UserSnapshot(1L, "owner", Role.ROLE_USER, Status.ACTIVE, UserType.STANDARD));
+        when(accountRepository.findIdByCardNumber(SENDER_CARD)).thenReturn(Optional.of(1L));
+        when(accountRepository.findIdByCardNumber(RECEIVER_CARD)).thenReturn(Optional.of(2L));
+        when(accountRepository.save(any(Account.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(transactionRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(accountRepository.findByIdForUpdate(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            lockRow(id);
+            return Optional.of(id == 1L ? accountA : accountB);
+        });
+    }
+
+    @Test
+    void testCrossingTransfersNeitherDeadlockNorLoseUpdates() throws Exception {
+        TransactionServiceImpl service = newService(3);
+        int transfers = 4000;
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // Half of the transfers go A -> B and the other half B -> A, interleaved
+        for (int i = 0; i < transfers; i++) {
+            TransferRequest request = new TransferRequest();
+            request.setSenderCardNumber(i % 2 == 0 ? SENDER_CARD : RECEIVER_CARD);
+            request.setReceiverCardNumber(i % 2 == 0 ? RECEIVER_CARD : SENDER_CARD);
+            request.setAmount(BigDecimal.ONE);
+            futures.add(executor.submit(() -> service.transferMoneyUsingCardNumbers(request, "owner")));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, lockTimeouts.get());
+        assertEquals(0, outOfOrderLocks.get());
+        assertEquals(0, INITIAL_BALANCE.compareTo(accountA.getBalance()));
+        assertEquals(0, INITIAL_BALANCE.compareTo(accountB.getBalance()));
+    }
+
+    @Test
+    void testLockTimeoutIsRetriedInANewTransaction() {
+        TransactionServiceImpl service = newService(3);
+        doThrow(new CannotAcquireLockException("Lock wait timeout exceeded"))
+                .doReturn(Optional.of(accountA))
+                .doReturn(Optional.of(accountB))
+                .when(accountRepository).findByIdForUpdate(anyLong());
+
+        TransferRequest request = new TransferRequest();
+        request.setSenderCardNumber(SENDER_CARD);
+        request.setReceiverCardNumber(RECEIVER_CARD);
+        request.setAmount(BigDecimal.TEN);
+
+        service.transferMoneyUsingCardNumbers(request, "owner");
+
+        assertEquals(0, INITIAL_BALANCE.subtract(BigDecimal.TEN).compareTo(accountA.getBalance()));
+        assertEquals(0, INITIAL_BALANCE.add(BigDecimal.TEN).compareTo(accountB.getBalance()));
+    }
+
+    @Test
+    void testTransferFailsOnceLockAttemptsAreExhausted() {
+        TransactionServiceImpl service = newService(2);
+        doThrow(new CannotAcquireLockException("Lock wait timeout exceeded"))
+                .when(accountRepository).findByIdForUpdate(anyLong());
+
+        TransferRequest request = new TransferRequest();
+        request.setSenderCardNumber(SENDER_CARD);
+        request.setReceiverCardNumber(RECEIVER_CARD);
+        request.setAmount(BigDecimal.TEN);
+
+        assertThrows(RuntimeException.class, () -> service.transferMoneyUsingCardNumbers(request, "owner"));
+        assertEquals(0, INITIAL_BALANCE.compareTo(accountA.getBalance()));
+    }
+
+    @Test
+    void testOptimisticVersionConflictIsRetriedWithFreshAccounts() {
+        TransactionServiceImpl service = newService(TransactionServiceImpl.ConcurrencyMode.OPTIMISTIC, 3);
+        AtomicInteger saves = stubOptimisticStore(1);
+
+        service.transferMoneyUsingCardNumbers(transferRequest(SENDER_CARD, RECEIVER_CARD), "owner");
+
+        // The first attempt failed on its first save, the second saved both accounts
+        assertEquals(3, saves.get());
+        assertEquals(0, INITIAL_BALANCE.subtract(BigDecimal.TEN).compareTo(accountA.getBalance()));
+        assertEquals(0, INITIAL_BALANCE.add(BigDecimal.TEN).compareTo(accountB.getBalance()));
+    }
+
+    @Test
+    void testOptimisticTransferFailsOnceAttemptsAreExhausted() {
+        TransactionServiceImpl service = newService(TransactionServiceImpl.ConcurrencyMode.OPTIMISTIC, 3);
+        AtomicInteger saves = stubOptimisticStore(Integer.MAX_VALUE);
+
+        assertThrows(RuntimeException.class,
+                () -> service.transferMoneyUsingCardNumbers(transferRequest(SENDER_CARD, RECEIVER_CARD), "owner"));
+
+        // transaction.optimistic.maxAttempts is 5 in newService, each attempt fails on its first save
+        assertEquals(5, saves.get());
+        assertEquals(0, INITIAL_BALANCE.compareTo(accountA.getBalance()));
+        assertEquals(0, INITIAL_BALANCE.compareTo(accountB.getBalance()));
+    }
+
+    @Test
+    void testAtomicTransferUpdatesRowsInIdOrderWithoutLoadingAccounts() {
+        accountRepository = mock(AccountRepository.class);
+        TransactionServiceImpl service = newService(TransactionServiceImpl.ConcurrencyMode.ATOMIC, 3);
+        when(accountRepository.findTransferViewsByCardNumberIn(any())).thenReturn(List.of(
+                new AccountTransferView(1L, SENDER_CARD, CurrencyType.USD, 1L, "owner"),
+                new AccountTransferView(2L, RECEIVER_CARD, CurrencyType.USD, 1L, "owner")));
+        when(accountRepository.credit(1L, BigDecimal.TEN)).thenReturn(1);
+        when(accountRepository.debitIfSufficientFunds(2L, BigDecimal.TEN)).thenReturn(1);
+
+        // B -> A: the lower id (the receiver) must be updated first
+        TransferRequest request = new TransferRequest();
+        request.setSenderCardNumber(RECEIVER_CARD);
+        request.setReceiverCardNumber(SENDER_CARD);
+        request.setAmount(BigDecimal.TEN);
+
+        service.transferMoneyUsingCardNumbers(request, "owner");
+
+        InOrder inOrder = inOrder(accountRepository);
+        inOrder.verify(accountRepository).credit(1L, BigDecimal.TEN);
+        inOrder.verify(accountRepository).debitIfSufficientFunds(2L, BigDecimal.TEN);
+        verify(accountRepository, never()).findByIdForUpdate(anyLong());
+        verify(accountRepository, never()).save(any(Account.class));
+    }
+
+    @Test
+    void testAtomicTransferRejectsDebitWhenNoRowIsUpdated() {
+        accountRepository = mock(AccountRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        TransactionServiceImpl service = newService(TransactionServiceImpl.ConcurrencyMode.ATOMIC, 3);
+        when(accountRepository.findTransferViewsByCardNumberIn(any())).thenReturn(List.of(
+                new AccountTransferView(1L, SENDER_CARD, CurrencyType.USD, 1L, "owner"),
+                new AccountTransferView(2L, RECEIVER_CARD, CurrencyType.USD, 1L, "owner")));
+        when(accountRepository.debitIfSufficientFunds(1L, BigDecimal.TEN)).thenReturn(0);
+
+        TransferRequest request = new TransferRequest();
+        request.setSenderCardNumber(SENDER_CARD);
+        request.setReceiverCardNumber(RECEIVER_CARD);
+        request.setAmount(BigDecimal.TEN);
+
+        assertThrows(RuntimeException.class, () -> service.transferMoneyUsingCardNumbers(request, "owner"));
+        verify(accountRepository, never()).credit(anyLong(), any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testAtomicTransferToTheSameAccountIsRejectedBeforeLookup() {
+        TransactionServiceImpl service = newService(TransactionServiceImpl.ConcurrencyMode.ATOMIC, 3);
+
+        RuntimeException thrown = assertThrows(RuntimeException.class,
+                () -> service.transferMoneyBetweenUsers(1L, 1L, BigDecimal.TEN, "owner"));
+
+        assertTrue(thrown.getCause() instanceof IllegalArgumentException);
+        assertEquals(MessageConstants.Exceptions.SAME_ACCOUNT_TRANSFER, thrown.getCause().getMessage());
+    }
+
+    @Test
+    void testBatchReportsPerItemResultsAndInsertsEachChunkTogether() {
+        accountRepository = mock(AccountRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        TransactionServiceImpl service = newService(TransactionServiceImpl.ConcurrencyMode.ATOMIC, 3);
+        when(accountRepository.findTransferViewsByCardNumberIn(any())).thenReturn(List.of(
+                new AccountTransferView(1L, SENDER_CARD, CurrencyType.USD, 1L, "owner"),
+                new AccountTransferView(2L, RECEIVER_CARD, CurrencyType.USD, 1L, "owner")));
+        when(accountRepository.debitIfSufficientFunds(1L, BigDecimal.TEN)).thenReturn(1);
+        when(accountRepository.debitIfSufficientFunds(2L, BigDecimal.TEN)).thenReturn(0);
+        when(accountRepository.credit(anyLong(), any())).thenReturn(1);
+
+        List<TransferRequest> requests = List.of(
+                transferRequest(SENDER_CARD, RECEIVER_CARD),
+                transferRequest(RECEIVER_CARD, SENDER_CARD),       // insufficient funds
+                transferRequest(SENDER_CARD, "4000000000000099"),  // unknown receiver
+                transferRequest(SENDER_CARD, RECEIVER_CARD));
+
+        List<BatchTransferResult> results = service.transferBatch(requests, "owner");
+
+        assertEquals(4, results.size());
+        assertEquals(BatchTransferResult.Status.SUCCESS, results.get(0).getStatus());
+        assertEquals(BatchTransferResult.Status.FAILED, results.get(1).getStatus());
+        assertEquals(BatchTransferResult.Status.FAILED, results.get(2).getStatus());
+        assertEquals(BatchTransferResult.Status.SUCCESS, results.get(3).getStatus());
+        // One lookup for the whole batch, one lock statement and one insert batch per chunk of two
+        verify(accountRepository, times(1)).findTransferViewsByCardNumberIn(any());
+        verify(accountRepository, times(2)).lockAllByIdIn(any());
+        verify(transactionRepository, times(2)).saveAll(any());
+        verify(transactionRepository, never()).save(any());
+    }
+
+    @Test
+    void testHistoryPageReturnsCursorThatContinuesAfterLastRow() {
+        transactionRepository = mock(TransactionRepository.class);
+        TransactionServiceImpl service = newService(3);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(transactionRepository.findHistoryFirstPage(eq(1L), any())).thenReturn(List.of(
+                historyRow(30L, now), historyRow(20L, now), historyRow(10L, now.minusMinutes(1))));
+
+        TransactionHistoryPage firstPage = service.getTransactionHistoryPage(1L, null, null);
+
+        assertEquals(2, firstPage.getItems().size());
+        assertTrue(firstPage.isHasMore());
+        HistoryCursor cursor = HistoryCursor.decode(firstPage.getNextCursor());
+        assertEquals(now, cursor.timestamp());
+        assertEquals(20L, cursor.id());
+
+        when(transactionRepository.findHistoryPageAfter(eq(1L), eq(now), eq(20L), any()))
+                .thenReturn(List.of(historyRow(10L, now.minusMinutes(1))));
+        TransactionHistoryPage lastPage = service.getTransactionHistoryPage(1L, firstPage.getNextCursor(), null);
+
+        assertEquals(1, lastPage.getItems().size());
+        assertFalse(lastPage.isHasMore());
+        assertNull(lastPage.getNextCursor());
+    }
+
+    @Test
+    void testHistoryPageMergesSentAndReceivedRowsInOrder() {
+        transactionRepository = mock(TransactionRepository.class);
+        TransactionServiceImpl service = newService(3);
+        LocalDateTime now = LocalDateTime.of(2024, 5, 1, 12, 0);
+        when(transactionRepository.findHistoryFirstPage(eq(1L), any())).thenCallRealMethod();
+        // Transaction 20 moved money between two of the user's own accounts, so both sides return it
+        when(transactionRepository.findSentHistoryFirstPage(eq(1L), any())).thenReturn(List.of(
+                historyRow(30L, now), historyRow(20L, now.minusMinutes(1)), historyRow(5L, now.minusMinutes(5))));
+        when(transactionRepository.findReceivedHistoryFirstPage(eq(1L), any())).thenReturn(List.of(
+                historyRow(25L, now), historyRow(20L, now.minusMinutes(1)), historyRow(15L, now.minusMinutes(2))));
+
+        TransactionHistoryPage page = service.getTransactionHistoryPage(1L, null, 3);
+
+        assertEquals(List.of(30L, 25L, 20L), page.getItems().stream().map(TransactionResponse::getTransactionId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(20L, HistoryCursor.decode(page.getNextCursor()).id());
+    }
+
+    @Test
+    void testMalformedHistoryCursorIsRejected() {
+        TransactionServiceImpl service = newService(3);
+
+        assertThrows(IllegalArgumentException.class, () -> service.getTransactionHistoryPage(1L, "not-a-cursor", 10));
+    }
+
+    private TransactionResponse historyRow(Long id, LocalDateTime timestamp) {
+        return new TransactionResponse(id, 1L, SENDER_CARD, 2L, RECEIVER_CARD, BigDecimal.ONE, "USD", BigDecimal.TEN, timestamp);
+    }
+
+    /**
+     * Serves accounts the way optimistic mode reads them: each read returns a fresh copy of the
+     * stored row, and a save either fails with a version conflict or writes the balance back.
+     *
+     * @param conflicts the number of saves that fail before saves succeed
+     * @return the count of save calls
+     */
+    private AtomicInteger stubOptimisticStore(int conflicts) {
+        AtomicInteger saves = new AtomicInteger();
+        when(accountRepository.findByCardNumber(SENDER_CARD)).thenAnswer(invocation -> Optional.of(copyOf(accountA)));
+        when(accountRepository.findByCardNumber(RECEIVER_CARD)).thenAnswer(invocation -> Optional.of(copyOf(accountB)));
+        when(accountRepository.save(any(Account.class))).thenAnswer(invocation -> {
+            Account saved = invocation.getArgument(0);
+            if (saves.incrementAndGet() <= conflicts) {
+                throw new ObjectOptimisticLockingFailureException(Account.class, saved.getId());
+            }
+            (saved.getId() == 1L ? accountA : accountB).setBalance(saved.getBalance());
+            return saved;
+        });
+        return saves;
+    }
+
+    private static Account copyOf(Account account) {
+        return Account.builder()
+                .id(account.getId())
+                .cardNumber(account.getCardNumber())
+                .currency(account.getCurrency())
+                .balance(account.getBalance())
+                .user(account.getUser())
+                .build();
+    }
+
+    private TransferRequest transferRequest(String senderCard, String receiverCard) {
+        TransferRequest request = new TransferRequest();
+        request.setSenderCardNumber(senderCard);
+        request.setReceiverCardNumber(receiverCard);
+        request.setAmount(BigDecimal.TEN);
+        return request;
+    }
+
+    private TransactionServiceImpl newService(int maxLockAttempts) {
+        return newService(TransactionServiceImpl.ConcurrencyMode.PESSIMISTIC, maxLockAttempts);
+    }
+
+    private TransactionServiceImpl newService(TransactionServiceImpl.ConcurrencyMode mode, int maxLockAttempts) {
+        return new TransactionServiceImpl(accountRepository, transactionRepository, mock(UserRepository.class), userService,
+                mock(TransactionMapper.class), mock(EmailOutboxDispatcher.class, withSettings().stubOnly()),
+                mock(TransactionHistoryCacheMaintainer.class, withSettings().stubOnly()),
+                new RowLockReleasingTransactionManager(), new SimpleMeterRegistry(),
+                mode, maxLockAttempts, 0, 5, 0, 2, 2, 10);
+    }
+
+    private void lockRow(Long id) throws InterruptedException {
+        Deque<Long> held = heldRows.get();
+        if (!held.isEmpty() && id < held.peekLast()) {
+            outOfOrderLocks.incrementAndGet();
+        }
+        if (!rowLocks.get(id).tryLock(1, TimeUnit.SECONDS)) {
+            lockTimeouts.incrementAndGet();
+            throw new CannotAcquireLockException("Lock wait timeout exceeded");
+        }
+        held.addLast(id);
+    }
+
+    // Stands in for the JPA transaction manager: ending a transaction releases its row locks
+    private class RowLockReleasingTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            releaseLocks();
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            releaseLocks();
+        }
+
+        private void releaseLocks() {
+            Deque<Long> held = heldRows.get();
+            while (!held.isEmpty()) {
+                rowLocks.get(held.pollLast()).unlock();
+            }
+        }
+    }
+}
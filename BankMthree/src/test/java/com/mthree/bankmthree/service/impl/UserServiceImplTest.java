@@ -0,0 +1,94 @@
+package com.mthree.bankmthree.service.impl;
+
+import com.mthree.bankmthree.constants.MessageConstants;
+import com.mthree.bankmthree.dto.auth.RegisterRequest;
+import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.exception.user.UserAlreadyExistsException;
+import com.mthree.bankmthree.exception.user.UserSsnAlreadyExistsException;
+import com.mthree.bankmthree.mapper.UserMapper;
+import com.mthree.bankmthree.repository.UserRepository;
+import com.mthree.bankmthree.service.AccountService;
+import com.mthree.bankmthree.util.BlindIndexer;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.sql.SQLIntegrityConstraintViolationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UserServiceImplTest {
+    private static final String INDEX_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    private UserMapper userMapper;
+    private UserRepository userRepository;
+    private UserFieldBloomFilters userFieldBloomFilters;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userMapper = mock(UserMapper.class);
+        userRepository = mock(UserRepository.class);
+        userFieldBloomFilters = mock(UserFieldBloomFilters.class);
+        PasswordEncoder passwordEncoder = mock(PasswordEncoder.class);
+        userService = new UserServiceImpl(userMapper, userRepository, passwordEncoder, mock(AccountService.class),
+                new BlindIndexer(INDEX_KEY), userFieldBloomFilters);
+        User user = new User();
+        when(userMapper.toUser(any(), any())).thenReturn(user);
+        when(userRepository.save(user)).thenReturn(user);
+    }
+
+    @Test
+    void testValueTakenOnAnotherNodeIsReportedAsItsConflict() {
+        // This node's filters have not seen the SSN, so the collision query is skipped
+        when(userFieldBloomFilters.mightContainAny(eq(UserFieldBloomFilters.Operation.REGISTER), any(), any(), any(), any())).thenReturn(false);
+        doThrow(violation("unique_ssn")).when(userRepository).flush();
+
+        UserSsnAlreadyExistsException e = assertThrows(UserSsnAlreadyExistsException.class,
+                () -> userService.createUser(registerRequest()));
+
+        assertEquals(MessageConstants.Exceptions.USER_SSN_EXISTS, e.getMessage());
+        verify(userRepository, never()).findFieldCollisions(any(), any(), any(), any());
+        verify(userFieldBloomFilters, never()).add(any(), any());
+    }
+
+    @Test
+    void testDuplicateUsernameIsReportedAsItsConflict() {
+        when(userFieldBloomFilters.mightContainAny(eq(UserFieldBloomFilters.Operation.REGISTER), any(), any(), any(), any())).thenReturn(false);
+        doThrow(violation("unique_username")).when(userRepository).flush();
+
+        UserAlreadyExistsException e = assertThrows(UserAlreadyExistsException.class,
+                () -> userService.createUser(registerRequest()));
+
+        assertEquals(MessageConstants.Exceptions.USER_ALREADY_EXISTS, e.getMessage());
+    }
+
+    // The shape Spring's JPA exception translation produces: the driver exception is the root cause
+    private DataIntegrityViolationException violation(String constraintName) {
+        SQLIntegrityConstraintViolationException sqlException = new SQLIntegrityConstraintViolationException("Duplicate entry");
+        return new DataIntegrityViolationException("could not execute statement",
+                new ConstraintViolationException("could not execute statement", sqlException, constraintName));
+    }
+
+    private RegisterRequest registerRequest() {
+        RegisterRequest request = new RegisterRequest();
+        request.setFirstName("Alice");
+        request.setLastName("Smith");
+        request.setUsername("alice");
+        request.setPassword("Passw0rd!");
+        request.setEmail("alice@example.com");
+        request.setPhone("5551234567");
+        request.setSsn("123-45-6789");
+        return request;
+    }
+}
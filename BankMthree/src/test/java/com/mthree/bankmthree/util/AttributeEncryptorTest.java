@@ -0,0 +1,88 @@
+package com.mthree.bankmthree.util;
+
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AttributeEncryptorTest {
+    static final String KEY_1 = "k1:AAECAwQFBgcICQoLDA0ODw==";
+    static final String KEY_2 = "k2:EBESExQVFhcYGRobHB0eHw==";
+
+    private final AttributeEncryptor encryptor = new AttributeEncryptor(new AttributeKeyRing(List.of(KEY_1), "k1"));
+
+    @Test
+    void testRoundTripWithRandomIv() {
+        String encrypted = encryptor.convertToDatabaseColumn("123-45-6789");
+
+        assertTrue(encrypted.startsWith("v1:k1:"));
+        assertNotEquals(encrypted, encryptor.convertToDatabaseColumn("123-45-6789"));
+        assertEquals("123-45-6789", encryptor.convertToEntityAttribute(encrypted));
+        assertNull(encryptor.convertToDatabaseColumn(null));
+        assertNull(encryptor.convertToEntityAttribute(null));
+    }
+
+    @Test
+    void testLegacyValuesAreStillReadable() throws Exception {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest("MthreeBankApp".getBytes(StandardCharsets.UTF_8));
+        Cipher cipher = Cipher.getInstance("AES");
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Arrays.copyOf(digest, 16), "AES"));
+        String legacy = Base64.getEncoder().encodeToString(cipher.doFinal("555-0100".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals("555-0100", encryptor.convertToEntityAttribute(legacy));
+        assertFalse(encryptor.isCurrent(legacy));
+    }
+
+    @Test
+    void testPlaintextStoredBeforeEncryptionIsReadAsItIs() {
+        // Email, phone and SSN values written before the columns were encrypted, until the backfill rewrites them
+        assertEquals("alice@example.com", encryptor.convertToEntityAttribute("alice@example.com"));
+        assertEquals("5551234567", encryptor.convertToEntityAttribute("5551234567"));
+        assertEquals("555123456789", encryptor.convertToEntityAttribute("555123456789"));
+        assertEquals("123-45-6789", encryptor.convertToEntityAttribute("123-45-6789"));
+        assertFalse(encryptor.isVersioned("123-45-6789"));
+        assertTrue(encryptor.isVersioned(encryptor.convertToDatabaseColumn("123-45-6789")));
+    }
+
+    @Test
+    void testRetiredKeysDecryptAndTamperingIsDetected() {
+        String underOldKey = encryptor.convertToDatabaseColumn("alice@example.com");
+        AttributeEncryptor rotated = new AttributeEncryptor(new AttributeKeyRing(List.of(KEY_1, KEY_2), "k2"));
+
+        assertEquals("alice@example.com", rotated.convertToEntityAttribute(underOldKey));
+        assertFalse(rotated.isCurrent(underOldKey));
+        assertTrue(rotated.isCurrent(rotated.convertToDatabaseColumn("alice@example.com")));
+        // Relabelling a value with another key id fails authentication
+        assertThrows(RuntimeException.class, () -> rotated.convertToEntityAttribute(underOldKey.replace("v1:k1:", "v1:k2:")));
+    }
+
+    @Test
+    void testPooledCiphersAreSafeAcrossVirtualThreads() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                String value = "user" + i + "@example.com";
+                results.add(executor.submit(() -> encryptor.convertToEntityAttribute(encryptor.convertToDatabaseColumn(value))));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals("user" + i + "@example.com", results.get(i).get());
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.mthree.bankmthree.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class BlindIndexerTest {
+    private static final String KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    private final BlindIndexer blindIndexer = new BlindIndexer(KEY);
+
+    @Test
+    void testIndexesAreDeterministicOverNormalizedValues() {
+        assertEquals(blindIndexer.emailIndex("alice@example.com"), blindIndexer.emailIndex(" Alice@Example.COM "));
+        assertEquals(blindIndexer.ssnIndex("123456789"), blindIndexer.ssnIndex("123-45-6789"));
+        assertEquals(blindIndexer.phoneIndex("5550100"), blindIndexer.phoneIndex("555 0100"));
+        assertEquals(64, blindIndexer.ssnIndex("123-45-6789").length());
+        assertNull(blindIndexer.phoneIndex(null));
+    }
+
+    @Test
+    void testFieldsAndKeysAreSeparated() {
+        assertNotEquals(blindIndexer.phoneIndex("123456789"), blindIndexer.ssnIndex("123456789"));
+        BlindIndexer otherKey = new BlindIndexer("HyAhIiMkJSYnKCkqKywtLi8wMTIzNDU2Nzg5Ojs8PT4=");
+        assertNotEquals(blindIndexer.ssnIndex("123456789"), otherKey.ssnIndex("123456789"));
+        assertThrows(IllegalStateException.class, () -> new BlindIndexer("AAECAwQFBgcICQoLDA0ODw=="));
+    }
+}
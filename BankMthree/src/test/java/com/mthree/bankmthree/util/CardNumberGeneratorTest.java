@@ -0,0 +1,40 @@
+package com.mthree.bankmthree.util;
+
+import com.mthree.bankmthree.repository.AccountRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class CardNumberGeneratorTest {
+    private static final String PERMUTATION_KEY = "AAECAwQFBgcICQoLDA0ODxAREhMUFRYXGBkaGxwdHh8=";
+
+    @Test
+    void testPermutationModeGivesUniqueValidNumbersWithoutQueryingAccounts() {
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        SequenceBlockAllocator sequenceAllocator = mock(SequenceBlockAllocator.class);
+        AtomicLong sequence = new AtomicLong();
+        when(sequenceAllocator.next()).thenAnswer(invocation -> sequence.getAndIncrement());
+        CardNumberGenerator generator = new CardNumberGenerator(accountRepository, 16, "4000", 5,
+                sequenceAllocator, "permutation", PERMUTATION_KEY);
+
+        Set<String> cardNumbers = new HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            String cardNumber = generator.generateUniqueCardNumber();
+            assertTrue(cardNumber.startsWith("4000"));
+            assertTrue(generator.validateCardNumber(cardNumber), cardNumber);
+            cardNumbers.add(cardNumber);
+        }
+
+        assertEquals(10_000, cardNumbers.size());
+        assertTrue(generator.isCollisionFree());
+        verifyNoInteractions(accountRepository);
+    }
+}
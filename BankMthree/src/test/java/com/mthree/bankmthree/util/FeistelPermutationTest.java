@@ -0,0 +1,69 @@
+package com.mthree.bankmthree.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FeistelPermutationTest {
+    private static final Random RANDOM = new Random(42);
+
+    @Test
+    void testIsABijectionOnWholeSmallDomainsForRandomKeys() {
+        // Exhaustive over odd and even widths, so both halves of the split are exercised
+        for (int digits : new int[]{3, 4, 5}) {
+            for (int trial = 0; trial < 5; trial++) {
+                FeistelPermutation permutation = new FeistelPermutation(randomKey(), digits);
+                int size = (int) permutation.domainSize();
+                BitSet seen = new BitSet(size);
+                for (int value = 0; value < size; value++) {
+                    long permuted = permutation.permute(value);
+                    assertTrue(permuted >= 0 && permuted < size);
+                    assertFalse(seen.get((int) permuted), "Collision at " + value);
+                    seen.set((int) permuted);
+                }
+                assertEquals(size, seen.cardinality());
+            }
+        }
+    }
+
+    @Test
+    void testCardWidthHasNoCollisionsOverLargeRangesAndInverts() {
+        FeistelPermutation permutation = new FeistelPermutation(randomKey(), 11);
+        assertEquals(100_000_000_000L, permutation.domainSize());
+        long start = Math.floorMod(RANDOM.nextLong(), permutation.domainSize() - 200_000);
+        Set<Long> seen = new HashSet<>();
+        for (long value = start; value < start + 200_000; value++) {
+            long permuted = permutation.permute(value);
+            assertTrue(seen.add(permuted), "Collision at " + value);
+            if (value % 1000 == 0) {
+                assertEquals(value, permutation.invert(permuted));
+            }
+        }
+    }
+
+    @Test
+    void testOutputDependsOnTheKeyAndRejectsBadInput() {
+        FeistelPermutation first = new FeistelPermutation(randomKey(), 11);
+        FeistelPermutation second = new FeistelPermutation(randomKey(), 11);
+        assertNotEquals(first.permute(1), second.permute(1));
+        // Consecutive inputs do not give consecutive outputs
+        assertNotEquals(first.permute(1) + 1, first.permute(2));
+        assertThrows(IllegalArgumentException.class, () -> first.permute(first.domainSize()));
+        assertThrows(IllegalArgumentException.class, () -> new FeistelPermutation(new byte[8], 11));
+    }
+
+    private static byte[] randomKey() {
+        byte[] key = new byte[32];
+        RANDOM.nextBytes(key);
+        return key;
+    }
+}
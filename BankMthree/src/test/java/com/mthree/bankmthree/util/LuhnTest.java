@@ -0,0 +1,80 @@
+package com.mthree.bankmthree.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LuhnTest {
+
+    @Test
+    void testKnownNumbers() {
+        assertTrue(Luhn.isValid("4111111111111111"));
+        assertTrue(Luhn.isValid("79927398713"));
+        assertFalse(Luhn.isValid("79927398710"));
+        assertFalse(Luhn.isValid("4111-1111"));
+        assertFalse(Luhn.isValid(""));
+        assertEquals(3, Luhn.checkDigit("7992739871"));
+        assertEquals(-1, Luhn.checkDigit("79x2"));
+        assertTrue(Luhn.isValid(79927398713L));
+        assertTrue(Luhn.isValid("4111111111111111".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test
+    void testAllRepresentationsAgreeWithTheReferenceAlgorithm() {
+        Random random = new Random(7);
+        for (int n = 0; n < 10_000; n++) {
+            char[] digits = new char[16];
+            for (int i = 0; i < digits.length; i++) {
+                digits[i] = (char) ('0' + random.nextInt(10));
+            }
+            String number = new String(digits);
+            boolean expected = referenceIsValid(number);
+            assertEquals(expected, Luhn.isValid(number), number);
+            assertEquals(expected, Luhn.isValid(number.getBytes(StandardCharsets.US_ASCII)), number);
+            assertEquals(expected, Luhn.isValid(Long.parseLong(number)), number);
+            // Appending the computed check digit always gives a valid number
+            assertTrue(referenceIsValid(number.substring(0, 15) + Luhn.checkDigit(digits, 15)), number);
+        }
+    }
+
+    @Test
+    void testBulkValidation() {
+        byte[][] numbers = {
+                "4111111111111111".getBytes(StandardCharsets.US_ASCII),
+                "4111111111111112".getBytes(StandardCharsets.US_ASCII),
+                null
+        };
+        boolean[] results = new boolean[numbers.length];
+        assertEquals(1, Luhn.validate(numbers, results));
+        assertArrayEquals(new boolean[]{true, false, false}, results);
+
+        long[] longs = {4111111111111111L, 4111111111111112L, 79927398713L};
+        boolean[] longResults = new boolean[longs.length];
+        assertEquals(2, Luhn.validate(longs, longResults));
+        assertArrayEquals(new boolean[]{true, false, true}, longResults);
+    }
+
+    // Straightforward version of the check the generator used before, kept as the oracle
+    private static boolean referenceIsValid(String number) {
+        int sum = 0;
+        boolean alternate = false;
+        for (int i = number.length() - 1; i >= 0; i--) {
+            int n = Integer.parseInt(String.valueOf(number.charAt(i)));
+            if (alternate) {
+                n *= 2;
+                if (n > 9) {
+                    n -= 9;
+                }
+            }
+            sum += n;
+            alternate = !alternate;
+        }
+        return sum % 10 == 0;
+    }
+}
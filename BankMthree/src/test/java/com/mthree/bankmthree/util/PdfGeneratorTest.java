@@ -0,0 +1,90 @@
+package com.mthree.bankmthree.util;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
+import com.mthree.bankmthree.entity.Account;
+import com.mthree.bankmthree.entity.Transaction;
+import com.mthree.bankmthree.entity.User;
+import com.mthree.bankmthree.entity.UserProfile;
+import com.mthree.bankmthree.entity.enums.CurrencyType;
+import jakarta.activation.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PdfGeneratorTest {
+
+    @Test
+    void testTemplateModeStampsTheValuesOntoOneSharedTemplate() throws Exception {
+        PdfGenerator pdfGenerator = new PdfGenerator();
+        ReflectionTestUtils.setField(pdfGenerator, "logoPath", "");
+        ReflectionTestUtils.setField(pdfGenerator, "footerImagePath", "");
+        ReflectionTestUtils.setField(pdfGenerator, "receiptMode", "template");
+        pdfGenerator.loadImages();
+
+        String text = extractText(pdfGenerator.generatePdfReceipt(transaction(1L, "4000123412341234")).getInputStream());
+        Object template = ReflectionTestUtils.getField(pdfGenerator, "receiptTemplate");
+        String secondText = extractText(pdfGenerator.generatePdfReceipt(transaction(2L, "4000999988887777")).getInputStream());
+
+        assertTrue(text.contains("Transaction Receipt"));
+        assertTrue(text.contains("Card Number:"));
+        assertTrue(text.contains("12.50 USD"));
+        assertTrue(text.contains("Alice Smith"));
+        assertTrue(text.contains("4000123412341234"));
+        assertTrue(secondText.contains("4000999988887777"));
+        assertFalse(secondText.contains("4000123412341234"));
+        assertSame(template, ReflectionTestUtils.getField(pdfGenerator, "receiptTemplate"));
+    }
+
+    @Test
+    void testDigestHasOneStampedPagePerTransaction() throws Exception {
+        PdfGenerator pdfGenerator = new PdfGenerator();
+        ReflectionTestUtils.setField(pdfGenerator, "logoPath", "");
+        ReflectionTestUtils.setField(pdfGenerator, "footerImagePath", "");
+        ReflectionTestUtils.setField(pdfGenerator, "receiptMode", "template");
+        pdfGenerator.loadImages();
+
+        DataSource digest = pdfGenerator.generatePdfDigest(List.of(
+                transaction(1L, "4000123412341234"), transaction(2L, "4000999988887777"), transaction(3L, "4000111122223333")));
+
+        try (PdfDocument document = new PdfDocument(new PdfReader(digest.getInputStream()))) {
+            assertEquals(3, document.getNumberOfPages());
+            assertTrue(PdfTextExtractor.getTextFromPage(document.getPage(1)).contains("4000123412341234"));
+            String secondPage = PdfTextExtractor.getTextFromPage(document.getPage(2));
+            assertTrue(secondPage.contains("4000999988887777"));
+            assertFalse(secondPage.contains("4000123412341234"));
+            assertTrue(PdfTextExtractor.getTextFromPage(document.getPage(3)).contains("4000111122223333"));
+        }
+    }
+
+    private static String extractText(InputStream pdf) throws IOException {
+        try (PdfDocument document = new PdfDocument(new PdfReader(pdf))) {
+            return PdfTextExtractor.getTextFromPage(document.getFirstPage());
+        }
+    }
+
+    private static Transaction transaction(Long id, String senderCardNumber) {
+        User sender = User.builder().profile(UserProfile.builder().firstName("Alice").lastName("Smith").build()).build();
+        User receiver = User.builder().profile(UserProfile.builder().firstName("Bob").lastName("Jones").build()).build();
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAmount(new BigDecimal("12.50"));
+        transaction.setTimestamp(LocalDateTime.of(2024, 5, 1, 10, 30));
+        transaction.setSender(sender);
+        transaction.setReceiver(receiver);
+        transaction.setSenderAccount(Account.builder().cardNumber(senderCardNumber).currency(CurrencyType.USD).build());
+        transaction.setReceiverAccount(Account.builder().cardNumber("4000555566667777").currency(CurrencyType.USD).build());
+        return transaction;
+    }
+}
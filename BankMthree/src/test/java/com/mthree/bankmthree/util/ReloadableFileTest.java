@@ -0,0 +1,55 @@
+package com.mthree.bankmthree.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class ReloadableFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testDecodesOnceAndAgainOnlyWhenTheFileChanges() throws Exception {
+        Path path = directory.resolve("logo.png");
+        Files.writeString(path, "first");
+        Files.setLastModifiedTime(path, FileTime.from(Instant.parse("2024-01-01T00:00:00Z")));
+        AtomicInteger loads = new AtomicInteger();
+        ReloadableFile<String> file = new ReloadableFile<>(path, content -> {
+            loads.incrementAndGet();
+            return new String(content, StandardCharsets.UTF_8);
+        }, 0);
+
+        assertEquals("first", file.get());
+        assertEquals("first", file.get());
+        assertEquals(1, loads.get());
+
+        Files.writeString(path, "second");
+        Files.setLastModifiedTime(path, FileTime.from(Instant.parse("2024-01-02T00:00:00Z")));
+        assertEquals("second", file.get());
+        assertEquals(2, loads.get());
+
+        Files.delete(path);
+        assertNull(file.get());
+    }
+
+    @Test
+    void testDoesNotTouchTheFileWithinTheCheckInterval() throws Exception {
+        Path path = directory.resolve("footer.png");
+        Files.writeString(path, "first");
+        ReloadableFile<String> file = new ReloadableFile<>(path, content -> new String(content, StandardCharsets.UTF_8), 60_000);
+
+        assertEquals("first", file.get());
+        Files.delete(path);
+        assertEquals("first", file.get());
+    }
+}